@@ -0,0 +1,264 @@
+package uniandes.dpoo.aerolinea.bench;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import uniandes.dpoo.aerolinea.exceptions.VueloSobrevendidoException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Aeropuerto;
+import uniandes.dpoo.aerolinea.modelo.Avion;
+import uniandes.dpoo.aerolinea.modelo.Ruta;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
+
+/**
+ * Esta clase construye aerolíneas sintéticas para las pruebas de rendimiento.
+ *
+ * Una aerolínea sintética tiene una cantidad dada de aeropuertos, rutas entre ellos, un avión por cada ruta, un vuelo diario por ruta durante una cantidad dada de días,
+ * clientes naturales y corporativos, y tiquetes vendidos al azar. Todo se genera a partir de una semilla, así que dos aerolíneas construidas con los mismos parámetros son
+ * iguales.
+ *
+ * La ruta i se llama 'R' seguido de i, y la vuela el avión 'Avion-i'. El vuelo del día d sale en la fecha getFecha( d ). Los clientes pares son naturales y los impares
+ * son corporativos.
+ */
+public class AerolineaSintetica
+{
+    /**
+     * La fecha del primer día de vuelos
+     */
+    private static final LocalDate PRIMERA_FECHA = LocalDate.of( 2024, 1, 1 );
+
+    /**
+     * La velocidad promedio de los aviones, en kilómetros por hora, que se usa para calcular la hora de llegada de las rutas
+     */
+    private static final int VELOCIDAD = 800;
+
+    private int numAeropuertos;
+    private int numRutas;
+    private int numDias;
+    private int capacidadAviones;
+    private int numClientes;
+    private int numTiquetes;
+    private long semilla;
+
+    private String[] fechas;
+    private Ruta[] rutas;
+    private String[] identificadoresClientes;
+
+    /**
+     * Prepara los datos para construir aerolíneas sintéticas
+     * @param numAeropuertos La cantidad de aeropuertos. Debe ser al menos 2.
+     * @param numRutas La cantidad de rutas
+     * @param numDias La cantidad de días con vuelos
+     * @param capacidadAviones La capacidad de cada avión
+     * @param numClientes La cantidad de clientes
+     * @param numTiquetes La cantidad de tiquetes vendidos. No puede superar la mitad de las sillas de todos los vuelos.
+     * @param semilla La semilla con la que se generan los datos al azar
+     * @throws Exception Se lanza esta excepción si no se pueden crear los aeropuertos
+     */
+    public AerolineaSintetica( int numAeropuertos, int numRutas, int numDias, int capacidadAviones, int numClientes, int numTiquetes, long semilla ) throws Exception
+    {
+        if( numAeropuertos < 2 )
+            throw new IllegalArgumentException( "Se necesitan al menos dos aeropuertos" );
+        if( ( long )numTiquetes * 2 > ( long )numRutas * numDias * capacidadAviones )
+            throw new IllegalArgumentException( "Hay demasiados tiquetes para la cantidad de sillas de los vuelos" );
+
+        this.numAeropuertos = numAeropuertos;
+        this.numRutas = numRutas;
+        this.numDias = numDias;
+        this.capacidadAviones = capacidadAviones;
+        this.numClientes = numClientes;
+        this.numTiquetes = numTiquetes;
+        this.semilla = semilla;
+
+        fechas = new String[numDias];
+        for( int d = 0; d < numDias; d++ )
+            fechas[ d ] = PRIMERA_FECHA.plusDays( d ).toString( );
+
+        identificadoresClientes = new String[numClientes];
+        for( int i = 0; i < numClientes; i++ )
+            identificadoresClientes[ i ] = ( i % 2 == 0 ? "cliente-" : "empresa-" ) + i;
+
+        crearRutas( );
+    }
+
+    /**
+     * Construye una aerolínea con las rutas y los aviones, pero sin vuelos ni clientes
+     * @return La aerolínea
+     */
+    public Aerolinea crearAerolineaSinVuelos( )
+    {
+        Aerolinea aerolinea = new Aerolinea( );
+        for( int r = 0; r < numRutas; r++ )
+        {
+            aerolinea.agregarRuta( rutas[ r ] );
+            aerolinea.agregarAvion( new Avion( getNombreAvion( r ), capacidadAviones ) );
+        }
+        return aerolinea;
+    }
+
+    /**
+     * Construye una aerolínea con las rutas, los aviones y todos los vuelos, pero sin clientes ni tiquetes
+     * @return La aerolínea
+     * @throws Exception Se lanza esta excepción si no se pudo programar algún vuelo
+     */
+    public Aerolinea crearCatalogo( ) throws Exception
+    {
+        Aerolinea aerolinea = crearAerolineaSinVuelos( );
+        for( int d = 0; d < numDias; d++ )
+        {
+            for( int r = 0; r < numRutas; r++ )
+                aerolinea.programarVuelo( fechas[ d ], getCodigoRuta( r ), getNombreAvion( r ) );
+        }
+        return aerolinea;
+    }
+
+    /**
+     * Construye una aerolínea completa: con los vuelos, los clientes y los tiquetes vendidos
+     * @return La aerolínea
+     * @throws Exception Se lanza esta excepción si no se pudo programar algún vuelo o vender algún tiquete
+     */
+    public Aerolinea crearAerolinea( ) throws Exception
+    {
+        Aerolinea aerolinea = crearCatalogo( );
+        agregarClientes( aerolinea );
+        venderTiquetes( aerolinea );
+        return aerolinea;
+    }
+
+    /**
+     * Agrega a una aerolínea todos los clientes sintéticos
+     * @param aerolinea La aerolínea
+     */
+    public void agregarClientes( Aerolinea aerolinea )
+    {
+        for( int i = 0; i < numClientes; i++ )
+        {
+            Cliente cliente;
+            if( i % 2 == 0 )
+                cliente = new ClienteNatural( identificadoresClientes[ i ] );
+            else
+                cliente = new ClienteCorporativo( identificadoresClientes[ i ], 1 + i % 3 );
+            aerolinea.agregarCliente( cliente );
+        }
+    }
+
+    /**
+     * Vende los tiquetes sintéticos en una aerolínea que ya tiene los vuelos y los clientes. Cada venta es de entre 1 y 4 tiquetes, para un vuelo y un cliente al azar.
+     * @param aerolinea La aerolínea
+     * @throws Exception Se lanza esta excepción si no se pudo vender algún tiquete por un motivo distinto a que el vuelo estuviera lleno
+     */
+    public void venderTiquetes( Aerolinea aerolinea ) throws Exception
+    {
+        Random azar = new Random( semilla + 1 );
+        int vendidos = 0;
+        while( vendidos < numTiquetes )
+        {
+            int cantidad = Math.min( 1 + azar.nextInt( 4 ), numTiquetes - vendidos );
+            int r = azar.nextInt( numRutas );
+            int d = azar.nextInt( numDias );
+            String cliente = identificadoresClientes[ azar.nextInt( numClientes ) ];
+            try
+            {
+                aerolinea.venderTiquetes( cliente, fechas[ d ], getCodigoRuta( r ), cantidad );
+                vendidos += cantidad;
+            }
+            catch( VueloSobrevendidoException e )
+            {
+                // Se escoge otro vuelo
+            }
+        }
+    }
+
+    public int getNumRutas( )
+    {
+        return numRutas;
+    }
+
+    public int getNumDias( )
+    {
+        return numDias;
+    }
+
+    public int getNumClientes( )
+    {
+        return numClientes;
+    }
+
+    public int getNumTiquetes( )
+    {
+        return numTiquetes;
+    }
+
+    public int getCapacidadAviones( )
+    {
+        return capacidadAviones;
+    }
+
+    public String getCodigoRuta( int ruta )
+    {
+        return rutas[ ruta ].getCodigoRuta( );
+    }
+
+    public String getNombreAvion( int ruta )
+    {
+        return "Avion-" + ruta;
+    }
+
+    public String getFecha( int dia )
+    {
+        return fechas[ dia ];
+    }
+
+    public String getIdentificadorCliente( int cliente )
+    {
+        return identificadoresClientes[ cliente ];
+    }
+
+    /**
+     * Construye las rutas entre parejas de aeropuertos distintos escogidas al azar. La hora de salida es al azar y la de llegada depende de la distancia.
+     * @throws Exception Se lanza esta excepción si no se pueden crear los aeropuertos
+     */
+    private void crearRutas( ) throws Exception
+    {
+        Random azar = new Random( semilla );
+        rutas = new Ruta[numRutas];
+        for( int r = 0; r < numRutas; r++ )
+        {
+            int origen = azar.nextInt( numAeropuertos );
+            int destino = ( origen + 1 + azar.nextInt( numAeropuertos - 1 ) ) % numAeropuertos;
+            Aeropuerto aeropuertoOrigen = getAeropuerto( origen );
+            Aeropuerto aeropuertoDestino = getAeropuerto( destino );
+
+            int salida = azar.nextInt( 24 * 12 ) * 5;
+            int duracion = Math.min( 30 + Aeropuerto.calcularDistancia( aeropuertoOrigen, aeropuertoDestino ) * 60 / VELOCIDAD, 23 * 60 );
+            int llegada = ( salida + duracion ) % ( 24 * 60 );
+            rutas[ r ] = new Ruta( aeropuertoOrigen, aeropuertoDestino, formatearHora( salida ), formatearHora( llegada ), "R" + r );
+        }
+    }
+
+    /**
+     * Retorna el aeropuerto sintético con el número dado. Las coordenadas dependen sólo del número del aeropuerto, así que todas las aerolíneas sintéticas comparten los
+     * mismos aeropuertos.
+     * @param numero El número del aeropuerto
+     * @return El aeropuerto
+     * @throws Exception Se lanza esta excepción si ya existía un aeropuerto con el mismo código y otros datos, creado por fuera de esta clase
+     */
+    private static Aeropuerto getAeropuerto( int numero ) throws Exception
+    {
+        double latitud = -60 + ( numero * 37.3 ) % 120;
+        double longitud = -170 + ( numero * 97.7 ) % 340;
+        return Aeropuerto.obtenerAeropuerto( "Aeropuerto " + numero, "S" + numero, "Ciudad " + numero, latitud, longitud );
+    }
+
+    /**
+     * Convierte una cantidad de minutos desde la medianoche en una hora con el formato de las rutas (por ejemplo '715')
+     * @param minutos La cantidad de minutos
+     * @return La hora
+     */
+    private static String formatearHora( int minutos )
+    {
+        return Integer.toString( ( minutos / 60 ) * 100 + minutos % 60 );
+    }
+}
@@ -0,0 +1,58 @@
+package uniandes.dpoo.aerolinea.bench;
+
+/**
+ * Esta interfaz representa una prueba de rendimiento: una operación que el EjecutorBenchmarks ejecuta muchas veces para medir cuántas veces por segundo se puede hacer.
+ *
+ * Las preparaciones no se incluyen en el tiempo medido. Para que el compilador no elimine el trabajo de la operación, las implementaciones deben guardar el resultado de
+ * cada ejecución en un atributo.
+ */
+public interface Benchmark
+{
+    /**
+     * Retorna el nombre de la prueba, con la forma 'Clase.metodo'
+     * @return
+     */
+    public String getNombre( );
+
+    /**
+     * Prepara el estado de la prueba antes de cada iteración (de calentamiento o de medición)
+     * @throws Exception Se lanza esta excepción si no se pudo preparar la prueba
+     */
+    public default void prepararIteracion( ) throws Exception
+    {
+    }
+
+    /**
+     * Indica si antes de cada ejecución de la operación hay que llamar a prepararInvocacion. En ese caso el tiempo se mide alrededor de cada ejecución, así que sólo se
+     * debe usar para operaciones que tarden mucho más que una medición del reloj.
+     * @return
+     */
+    public default boolean usaPreparacionPorInvocacion( )
+    {
+        return false;
+    }
+
+    /**
+     * Prepara el estado de la prueba antes de cada ejecución de la operación
+     * @throws Exception Se lanza esta excepción si no se pudo preparar la prueba
+     */
+    public default void prepararInvocacion( ) throws Exception
+    {
+    }
+
+    /**
+     * Retorna la cantidad máxima de veces que se puede ejecutar la operación en una iteración, para las operaciones que consumen un recurso limitado (como las sillas de
+     * los vuelos o los códigos de los tiquetes)
+     * @return
+     */
+    public default long getMaximoInvocaciones( )
+    {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Ejecuta una vez la operación que se quiere medir
+     * @throws Exception Se lanza esta excepción si la operación falló. Esto detiene la prueba.
+     */
+    public void ejecutar( ) throws Exception;
+}
@@ -0,0 +1,368 @@
+package uniandes.dpoo.aerolinea.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Vuelo;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.tarifas.CalculadoraTarifas;
+import uniandes.dpoo.aerolinea.modelo.tarifas.CalculadoraTarifasTemporadaAlta;
+import uniandes.dpoo.aerolinea.persistencia.PersistenciaTiquetesJson;
+import uniandes.dpoo.aerolinea.tiquetes.EstrategiaCodigosPermutados;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+import uniandes.dpoo.aerolinea.tiquetes.RegistroCodigosMemoria;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase construye las pruebas de rendimiento de las operaciones principales de la aerolínea, usando los datos de una AerolineaSintetica.
+ */
+public class BenchmarksAerolinea
+{
+    /**
+     * El paso con el que se recorren los vuelos y los clientes en las consultas, para no visitarlos en el orden en el que están guardados. Es un número primo.
+     */
+    private static final int PASO = 7919;
+
+    /**
+     * La cantidad máxima de tiquetes que se generan en una iteración, para no agotar los códigos
+     */
+    private static final int MAXIMO_TIQUETES_GENERADOS = 5000000;
+
+    /**
+     * Construye todas las pruebas de rendimiento
+     * @param datos Los datos de la aerolínea sintética
+     * @param directorio El directorio donde se pueden crear archivos temporales
+     * @return Las pruebas
+     */
+    public static List<Benchmark> crearBenchmarks( AerolineaSintetica datos, File directorio )
+    {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>( );
+        benchmarks.add( venderTiquetes( datos ) );
+        benchmarks.add( programarVuelo( datos ) );
+        benchmarks.add( getVuelo( datos ) );
+        benchmarks.add( getTiquetes( datos ) );
+        benchmarks.add( calcularTarifa( datos ) );
+        benchmarks.add( generarTiquete( datos ) );
+        benchmarks.add( cargarTiquetesJson( datos, new File( directorio, "bench-cargar.json" ) ) );
+        benchmarks.add( salvarTiquetesJson( datos, new File( directorio, "bench-salvar.json" ) ) );
+        return benchmarks;
+    }
+
+    /**
+     * Vende dos tiquetes a la vez, recorriendo los vuelos de forma que ninguno se llene
+     */
+    private static Benchmark venderTiquetes( AerolineaSintetica datos )
+    {
+        return new Benchmark( ) {
+            private Aerolinea aerolinea;
+            private int siguiente;
+            private int resultado;
+
+            @Override
+            public String getNombre( )
+            {
+                return "Aerolinea.venderTiquetes";
+            }
+
+            @Override
+            public void prepararIteracion( ) throws Exception
+            {
+                reiniciarCodigos( );
+                aerolinea = datos.crearCatalogo( );
+                datos.agregarClientes( aerolinea );
+                siguiente = 0;
+            }
+
+            @Override
+            public long getMaximoInvocaciones( )
+            {
+                return ( long )datos.getNumRutas( ) * datos.getNumDias( ) * ( datos.getCapacidadAviones( ) / 2 );
+            }
+
+            @Override
+            public void ejecutar( ) throws Exception
+            {
+                int vuelo = siguiente % ( datos.getNumRutas( ) * datos.getNumDias( ) );
+                String cliente = datos.getIdentificadorCliente( siguiente % datos.getNumClientes( ) );
+                siguiente++;
+                resultado += aerolinea.venderTiquetes( cliente, datos.getFecha( vuelo / datos.getNumRutas( ) ), datos.getCodigoRuta( vuelo % datos.getNumRutas( ) ), 2 );
+            }
+        };
+    }
+
+    /**
+     * Programa los vuelos de todas las rutas, día por día, en una aerolínea que empieza sin vuelos
+     */
+    private static Benchmark programarVuelo( AerolineaSintetica datos )
+    {
+        return new Benchmark( ) {
+            private Aerolinea aerolinea;
+            private int siguiente;
+
+            @Override
+            public String getNombre( )
+            {
+                return "Aerolinea.programarVuelo";
+            }
+
+            @Override
+            public void prepararIteracion( )
+            {
+                aerolinea = datos.crearAerolineaSinVuelos( );
+                siguiente = 0;
+            }
+
+            @Override
+            public long getMaximoInvocaciones( )
+            {
+                return ( long )datos.getNumRutas( ) * datos.getNumDias( );
+            }
+
+            @Override
+            public void ejecutar( ) throws Exception
+            {
+                int ruta = siguiente % datos.getNumRutas( );
+                int dia = siguiente / datos.getNumRutas( );
+                siguiente++;
+                aerolinea.programarVuelo( datos.getFecha( dia ), datos.getCodigoRuta( ruta ), datos.getNombreAvion( ruta ) );
+            }
+        };
+    }
+
+    /**
+     * Consulta vuelos existentes a partir de su ruta y su fecha
+     */
+    private static Benchmark getVuelo( AerolineaSintetica datos )
+    {
+        return new Benchmark( ) {
+            private Aerolinea aerolinea;
+            private int siguiente;
+            private Vuelo resultado;
+
+            @Override
+            public String getNombre( )
+            {
+                return "Aerolinea.getVuelo";
+            }
+
+            @Override
+            public void prepararIteracion( ) throws Exception
+            {
+                if( aerolinea == null )
+                    aerolinea = datos.crearCatalogo( );
+            }
+
+            @Override
+            public void ejecutar( )
+            {
+                int vuelos = datos.getNumRutas( ) * datos.getNumDias( );
+                siguiente = ( siguiente + PASO ) % vuelos;
+                resultado = aerolinea.getVuelo( datos.getCodigoRuta( siguiente % datos.getNumRutas( ) ), datos.getFecha( siguiente / datos.getNumRutas( ) ) );
+            }
+        };
+    }
+
+    /**
+     * Consulta todos los tiquetes de la aerolínea y los recorre
+     */
+    private static Benchmark getTiquetes( AerolineaSintetica datos )
+    {
+        return new Benchmark( ) {
+            private Aerolinea aerolinea;
+            private long resultado;
+
+            @Override
+            public String getNombre( )
+            {
+                return "Aerolinea.getTiquetes";
+            }
+
+            @Override
+            public void prepararIteracion( ) throws Exception
+            {
+                if( aerolinea == null )
+                {
+                    reiniciarCodigos( );
+                    aerolinea = datos.crearAerolinea( );
+                }
+            }
+
+            @Override
+            public void ejecutar( )
+            {
+                for( Tiquete tiquete : aerolinea.getTiquetes( ) )
+                    resultado += tiquete.getTarifa( );
+            }
+        };
+    }
+
+    /**
+     * Calcula la tarifa de temporada alta para distintas combinaciones de vuelo y cliente
+     */
+    private static Benchmark calcularTarifa( AerolineaSintetica datos )
+    {
+        return new Benchmark( ) {
+            private Vuelo[] vuelos;
+            private Cliente[] clientes;
+            private CalculadoraTarifas calculadora = CalculadoraTarifasTemporadaAlta.getInstancia( );
+            private int siguiente;
+            private long resultado;
+
+            @Override
+            public String getNombre( )
+            {
+                return "CalculadoraTarifas.calcularTarifa";
+            }
+
+            @Override
+            public void prepararIteracion( ) throws Exception
+            {
+                if( vuelos == null )
+                {
+                    Aerolinea aerolinea = datos.crearCatalogo( );
+                    datos.agregarClientes( aerolinea );
+                    vuelos = aerolinea.getVuelos( ).toArray( new Vuelo[0] );
+                    clientes = aerolinea.getClientes( ).toArray( new Cliente[0] );
+                }
+            }
+
+            @Override
+            public void ejecutar( )
+            {
+                siguiente = ( siguiente + PASO ) & Integer.MAX_VALUE;
+                resultado += calculadora.calcularTarifa( vuelos[ siguiente % vuelos.length ], clientes[ siguiente % clientes.length ] );
+            }
+        };
+    }
+
+    /**
+     * Genera tiquetes nuevos, con códigos únicos
+     */
+    private static Benchmark generarTiquete( AerolineaSintetica datos )
+    {
+        return new Benchmark( ) {
+            private Vuelo vuelo;
+            private Cliente cliente;
+            private Tiquete resultado;
+
+            @Override
+            public String getNombre( )
+            {
+                return "GeneradorTiquetes.generarTiquete";
+            }
+
+            @Override
+            public void prepararIteracion( ) throws Exception
+            {
+                if( vuelo == null )
+                {
+                    Aerolinea aerolinea = datos.crearCatalogo( );
+                    datos.agregarClientes( aerolinea );
+                    vuelo = aerolinea.getVuelos( ).iterator( ).next( );
+                    cliente = aerolinea.getClientes( ).iterator( ).next( );
+                }
+                reiniciarCodigos( );
+            }
+
+            @Override
+            public long getMaximoInvocaciones( )
+            {
+                return MAXIMO_TIQUETES_GENERADOS;
+            }
+
+            @Override
+            public void ejecutar( )
+            {
+                resultado = GeneradorTiquetes.generarTiquete( vuelo, cliente, 1000 );
+            }
+        };
+    }
+
+    /**
+     * Carga un archivo JSON con todos los clientes y tiquetes de la aerolínea sintética
+     */
+    private static Benchmark cargarTiquetesJson( AerolineaSintetica datos, File archivo )
+    {
+        return new Benchmark( ) {
+            private Aerolinea aerolinea;
+
+            @Override
+            public String getNombre( )
+            {
+                return "PersistenciaTiquetesJson.cargarTiquetes";
+            }
+
+            @Override
+            public void prepararIteracion( ) throws Exception
+            {
+                if( !archivo.exists( ) )
+                {
+                    reiniciarCodigos( );
+                    new PersistenciaTiquetesJson( ).salvarTiquetes( archivo.getPath( ), datos.crearAerolinea( ) );
+                }
+            }
+
+            @Override
+            public boolean usaPreparacionPorInvocacion( )
+            {
+                return true;
+            }
+
+            @Override
+            public void prepararInvocacion( ) throws Exception
+            {
+                reiniciarCodigos( );
+                aerolinea = datos.crearCatalogo( );
+            }
+
+            @Override
+            public void ejecutar( ) throws Exception
+            {
+                new PersistenciaTiquetesJson( ).cargarTiquetes( archivo.getPath( ), aerolinea );
+            }
+        };
+    }
+
+    /**
+     * Salva todos los clientes y tiquetes de la aerolínea sintética en un archivo JSON
+     */
+    private static Benchmark salvarTiquetesJson( AerolineaSintetica datos, File archivo )
+    {
+        return new Benchmark( ) {
+            private Aerolinea aerolinea;
+
+            @Override
+            public String getNombre( )
+            {
+                return "PersistenciaTiquetesJson.salvarTiquetes";
+            }
+
+            @Override
+            public void prepararIteracion( ) throws Exception
+            {
+                if( aerolinea == null )
+                {
+                    reiniciarCodigos( );
+                    aerolinea = datos.crearAerolinea( );
+                }
+            }
+
+            @Override
+            public void ejecutar( ) throws Exception
+            {
+                new PersistenciaTiquetesJson( ).salvarTiquetes( archivo.getPath( ), aerolinea );
+            }
+        };
+    }
+
+    /**
+     * Olvida todos los códigos de tiquete usados hasta ahora, para que las pruebas que generan tiquetes no agoten los códigos ni encuentren códigos repetidos al cargar
+     */
+    private static void reiniciarCodigos( )
+    {
+        GeneradorTiquetes.setRegistro( new RegistroCodigosMemoria( ) );
+        GeneradorTiquetes.setEstrategia( new EstrategiaCodigosPermutados( ) );
+    }
+}
@@ -0,0 +1,232 @@
+package uniandes.dpoo.aerolinea.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Esta clase ejecuta las pruebas de rendimiento y escribe los resultados en un archivo JSON.
+ *
+ * Cada prueba se ejecuta en modo de rendimiento (operaciones por segundo): primero se hacen unas iteraciones de calentamiento, cuyos resultados se descartan, y luego unas
+ * iteraciones de medición. Cada iteración ejecuta la operación durante un tiempo fijo (o hasta alcanzar el máximo de invocaciones de la prueba).
+ *
+ * El archivo de resultados tiene la misma estructura que los resultados en JSON de JMH (un arreglo con un objeto por prueba, con los campos benchmark, mode, params y
+ * primaryMetric, entre otros), para poder compararlo con las herramientas que ya existen para ese formato. Como todas las pruebas se ejecutan en la misma máquina virtual,
+ * el campo forks siempre es 1.
+ *
+ * La configuración se puede cambiar con las propiedades del sistema aerolinea.bench.calentamiento, aerolinea.bench.iteraciones, aerolinea.bench.duracion (en
+ * milisegundos), aerolinea.bench.escala (que multiplica el tamaño de la aerolínea sintética) y aerolinea.version (que se guarda en los resultados para identificar la versión
+ * medida).
+ */
+public class EjecutorBenchmarks
+{
+    /**
+     * Los valores de la distribución t de Student para un intervalo de confianza del 99.9%, según los grados de libertad (entre 1 y 10)
+     */
+    private static final double[] T_999 = { 636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587 };
+
+    /**
+     * El valor de la distribución normal para un intervalo de confianza del 99.9%, que se usa cuando hay más de 10 grados de libertad
+     */
+    private static final double Z_999 = 3.291;
+
+    private int iteracionesCalentamiento;
+    private int iteracionesMedicion;
+    private long duracionIteracion;
+
+    /**
+     * Construye un ejecutor de pruebas
+     * @param iteracionesCalentamiento La cantidad de iteraciones de calentamiento
+     * @param iteracionesMedicion La cantidad de iteraciones de medición
+     * @param duracionIteracion La duración de cada iteración, en milisegundos
+     */
+    public EjecutorBenchmarks( int iteracionesCalentamiento, int iteracionesMedicion, long duracionIteracion )
+    {
+        this.iteracionesCalentamiento = iteracionesCalentamiento;
+        this.iteracionesMedicion = iteracionesMedicion;
+        this.duracionIteracion = duracionIteracion;
+    }
+
+    /**
+     * Ejecuta una prueba y retorna su resultado
+     * @param benchmark La prueba
+     * @param parametros Los parámetros que se quieren guardar junto con el resultado
+     * @return Un objeto JSON con el resultado de la prueba, en el formato de JMH
+     * @throws Exception Se lanza esta excepción si la prueba falló
+     */
+    public JSONObject ejecutar( Benchmark benchmark, JSONObject parametros ) throws Exception
+    {
+        for( int i = 0; i < iteracionesCalentamiento; i++ )
+            ejecutarIteracion( benchmark );
+
+        double[] resultados = new double[iteracionesMedicion];
+        for( int i = 0; i < iteracionesMedicion; i++ )
+            resultados[ i ] = ejecutarIteracion( benchmark );
+
+        double promedio = 0;
+        for( double resultado : resultados )
+            promedio += resultado;
+        promedio /= resultados.length;
+
+        double error = Double.NaN;
+        if( resultados.length > 1 )
+        {
+            double varianza = 0;
+            for( double resultado : resultados )
+                varianza += ( resultado - promedio ) * ( resultado - promedio );
+            varianza /= resultados.length - 1;
+            int gradosLibertad = resultados.length - 1;
+            double t = gradosLibertad <= T_999.length ? T_999[ gradosLibertad - 1 ] : Z_999;
+            error = t * Math.sqrt( varianza / resultados.length );
+        }
+
+        JSONObject metrica = new JSONObject( );
+        metrica.put( "score", promedio );
+        metrica.put( "scoreError", Double.isNaN( error ) ? "NaN" : error );
+        metrica.put( "scoreConfidence", Double.isNaN( error ) ? new JSONArray( ).put( promedio ).put( promedio ) : new JSONArray( ).put( promedio - error ).put( promedio + error ) );
+        metrica.put( "scoreUnit", "ops/s" );
+        JSONArray datosCrudos = new JSONArray( );
+        for( double resultado : resultados )
+            datosCrudos.put( resultado );
+        metrica.put( "rawData", new JSONArray( ).put( datosCrudos ) );
+
+        JSONObject resultado = new JSONObject( );
+        resultado.put( "benchmark", benchmark.getNombre( ) );
+        resultado.put( "mode", "thrpt" );
+        resultado.put( "threads", 1 );
+        resultado.put( "forks", 1 );
+        resultado.put( "jdkVersion", System.getProperty( "java.version" ) );
+        resultado.put( "vmName", System.getProperty( "java.vm.name" ) );
+        resultado.put( "vmVersion", System.getProperty( "java.vm.version" ) );
+        resultado.put( "warmupIterations", iteracionesCalentamiento );
+        resultado.put( "warmupTime", duracionIteracion + " ms" );
+        resultado.put( "measurementIterations", iteracionesMedicion );
+        resultado.put( "measurementTime", duracionIteracion + " ms" );
+        resultado.put( "params", parametros );
+        resultado.put( "primaryMetric", metrica );
+        resultado.put( "secondaryMetrics", new JSONObject( ) );
+        return resultado;
+    }
+
+    /**
+     * Ejecuta una iteración de una prueba
+     * @param benchmark La prueba
+     * @return La cantidad de operaciones por segundo que se lograron en la iteración
+     * @throws Exception Se lanza esta excepción si la prueba falló
+     */
+    private double ejecutarIteracion( Benchmark benchmark ) throws Exception
+    {
+        benchmark.prepararIteracion( );
+        long maximo = benchmark.getMaximoInvocaciones( );
+        long limite = duracionIteracion * 1000000L;
+        long invocaciones = 0;
+        long tiempo = 0;
+
+        if( benchmark.usaPreparacionPorInvocacion( ) )
+        {
+            while( tiempo < limite && invocaciones < maximo )
+            {
+                benchmark.prepararInvocacion( );
+                long inicio = System.nanoTime( );
+                benchmark.ejecutar( );
+                tiempo += System.nanoTime( ) - inicio;
+                invocaciones++;
+            }
+        }
+        else
+        {
+            long inicio = System.nanoTime( );
+            while( tiempo < limite && invocaciones < maximo )
+            {
+                benchmark.ejecutar( );
+                invocaciones++;
+                tiempo = System.nanoTime( ) - inicio;
+            }
+        }
+        return invocaciones * 1e9 / tiempo;
+    }
+
+    /**
+     * Ejecuta las pruebas de rendimiento
+     * @param args El primer argumento (opcional) es el archivo donde se escriben los resultados. El segundo argumento (opcional) es una expresión regular: sólo se ejecutan
+     *        las pruebas cuyo nombre la contiene.
+     * @throws Exception Se lanza esta excepción si alguna prueba falló
+     */
+    public static void main( String[] args ) throws Exception
+    {
+        String archivoResultados = args.length > 0 ? args[ 0 ] : "bench-resultados.json";
+        Pattern filtro = Pattern.compile( args.length > 1 ? args[ 1 ] : "" );
+
+        int calentamiento = Integer.getInteger( "aerolinea.bench.calentamiento", 3 );
+        int iteraciones = Integer.getInteger( "aerolinea.bench.iteraciones", 5 );
+        long duracion = Long.getLong( "aerolinea.bench.duracion", 1000 );
+        int escala = Integer.getInteger( "aerolinea.bench.escala", 1 );
+        String version = System.getProperty( "aerolinea.version", "desconocida" );
+
+        AerolineaSintetica datos = new AerolineaSintetica( 100, 50 * escala, 90, 200, 1000 * escala, 100000 * escala, 20240101L );
+        JSONObject parametros = new JSONObject( );
+        parametros.put( "version", version );
+        parametros.put( "escala", Integer.toString( escala ) );
+
+        // Los archivos que crean las pruebas se borran al terminar, aunque alguna falle
+        File directorio = Files.createTempDirectory( "aerolinea-bench" ).toFile( );
+        JSONArray resultados = new JSONArray( );
+        try
+        {
+            EjecutorBenchmarks ejecutor = new EjecutorBenchmarks( calentamiento, iteraciones, duracion );
+            List<Benchmark> benchmarks = BenchmarksAerolinea.crearBenchmarks( datos, directorio );
+            for( Benchmark benchmark : benchmarks )
+            {
+                if( !filtro.matcher( benchmark.getNombre( ) ).find( ) )
+                    continue;
+                JSONObject resultado = ejecutor.ejecutar( benchmark, parametros );
+                JSONObject metrica = resultado.getJSONObject( "primaryMetric" );
+                System.out.println( String.format( "%-45s %15.3f +- %12.3f ops/s", benchmark.getNombre( ), metrica.getDouble( "score" ), metrica.optDouble( "scoreError" ) ) );
+                resultados.put( resultado );
+            }
+        }
+        finally
+        {
+            borrarDirectorio( directorio );
+        }
+
+        escribirResultados( archivoResultados, resultados );
+        System.out.println( "Resultados guardados en " + archivoResultados );
+    }
+
+    /**
+     * Borra un directorio temporal con los archivos que tenga
+     * @param directorio El directorio
+     */
+    private static void borrarDirectorio( File directorio )
+    {
+        File[] archivos = directorio.listFiles( );
+        if( archivos != null )
+        {
+            for( File archivo : archivos )
+                archivo.delete( );
+        }
+        directorio.delete( );
+    }
+
+    /**
+     * Escribe los resultados en un archivo
+     * @param archivo La ruta del archivo
+     * @param resultados Los resultados de las pruebas
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    private static void escribirResultados( String archivo, JSONArray resultados ) throws IOException
+    {
+        try( Writer escritor = Files.newBufferedWriter( new File( archivo ).toPath( ), StandardCharsets.UTF_8 ) )
+        {
+            resultados.write( escritor, 4, 0 );
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package uniandes.dpoo.aerolinea.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Esta clase representa un contador de eventos que se puede incrementar desde varios hilos al mismo tiempo sin candados.
+ *
+ * El contador reparte los incrementos entre varias celdas cuando hay contención (LongAdder), así que incrementarlo es barato incluso si muchos hilos lo hacen a la vez.
+ * Si las métricas están deshabilitadas, los incrementos se ignoran.
+ */
+public class Contador
+{
+    /**
+     * El nombre del contador
+     */
+    private final String nombre;
+
+    /**
+     * La suma de los incrementos
+     */
+    private final LongAdder valor;
+
+    /**
+     * Construye un contador en cero. Los contadores se obtienen con Metricas.getContador.
+     * @param nombre El nombre del contador
+     */
+    Contador( String nombre )
+    {
+        this.nombre = nombre;
+        this.valor = new LongAdder( );
+    }
+
+    public String getNombre( )
+    {
+        return nombre;
+    }
+
+    /**
+     * Incrementa el contador en uno
+     */
+    public void incrementar( )
+    {
+        if( Metricas.habilitadas )
+            valor.increment( );
+    }
+
+    /**
+     * Incrementa el contador en una cantidad dada
+     * @param cantidad La cantidad
+     */
+    public void sumar( long cantidad )
+    {
+        if( Metricas.habilitadas )
+            valor.add( cantidad );
+    }
+
+    /**
+     * Retorna el valor actual del contador. Si otros hilos lo están incrementando, el valor puede no incluir los incrementos más recientes.
+     * @return
+     */
+    public long getValor( )
+    {
+        return valor.sum( );
+    }
+
+    /**
+     * Deja el contador en cero
+     */
+    void reiniciar( )
+    {
+        valor.reset( );
+    }
+}
@@ -0,0 +1,106 @@
+package uniandes.dpoo.aerolinea.metricas;
+
+import org.json.JSONObject;
+
+/**
+ * Esta clase es una copia inmutable del estado de un histograma en un momento dado, con la que se calculan los percentiles.
+ *
+ * Los percentiles son el valor más alto del rango donde cae el percentil, sin superar el máximo registrado, así que nunca subestiman la latencia real en más del error
+ * del histograma.
+ */
+public class FotografiaHistograma
+{
+    private final String nombre;
+    private final long[] conteos;
+    private final long cantidad;
+    private final long suma;
+    private final long maximo;
+
+    /**
+     * Construye la fotografía. La construye Histograma.getFotografia.
+     */
+    FotografiaHistograma( String nombre, long[] conteos, long cantidad, long suma, long maximo )
+    {
+        this.nombre = nombre;
+        this.conteos = conteos;
+        this.cantidad = cantidad;
+        this.suma = suma;
+        this.maximo = maximo;
+    }
+
+    public String getNombre( )
+    {
+        return nombre;
+    }
+
+    /**
+     * Retorna la cantidad de valores registrados
+     * @return
+     */
+    public long getCantidad( )
+    {
+        return cantidad;
+    }
+
+    /**
+     * Retorna el valor más alto registrado
+     * @return El valor en nanosegundos, o 0 si no hay valores
+     */
+    public long getMaximo( )
+    {
+        return maximo;
+    }
+
+    /**
+     * Retorna el promedio de los valores registrados
+     * @return El promedio en nanosegundos, o 0 si no hay valores
+     */
+    public double getPromedio( )
+    {
+        return cantidad == 0 ? 0 : ( double )suma / cantidad;
+    }
+
+    /**
+     * Retorna un percentil de los valores registrados
+     * @param percentil El percentil, entre 0 y 100
+     * @return El valor en nanosegundos por debajo del cual queda el porcentaje dado de los valores, o 0 si no hay valores
+     */
+    public long getPercentil( double percentil )
+    {
+        if( cantidad == 0 )
+            return 0;
+        long objetivo = Math.max( 1, ( long )Math.ceil( cantidad * Math.min( 100, Math.max( 0, percentil ) ) / 100 ) );
+        long acumulado = 0;
+        for( int i = 0; i < conteos.length; i++ )
+        {
+            acumulado += conteos[ i ];
+            if( acumulado >= objetivo )
+                return Math.min( Histograma.calcularMaximoRango( i ), maximo );
+        }
+        return maximo;
+    }
+
+    /**
+     * Convierte la fotografía en un objeto JSON con la cantidad, el promedio, los percentiles 50, 90, 99 y 99.9 y el máximo, en nanosegundos
+     * @return El objeto JSON
+     */
+    public JSONObject toJSON( )
+    {
+        JSONObject json = new JSONObject( );
+        json.put( "cantidad", cantidad );
+        json.put( "promedio", Math.round( getPromedio( ) ) );
+        json.put( "p50", getPercentil( 50 ) );
+        json.put( "p90", getPercentil( 90 ) );
+        json.put( "p99", getPercentil( 99 ) );
+        json.put( "p999", getPercentil( 99.9 ) );
+        json.put( "maximo", maximo );
+        return json;
+    }
+
+    @Override
+    public String toString( )
+    {
+        return nombre + ": cantidad=" + cantidad + " promedio=" + Math.round( getPromedio( ) ) + "ns p50=" + getPercentil( 50 ) + "ns p99=" + getPercentil( 99 ) + "ns maximo="
+                + maximo + "ns";
+    }
+}
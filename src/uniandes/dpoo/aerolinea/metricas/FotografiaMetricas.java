@@ -0,0 +1,105 @@
+package uniandes.dpoo.aerolinea.metricas;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+/**
+ * Esta clase es una copia inmutable de todas las métricas en un momento dado: el valor de cada contador y una fotografía de cada histograma, ordenados por nombre.
+ */
+public class FotografiaMetricas
+{
+    /**
+     * El momento en que se tomó la fotografía, en milisegundos desde el 1 de enero de 1970
+     */
+    private final long instante;
+
+    /**
+     * Los valores de los contadores. Las llaves son los nombres de los contadores.
+     */
+    private final Map<String, Long> contadores;
+
+    /**
+     * Las fotografías de los histogramas. Las llaves son los nombres de los histogramas.
+     */
+    private final Map<String, FotografiaHistograma> histogramas;
+
+    /**
+     * Construye la fotografía. La construye Metricas.getFotografia.
+     */
+    FotografiaMetricas( long instante, Map<String, Long> contadores, Map<String, FotografiaHistograma> histogramas )
+    {
+        this.instante = instante;
+        this.contadores = Collections.unmodifiableMap( contadores );
+        this.histogramas = Collections.unmodifiableMap( histogramas );
+    }
+
+    public long getInstante( )
+    {
+        return instante;
+    }
+
+    public Map<String, Long> getContadores( )
+    {
+        return contadores;
+    }
+
+    public Map<String, FotografiaHistograma> getHistogramas( )
+    {
+        return histogramas;
+    }
+
+    /**
+     * Retorna el valor de un contador
+     * @param nombre El nombre del contador
+     * @return El valor, o 0 si no hay un contador con ese nombre
+     */
+    public long getContador( String nombre )
+    {
+        Long valor = contadores.get( nombre );
+        return valor == null ? 0 : valor;
+    }
+
+    /**
+     * Retorna la fotografía de un histograma
+     * @param nombre El nombre del histograma
+     * @return La fotografía, o null si no hay un histograma con ese nombre
+     */
+    public FotografiaHistograma getHistograma( String nombre )
+    {
+        return histogramas.get( nombre );
+    }
+
+    /**
+     * Convierte la fotografía en un objeto JSON con el instante, los contadores y los histogramas
+     * @return El objeto JSON
+     */
+    public JSONObject toJSON( )
+    {
+        JSONObject jContadores = new JSONObject( );
+        for( Map.Entry<String, Long> contador : contadores.entrySet( ) )
+            jContadores.put( contador.getKey( ), contador.getValue( ) );
+
+        JSONObject jHistogramas = new JSONObject( );
+        for( FotografiaHistograma histograma : histogramas.values( ) )
+            jHistogramas.put( histograma.getNombre( ), histograma.toJSON( ) );
+
+        JSONObject json = new JSONObject( );
+        json.put( "instante", instante );
+        json.put( "contadores", jContadores );
+        json.put( "histogramas", jHistogramas );
+        return json;
+    }
+
+    @Override
+    public String toString( )
+    {
+        StringBuilder texto = new StringBuilder( );
+        for( Map.Entry<String, Long> contador : contadores.entrySet( ) )
+            texto.append( contador.getKey( ) ).append( ": " ).append( contador.getValue( ) ).append( '\n' );
+        for( FotografiaHistograma histograma : histogramas.values( ) )
+            texto.append( histograma ).append( '\n' );
+        return texto.toString( );
+    }
+}
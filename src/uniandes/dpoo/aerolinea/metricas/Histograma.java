@@ -0,0 +1,160 @@
+package uniandes.dpoo.aerolinea.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Esta clase representa un histograma de latencias, en nanosegundos, al que se le pueden registrar valores desde varios hilos al mismo tiempo sin candados.
+ *
+ * Como en los histogramas HDR, los rangos son logarítmicos con subdivisiones lineales: cada potencia de 2 se parte en 2^BITS_SUBRANGO rangos del mismo tamaño, así que
+ * el error relativo de cualquier valor es menor al 2^-BITS_SUBRANGO (alrededor del 3%) y el histograma ocupa lo mismo sin importar cuántos valores tenga. Registrar un
+ * valor cuesta un incremento atómico en el arreglo de conteos y una suma en un LongAdder.
+ *
+ * La forma de uso es:
+ *
+ * <pre>
+ * long inicio = Metricas.iniciar( );
+ * ... la operación ...
+ * histograma.registrarDesde( inicio );
+ * </pre>
+ *
+ * Si las métricas están deshabilitadas, Metricas.iniciar retorna 0 y registrarDesde no hace nada, así que la operación no llama a System.nanoTime.
+ */
+public class Histograma
+{
+    /**
+     * La cantidad de bits de la subdivisión lineal de cada potencia de 2
+     */
+    static final int BITS_SUBRANGO = 5;
+
+    /**
+     * La cantidad de subrangos de cada potencia de 2
+     */
+    static final int SUBRANGOS = 1 << BITS_SUBRANGO;
+
+    /**
+     * La cantidad de rangos del histograma, suficientes para cualquier valor long positivo
+     */
+    static final int CANTIDAD_RANGOS = ( 64 - BITS_SUBRANGO ) * SUBRANGOS;
+
+    /**
+     * El nombre del histograma
+     */
+    private final String nombre;
+
+    /**
+     * La cantidad de valores registrados en cada rango
+     */
+    private final AtomicLongArray conteos;
+
+    /**
+     * La suma de los valores registrados
+     */
+    private final LongAdder suma;
+
+    /**
+     * El valor más alto registrado
+     */
+    private final AtomicLong maximo;
+
+    /**
+     * Construye un histograma vacío. Los histogramas se obtienen con Metricas.getHistograma.
+     * @param nombre El nombre del histograma
+     */
+    Histograma( String nombre )
+    {
+        this.nombre = nombre;
+        this.conteos = new AtomicLongArray( CANTIDAD_RANGOS );
+        this.suma = new LongAdder( );
+        this.maximo = new AtomicLong( );
+    }
+
+    public String getNombre( )
+    {
+        return nombre;
+    }
+
+    /**
+     * Registra el tiempo transcurrido desde un instante
+     * @param inicio El instante, obtenido con Metricas.iniciar. Si es 0 (porque las métricas estaban deshabilitadas cuando empezó la operación), no se registra nada.
+     */
+    public void registrarDesde( long inicio )
+    {
+        if( inicio != 0 )
+            registrar( System.nanoTime( ) - inicio );
+    }
+
+    /**
+     * Registra un valor, si las métricas están habilitadas
+     * @param valor El valor, en nanosegundos. Los valores negativos se registran como 0.
+     */
+    public void registrar( long valor )
+    {
+        if( !Metricas.habilitadas )
+            return;
+        if( valor < 0 )
+            valor = 0;
+        conteos.incrementAndGet( calcularRango( valor ) );
+        suma.add( valor );
+
+        // Casi nunca hay un máximo nuevo, así que normalmente no se escribe
+        long actual = maximo.get( );
+        while( valor > actual && !maximo.compareAndSet( actual, valor ) )
+            actual = maximo.get( );
+    }
+
+    /**
+     * Retorna una copia del estado actual del histograma. Si otros hilos están registrando valores, la copia puede no incluir los más recientes.
+     * @return La fotografía del histograma
+     */
+    public FotografiaHistograma getFotografia( )
+    {
+        long[] copia = new long[CANTIDAD_RANGOS];
+        long cantidad = 0;
+        for( int i = 0; i < CANTIDAD_RANGOS; i++ )
+        {
+            copia[ i ] = conteos.get( i );
+            cantidad += copia[ i ];
+        }
+        return new FotografiaHistograma( nombre, copia, cantidad, suma.sum( ), maximo.get( ) );
+    }
+
+    /**
+     * Deja el histograma vacío
+     */
+    void reiniciar( )
+    {
+        for( int i = 0; i < CANTIDAD_RANGOS; i++ )
+            conteos.set( i, 0 );
+        suma.reset( );
+        maximo.set( 0 );
+    }
+
+    /**
+     * Calcula el rango donde queda un valor. Los valores menores a 2 * SUBRANGOS tienen un rango propio; los demás comparten el rango con los valores que tienen los mismos
+     * BITS_SUBRANGO + 1 bits más significativos.
+     * @param valor El valor, que no puede ser negativo
+     * @return La posición del rango
+     */
+    static int calcularRango( long valor )
+    {
+        int exponente = 63 - Long.numberOfLeadingZeros( valor | SUBRANGOS );
+        int desplazamiento = exponente - BITS_SUBRANGO;
+        return ( desplazamiento << BITS_SUBRANGO ) + ( int )( valor >>> desplazamiento );
+    }
+
+    /**
+     * Calcula el valor más alto que queda en un rango
+     * @param rango La posición del rango
+     * @return El valor
+     */
+    static long calcularMaximoRango( int rango )
+    {
+        if( rango < 2 * SUBRANGOS )
+            return rango;
+        int desplazamiento = ( rango >>> BITS_SUBRANGO ) - 1;
+        long base = ( long )( rango - ( desplazamiento << BITS_SUBRANGO ) ) << desplazamiento;
+        return base + ( 1L << desplazamiento ) - 1;
+    }
+}
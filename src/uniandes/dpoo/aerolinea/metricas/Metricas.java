@@ -0,0 +1,181 @@
+package uniandes.dpoo.aerolinea.metricas;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Esta clase es el registro central de las métricas de la aplicación: los contadores y los histogramas de latencia de las operaciones de la aerolínea, la generación de
+ * tiquetes y la persistencia.
+ *
+ * Cada métrica tiene un nombre, con el formato 'componente.operacion' (por ejemplo 'aerolinea.venderTiquetes'). Las clases que registran métricas obtienen sus contadores
+ * e histogramas una sola vez, en constantes, para que registrar un valor no tenga que buscarlos.
+ *
+ * Las métricas están deshabilitadas hasta que se llame a setHabilitadas( true ). Mientras están deshabilitadas, medir una operación cuesta sólo leer una variable.
+ *
+ * Además de consultar una fotografía de las métricas en cualquier momento, se puede programar un volcado periódico: cada cierto tiempo se agrega al final de un archivo una
+ * línea con la fotografía en formato JSON.
+ */
+public class Metricas
+{
+    /**
+     * Indica si se están registrando las métricas
+     */
+    static volatile boolean habilitadas;
+
+    /**
+     * Los contadores, indexados por su nombre
+     */
+    private static final Map<String, Contador> contadores = new ConcurrentHashMap<String, Contador>( );
+
+    /**
+     * Los histogramas, indexados por su nombre
+     */
+    private static final Map<String, Histograma> histogramas = new ConcurrentHashMap<String, Histograma>( );
+
+    /**
+     * El contador de los volcados periódicos que no se pudieron escribir
+     */
+    private static final Contador ERRORES_VOLCADO = getContador( "metricas.erroresVolcado" );
+
+    /**
+     * El hilo que hace el volcado periódico, o null si no hay un volcado programado
+     */
+    private static ScheduledExecutorService volcado;
+
+    /**
+     * Define si se deben registrar las métricas
+     * @param habilitar True para empezar a registrar las métricas, false para dejar de hacerlo. Las métricas que ya se registraron se conservan.
+     */
+    public static void setHabilitadas( boolean habilitar )
+    {
+        habilitadas = habilitar;
+    }
+
+    public static boolean estanHabilitadas( )
+    {
+        return habilitadas;
+    }
+
+    /**
+     * Retorna el contador con un nombre, creándolo si no existe
+     * @param nombre El nombre del contador
+     * @return El contador
+     */
+    public static Contador getContador( String nombre )
+    {
+        return contadores.computeIfAbsent( nombre, Contador::new );
+    }
+
+    /**
+     * Retorna el histograma con un nombre, creándolo si no existe
+     * @param nombre El nombre del histograma
+     * @return El histograma
+     */
+    public static Histograma getHistograma( String nombre )
+    {
+        return histogramas.computeIfAbsent( nombre, Histograma::new );
+    }
+
+    /**
+     * Retorna el instante en el que empieza una operación, para medirla con Histograma.registrarDesde
+     * @return El valor de System.nanoTime, o 0 si las métricas están deshabilitadas
+     */
+    public static long iniciar( )
+    {
+        return habilitadas ? System.nanoTime( ) : 0;
+    }
+
+    /**
+     * Retorna una fotografía de todas las métricas
+     * @return La fotografía, con las métricas ordenadas por nombre
+     */
+    public static FotografiaMetricas getFotografia( )
+    {
+        Map<String, Long> valores = new TreeMap<String, Long>( );
+        for( Contador contador : contadores.values( ) )
+            valores.put( contador.getNombre( ), contador.getValor( ) );
+
+        Map<String, FotografiaHistograma> fotografias = new TreeMap<String, FotografiaHistograma>( );
+        for( Histograma histograma : histogramas.values( ) )
+            fotografias.put( histograma.getNombre( ), histograma.getFotografia( ) );
+
+        return new FotografiaMetricas( System.currentTimeMillis( ), valores, fotografias );
+    }
+
+    /**
+     * Deja todos los contadores en cero y todos los histogramas vacíos
+     */
+    public static void reiniciar( )
+    {
+        for( Contador contador : contadores.values( ) )
+            contador.reiniciar( );
+        for( Histograma histograma : histogramas.values( ) )
+            histograma.reiniciar( );
+    }
+
+    /**
+     * Programa un volcado periódico de las métricas a un archivo. Si ya había un volcado programado, se reemplaza.
+     *
+     * Cada volcado agrega al final del archivo una línea con la fotografía de las métricas en formato JSON. Si un volcado no se puede escribir, se cuenta en el contador
+     * 'metricas.erroresVolcado' y se intenta otra vez en el siguiente periodo.
+     * @param archivo La ruta del archivo
+     * @param periodo La cantidad de milisegundos entre dos volcados
+     */
+    public static synchronized void iniciarVolcado( String archivo, long periodo )
+    {
+        detenerVolcado( );
+        volcado = Executors.newSingleThreadScheduledExecutor( tarea -> {
+            Thread hilo = new Thread( tarea, "volcado-metricas" );
+            hilo.setDaemon( true );
+            return hilo;
+        } );
+        volcado.scheduleAtFixedRate( ( ) -> volcar( archivo ), periodo, periodo, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Detiene el volcado periódico, si hay uno programado
+     */
+    public static synchronized void detenerVolcado( )
+    {
+        if( volcado != null )
+        {
+            volcado.shutdownNow( );
+            volcado = null;
+        }
+    }
+
+    /**
+     * Agrega al final de un archivo una línea con la fotografía actual de las métricas
+     * @param archivo La ruta del archivo. Si no existe, se crea.
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public static void escribirFotografia( String archivo ) throws IOException
+    {
+        String linea = getFotografia( ).toJSON( ).toString( ) + System.lineSeparator( );
+        Files.write( Paths.get( archivo ), linea.getBytes( StandardCharsets.UTF_8 ), StandardOpenOption.CREATE, StandardOpenOption.APPEND );
+    }
+
+    /**
+     * Hace un volcado periódico
+     */
+    private static void volcar( String archivo )
+    {
+        try
+        {
+            escribirFotografia( archivo );
+        }
+        catch( IOException e )
+        {
+            ERRORES_VOLCADO.incrementar( );
+        }
+    }
+}
@@ -1,25 +1,45 @@
 package uniandes.dpoo.aerolinea.modelo;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.format.DateTimeParseException;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
 
 import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
 import uniandes.dpoo.aerolinea.exceptions.VueloSobrevendidoException;
+import uniandes.dpoo.aerolinea.metricas.Contador;
+import uniandes.dpoo.aerolinea.metricas.Histograma;
+import uniandes.dpoo.aerolinea.metricas.Metricas;
 import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
 import uniandes.dpoo.aerolinea.modelo.tarifas.CalculadoraTarifas;
 import uniandes.dpoo.aerolinea.modelo.tarifas.CalculadoraTarifasTemporadaAlta;
 import uniandes.dpoo.aerolinea.modelo.tarifas.CalculadoraTarifasTemporadaBaja;
+import uniandes.dpoo.aerolinea.persistencia.BitacoraAerolinea;
 import uniandes.dpoo.aerolinea.persistencia.CentralPersistencia;
 import uniandes.dpoo.aerolinea.persistencia.IPersistenciaAerolinea;
 import uniandes.dpoo.aerolinea.persistencia.IPersistenciaTiquetes;
 import uniandes.dpoo.aerolinea.persistencia.TipoInvalidoException;
+import uniandes.dpoo.aerolinea.tiquetes.AlmacenTiquetes;
+import uniandes.dpoo.aerolinea.tiquetes.ArchivoTiquetes;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
 import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+import uniandes.dpoo.aerolinea.tiquetes.TiqueteArchivado;
 
 
 /**
@@ -30,13 +50,47 @@ import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
  * 
  * Por otro lado, esta clase implementa algunas funcionalidades adicionales a su rol como estructurador, para lo cual se apoya en las otras clases que hacen parte del
  * proyecto.
+ * 
+ * La venta de tiquetes se puede hacer desde varios hilos al mismo tiempo: las ventas sólo consultan los clientes y el índice de vuelos, que son estructuras concurrentes, y
+ * la reserva de sillas la hace cada vuelo de forma atómica. Las operaciones que cambian la programación de vuelos (programar o registrar vuelos realizados) se ejecutan de
+ * a una a la vez.
+ * 
+ * Si la aerolínea tiene una bitácora, cada cambio en los clientes, los vuelos y los tiquetes queda registrado en ella. Los cambios de un mismo vuelo se registran en el
+ * mismo orden en el que se hicieron.
  */
 public class Aerolinea
 {
+    // Las métricas de las operaciones de la aerolínea. Las latencias de la venta y de la programación de vuelos sólo incluyen las operaciones exitosas.
+    private static final Histograma LATENCIA_VENTA = Metricas.getHistograma( "aerolinea.venderTiquetes" );
+    private static final Histograma LATENCIA_VENTA_LOTE = Metricas.getHistograma( "aerolinea.venderTiquetesLote" );
+    private static final Histograma LATENCIA_PROGRAMACION = Metricas.getHistograma( "aerolinea.programarVuelo" );
+    private static final Histograma LATENCIA_PROGRAMACION_LOTE = Metricas.getHistograma( "aerolinea.programarVuelos" );
+    private static final Histograma LATENCIA_CONSULTA_VUELO = Metricas.getHistograma( "aerolinea.getVuelo" );
+    private static final Histograma LATENCIA_CARGA_AEROLINEA = Metricas.getHistograma( "persistencia.cargarAerolinea" );
+    private static final Histograma LATENCIA_SALVADO_AEROLINEA = Metricas.getHistograma( "persistencia.salvarAerolinea" );
+    private static final Histograma LATENCIA_CARGA_TIQUETES = Metricas.getHistograma( "persistencia.cargarTiquetes" );
+    private static final Histograma LATENCIA_SALVADO_TIQUETES = Metricas.getHistograma( "persistencia.salvarTiquetes" );
+    private static final Contador TIQUETES_VENDIDOS = Metricas.getContador( "aerolinea.tiquetesVendidos" );
+    private static final Contador VENTAS_RECHAZADAS = Metricas.getContador( "aerolinea.ventasSobrevendidas" );
+
     /**
-     * Una lista con los aviones de los que dispone la aerolínea
+     * El carácter que separa la ruta, la fecha y la silla en los cursores de getPaginaTiquetes
      */
-    private List<Avion> aviones;
+    private static final char SEPARADOR_CURSOR = '|';
+
+    /**
+     * Un mapa con los aviones de los que dispone la aerolínea.
+     * 
+     * Las llaves del mapa son los nombres de los aviones, mientras que los valores son los aviones
+     */
+    private Map<String, Avion> aviones;
+
+    /**
+     * Un mapa con las agendas de los aviones, que indican en qué intervalos de tiempo ya están asignados a un vuelo.
+     * 
+     * Las llaves del mapa son los nombres de los aviones, mientras que los valores son sus agendas
+     */
+    private Map<String, AgendaAvion> agendas;
 
     /**
      * Un mapa con las rutas que cubre la aerolínea.
@@ -46,9 +100,18 @@ public class Aerolinea
     private Map<String, Ruta> rutas;
 
     /**
-     * Una lista de los vuelos programados por la aerolínea
+     * Un conjunto con los vuelos programados por la aerolínea, en el orden en el que fueron programados
+     */
+    private Set<Vuelo> vuelos;
+
+    /**
+     * Un índice de los vuelos programados por la aerolínea.
+     * 
+     * Las llaves del mapa son los códigos de las rutas, mientras que los valores son mapas ordenados por fecha con los vuelos de esa ruta. Este índice se mantiene
+     * sincronizado con el conjunto de vuelos y permite buscar un vuelo por ruta y fecha, o consultar los vuelos de una ruta en un rango de fechas, sin recorrer todos los
+     * vuelos. Como se consulta en cada venta, se puede leer desde varios hilos mientras se programan vuelos.
      */
-    private List<Vuelo> vuelos;
+    private NavigableMap<String, NavigableMap<String, Vuelo>> indiceVuelos;
 
     /**
      * Un mapa con los clientes de la aerolínea.
@@ -57,15 +120,47 @@ public class Aerolinea
      */
     private Map<String, Cliente> clientes;
 
+    /**
+     * El archivo histórico donde quedan los tiquetes de los vuelos que ya se realizaron, o null si la aerolínea no usa un archivo histórico
+     */
+    private ArchivoTiquetes archivoTiquetes;
+
+    /**
+     * La bitácora donde se registran los cambios de la aerolínea, o null si los cambios no se registran
+     */
+    private volatile BitacoraAerolinea bitacora;
+
+    /**
+     * El almacén donde se guardan los tiquetes de los vuelos que se programen, o null si cada tiquete se guarda como un objeto
+     */
+    private volatile AlmacenTiquetes almacenTiquetes;
+
+    /**
+     * El índice espacial de los aeropuertos de las rutas, o null si todavía no se ha construido o si cambiaron las rutas desde que se construyó
+     */
+    private volatile IndiceAeropuertos indiceAeropuertos;
+
+    /**
+     * La red de los vuelos programados, para buscar itinerarios, o null si todavía no se ha construido o si cambiaron los vuelos desde que se construyó
+     */
+    private volatile RedVuelos redVuelos;
+
+    /**
+     * La matriz de distancias entre los aeropuertos de las rutas, o null si todavía no se ha construido
+     */
+    private volatile MatrizDistancias matrizDistancias;
+
     /**
      * Construye una nueva aerolínea con un nombre e inicializa todas las contenedoras con estructuras vacías
      */
     public Aerolinea( )
     {
-        aviones = new LinkedList<Avion>( );
+        aviones = new LinkedHashMap<String, Avion>( );
+        agendas = new HashMap<String, AgendaAvion>( );
         rutas = new HashMap<String, Ruta>( );
-        vuelos = new LinkedList<Vuelo>( );
-        clientes = new HashMap<String, Cliente>( );
+        vuelos = new LinkedHashSet<Vuelo>( );
+        indiceVuelos = new ConcurrentSkipListMap<String, NavigableMap<String, Vuelo>>( );
+        clientes = new ConcurrentHashMap<String, Cliente>( );
     }
 
     // ************************************************************************************
@@ -82,6 +177,12 @@ public class Aerolinea
     public void agregarRuta( Ruta ruta )
     {
         this.rutas.put( ruta.getCodigoRuta( ), ruta );
+        this.indiceAeropuertos = null;
+
+        // La matriz no se invalida: sólo se le calculan las filas de los aeropuertos nuevos
+        MatrizDistancias matriz = this.matrizDistancias;
+        if( matriz != null )
+            matriz.agregarAeropuertos( Arrays.asList( ruta.getOrigen( ), ruta.getDestino( ) ) );
     }
 
     /**
@@ -90,7 +191,9 @@ public class Aerolinea
      */
     public void agregarAvion( Avion avion )
     {
-        this.aviones.add( avion );
+        this.aviones.put( avion.getNombre( ), avion );
+        if( !this.agendas.containsKey( avion.getNombre( ) ) )
+            this.agendas.put( avion.getNombre( ), new AgendaAvion( ) );
     }
 
     /**
@@ -99,7 +202,18 @@ public class Aerolinea
      */
     public void agregarCliente( Cliente cliente )
     {
-        this.clientes.put( cliente.getIdentificador( ), cliente );
+        BitacoraAerolinea bitacoraCambio = iniciarCambio( );
+        try
+        {
+            // El cliente se registra antes de agregarlo para que ninguna venta suya quede registrada antes que él
+            if( bitacoraCambio != null )
+                bitacoraCambio.registrarCliente( cliente );
+            this.clientes.put( cliente.getIdentificador( ), cliente );
+        }
+        finally
+        {
+            terminarCambio( bitacoraCambio );
+        }
     }
 
     /**
@@ -128,7 +242,17 @@ public class Aerolinea
      */
     public Collection<Avion> getAviones( )
     {
-        return aviones;
+        return aviones.values( );
+    }
+
+    /**
+     * Retorna el avión de la aerolínea que tiene el nombre dado
+     * @param nombreAvion El nombre del avión buscado
+     * @return El avión con el nombre, o null si no existe un avión con ese nombre
+     */
+    public Avion getAvion( String nombreAvion )
+    {
+        return aviones.get( nombreAvion );
     }
 
     /**
@@ -151,7 +275,96 @@ public class Aerolinea
     }
 
     /**
-     * Retorna todos los vuelos de la aerolínea
+     * Retorna los aeropuertos que son origen o destino de alguna ruta de la aerolínea
+     * @return
+     */
+    public Collection<Aeropuerto> getAeropuertos( )
+    {
+        Set<Aeropuerto> aeropuertos = new LinkedHashSet<Aeropuerto>( );
+        for( Ruta ruta : rutas.values( ) )
+        {
+            aeropuertos.add( ruta.getOrigen( ) );
+            aeropuertos.add( ruta.getDestino( ) );
+        }
+        return aeropuertos;
+    }
+
+    /**
+     * Retorna un índice espacial de los aeropuertos de las rutas, para buscar los aeropuertos más cercanos a un punto o los que están dentro de un radio. El índice se
+     * construye la primera vez que se pide y se vuelve a construir si se agregan rutas.
+     * @return El índice
+     */
+    public IndiceAeropuertos getIndiceAeropuertos( )
+    {
+        IndiceAeropuertos indice = indiceAeropuertos;
+        if( indice == null )
+        {
+            indice = new IndiceAeropuertos( getAeropuertos( ) );
+            indiceAeropuertos = indice;
+        }
+        return indice;
+    }
+
+    /**
+     * Retorna la matriz de distancias entre los aeropuertos de las rutas. La matriz se construye la primera vez que se pide y después se le agregan los aeropuertos de las
+     * rutas nuevas.
+     * @return La matriz
+     */
+    public MatrizDistancias getMatrizDistancias( )
+    {
+        MatrizDistancias matriz = matrizDistancias;
+        if( matriz == null )
+        {
+            synchronized( this )
+            {
+                matriz = matrizDistancias;
+                if( matriz == null )
+                {
+                    matriz = new MatrizDistancias( getAeropuertos( ) );
+                    matrizDistancias = matriz;
+                }
+            }
+        }
+        return matriz;
+    }
+
+    /**
+     * Define la matriz de distancias de la aerolínea, por ejemplo una que se abrió de un archivo con MatrizDistancias.abrir. Se le agregan los aeropuertos de las rutas
+     * que todavía no tenga.
+     * @param matrizDistancias La matriz
+     */
+    public synchronized void setMatrizDistancias( MatrizDistancias matrizDistancias )
+    {
+        matrizDistancias.agregarAeropuertos( getAeropuertos( ) );
+        this.matrizDistancias = matrizDistancias;
+    }
+
+    /**
+     * Retorna una red con los vuelos programados, para buscar itinerarios con conexiones. La red se construye la primera vez que se pide y se vuelve a construir si se
+     * programan o se realizan vuelos.
+     * @return La red
+     */
+    public RedVuelos getRedVuelos( )
+    {
+        RedVuelos red = redVuelos;
+        if( red == null )
+        {
+            synchronized( this )
+            {
+                red = redVuelos;
+                if( red == null )
+                {
+                    red = new RedVuelos( vuelos );
+                    redVuelos = red;
+                }
+            }
+        }
+        return red;
+    }
+
+    /**
+     * Retorna todos los vuelos de la aerolínea, en el orden en el que fueron programados. El conjunto no se puede recorrer mientras otro hilo programa o realiza vuelos;
+     * en ese caso se debe usar streamVuelos.
      * @return
      */
     public Collection<Vuelo> getVuelos( )
@@ -167,19 +380,168 @@ public class Aerolinea
      */
     public Vuelo getVuelo( String codigoRuta, String fechaVuelo )
     {
-        // TODO implementar
-    	boolean found = false;
-    	Vuelo flight = null;
-    	int i = 0;
-    	while (i < vuelos.size() && !found) {
-    		Vuelo current = vuelos.get(i);
-    		if (current.getRuta().getCodigoRuta().equals(codigoRuta) && current.getFecha().equals(fechaVuelo)) {
-    			found = true;
-    			flight = current;
-    		}
-    		i++;
-    	}
-        return flight;
+        long inicio = Metricas.iniciar( );
+        NavigableMap<String, Vuelo> vuelosRuta = indiceVuelos.get( codigoRuta );
+        Vuelo vuelo = vuelosRuta == null ? null : vuelosRuta.get( fechaVuelo );
+        LATENCIA_CONSULTA_VUELO.registrarDesde( inicio );
+        return vuelo;
+    }
+
+    /**
+     * Retorna todos los vuelos programados para una ruta, ordenados por fecha
+     * @param codigoRuta El código de la ruta
+     * @return Los vuelos de la ruta. Si la ruta no tiene vuelos, retorna una colección vacía.
+     */
+    public Collection<Vuelo> getVuelosRuta( String codigoRuta )
+    {
+        NavigableMap<String, Vuelo> vuelosRuta = indiceVuelos.get( codigoRuta );
+        if( vuelosRuta == null )
+            return Collections.emptyList( );
+        return Collections.unmodifiableCollection( vuelosRuta.values( ) );
+    }
+
+    /**
+     * Retorna los vuelos programados para una ruta cuya fecha se encuentra dentro de un rango, ordenados por fecha.
+     * 
+     * Las fechas deben tener el formato aaaa-mm-dd, de modo que su orden alfabético coincida con su orden cronológico. Por ejemplo, para consultar los vuelos de una ruta
+     * en noviembre de 2024 se puede usar el rango entre "2024-11-01" y "2024-11-31".
+     * @param codigoRuta El código de la ruta
+     * @param fechaInicial La primera fecha del rango (incluida)
+     * @param fechaFinal La última fecha del rango (incluida)
+     * @return Los vuelos de la ruta dentro del rango. Si no hay ninguno, retorna una colección vacía.
+     */
+    public Collection<Vuelo> getVuelosRuta( String codigoRuta, String fechaInicial, String fechaFinal )
+    {
+        NavigableMap<String, Vuelo> vuelosRuta = indiceVuelos.get( codigoRuta );
+        if( vuelosRuta == null || fechaInicial.compareTo( fechaFinal ) > 0 )
+            return Collections.emptyList( );
+        return Collections.unmodifiableCollection( vuelosRuta.subMap( fechaInicial, true, fechaFinal, true ).values( ) );
+    }
+
+    /**
+     * Agrega un vuelo al conjunto de vuelos y al índice por ruta y fecha. Si el vuelo usa un almacén de tiquetes, antes se registra en el almacén, para que los vuelos que
+     * no se llegan a programar no queden en él.
+     * @param vuelo El vuelo que se va a agregar
+     */
+    private void indexarVuelo( Vuelo vuelo )
+    {
+        vuelo.registrarEnAlmacen( );
+        String codigoRuta = vuelo.getRuta( ).getCodigoRuta( );
+        NavigableMap<String, Vuelo> vuelosRuta = indiceVuelos.get( codigoRuta );
+        if( vuelosRuta == null )
+        {
+            vuelosRuta = new ConcurrentSkipListMap<String, Vuelo>( );
+            indiceVuelos.put( codigoRuta, vuelosRuta );
+        }
+        vuelosRuta.put( vuelo.getFecha( ), vuelo );
+        vuelos.add( vuelo );
+        redVuelos = null;
+    }
+
+    /**
+     * Elimina un vuelo del conjunto de vuelos y del índice por ruta y fecha
+     * @param vuelo El vuelo que se va a eliminar
+     */
+    private void desindexarVuelo( Vuelo vuelo )
+    {
+        String codigoRuta = vuelo.getRuta( ).getCodigoRuta( );
+        NavigableMap<String, Vuelo> vuelosRuta = indiceVuelos.get( codigoRuta );
+        if( vuelosRuta != null )
+        {
+            vuelosRuta.remove( vuelo.getFecha( ) );
+            if( vuelosRuta.isEmpty( ) )
+                indiceVuelos.remove( codigoRuta );
+        }
+        vuelos.remove( vuelo );
+        redVuelos = null;
+    }
+
+    /**
+     * Define el archivo histórico donde deben quedar los tiquetes de los vuelos que ya se realizaron.
+     * 
+     * Si la aerolínea tiene un archivo histórico, cuando se registra que un vuelo fue realizado sus tiquetes se mueven al archivo y dejan de mantenerse en memoria.
+     * @param archivoTiquetes El archivo histórico, o null para que los tiquetes de los vuelos realizados simplemente se descarten junto con el vuelo
+     */
+    public void setArchivoTiquetes( ArchivoTiquetes archivoTiquetes )
+    {
+        this.archivoTiquetes = archivoTiquetes;
+    }
+
+    /**
+     * Define la bitácora donde se deben registrar los cambios de la aerolínea. Normalmente la define BitacoraAerolinea.recuperar, después de reconstruir la aerolínea.
+     * 
+     * La bitácora no registra los cambios en las rutas ni en los aviones, ni los clientes y tiquetes que se cargan de un archivo: después de hacer esos cambios hay que
+     * compactarla.
+     * @param bitacora La bitácora, o null para dejar de registrar los cambios
+     */
+    public void setBitacora( BitacoraAerolinea bitacora )
+    {
+        this.bitacora = bitacora;
+    }
+
+    /**
+     * Retorna la bitácora donde se registran los cambios de la aerolínea
+     * @return La bitácora, o null si los cambios no se registran
+     */
+    public BitacoraAerolinea getBitacora( )
+    {
+        return bitacora;
+    }
+
+    /**
+     * Define el almacén donde se deben guardar los tiquetes. Sólo lo usan los vuelos que se programen después de definirlo: los vuelos que ya estaban programados siguen
+     * guardando sus tiquetes como objetos.
+     * 
+     * Para que la aerolínea completa use el almacén, hay que definirlo antes de cargar los vuelos.
+     * @param almacenTiquetes El almacén, o null para que los vuelos nuevos guarden sus tiquetes como objetos
+     */
+    public void setAlmacenTiquetes( AlmacenTiquetes almacenTiquetes )
+    {
+        this.almacenTiquetes = almacenTiquetes;
+    }
+
+    /**
+     * Retorna el almacén donde se guardan los tiquetes de los vuelos nuevos
+     * @return El almacén, o null si los tiquetes se guardan como objetos
+     */
+    public AlmacenTiquetes getAlmacenTiquetes( )
+    {
+        return almacenTiquetes;
+    }
+
+    /**
+     * Indica a la bitácora, si la hay, que empieza un cambio
+     * @return La bitácora en la que se debe registrar el cambio, o null si no hay bitácora
+     */
+    private BitacoraAerolinea iniciarCambio( )
+    {
+        BitacoraAerolinea bitacoraCambio = bitacora;
+        if( bitacoraCambio != null )
+            bitacoraCambio.iniciarCambio( );
+        return bitacoraCambio;
+    }
+
+    /**
+     * Indica a la bitácora, si la hay, que terminó un cambio
+     * @param bitacoraCambio La bitácora retornada por iniciarCambio
+     */
+    private static void terminarCambio( BitacoraAerolinea bitacoraCambio )
+    {
+        if( bitacoraCambio != null )
+            bitacoraCambio.terminarCambio( );
+    }
+
+    /**
+     * Busca en el archivo histórico un tiquete de un vuelo que ya se realizó
+     * @param codigoTiquete El código del tiquete
+     * @return El tiquete archivado, o null si la aerolínea no tiene archivo histórico o el tiquete no está archivado
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo histórico
+     */
+    public TiqueteArchivado consultarTiqueteArchivado( String codigoTiquete ) throws IOException
+    {
+        if( archivoTiquetes == null )
+            return null;
+        return archivoTiquetes.buscar( codigoTiquete );
     }
 
     /**
@@ -192,22 +554,152 @@ public class Aerolinea
     }
 
     /**
-     * Retorna todos los tiquetes de la aerolínea, los cuales se recolectan vuelo por vuelo
+     * Retorna todos los tiquetes de la aerolínea, sin copiarlos: la colección es una vista que no se puede modificar y que recorre los tiquetes vuelo por vuelo cada vez
+     * que se itera, así que siempre refleja el estado actual de la aerolínea. Calcular su tamaño recorre los vuelos.
+     * 
+     * Los vuelos se recorren con el índice por ruta y fecha, que es concurrente: la vista se puede recorrer mientras se programan o se realizan vuelos, sin que falle.
      * @return
      */
     public Collection<Tiquete> getTiquetes( )
     {
-        // TODO implementar
-    	Collection<Tiquete> tiquetes = new ArrayList<Tiquete>();
-    	for (Vuelo current :  vuelos) {
-    		Collection<Tiquete> ticketsFlight = current.getTiquetes();
-    		tiquetes.addAll(ticketsFlight);
-//    		for (Tiquete ticket : ticketsFlight) {
-//    			tiquetes.
-//    		}
-    	}
-        return tiquetes;
+        return new AbstractCollection<Tiquete>( ) {
+            @Override
+            public Iterator<Tiquete> iterator( )
+            {
+                return iterarTiquetes( );
+            }
+
+            @Override
+            public int size( )
+            {
+                long cantidad = 0;
+                for( NavigableMap<String, Vuelo> vuelosRuta : indiceVuelos.values( ) )
+                {
+                    for( Vuelo vuelo : vuelosRuta.values( ) )
+                        cantidad += vuelo.getCantidadTiquetes( );
+                }
+                return ( int )Math.min( cantidad, Integer.MAX_VALUE );
+            }
 
+            @Override
+            public Stream<Tiquete> stream( )
+            {
+                return streamTiquetes( );
+            }
+
+            @Override
+            public Stream<Tiquete> parallelStream( )
+            {
+                return streamTiquetes( ).parallel( );
+            }
+        };
+    }
+
+    /**
+     * Retorna un stream con todos los tiquetes de la aerolínea, sin copiarlos. El stream se divide por vuelos, así que se puede procesar en paralelo. Igual que getTiquetes,
+     * recorre los vuelos con el índice por ruta y fecha, así que se puede usar mientras se programan o se realizan vuelos.
+     * @return
+     */
+    public Stream<Tiquete> streamTiquetes( )
+    {
+        return streamVuelos( ).flatMap( vuelo -> vuelo.getTiquetes( ).stream( ) );
+    }
+
+    /**
+     * Retorna un stream con los vuelos de la aerolínea, ordenados por ruta y fecha. Los vuelos se recorren con el índice por ruta y fecha, que es concurrente, así que el
+     * stream no falla si mientras se recorre se programan o se realizan vuelos.
+     * @return
+     */
+    public Stream<Vuelo> streamVuelos( )
+    {
+        return indiceVuelos.values( ).stream( ).flatMap( vuelosRuta -> vuelosRuta.values( ).stream( ) );
+    }
+
+    /**
+     * Retorna un iterador que recorre los tiquetes de la aerolínea vuelo por vuelo
+     */
+    private Iterator<Tiquete> iterarTiquetes( )
+    {
+        Iterator<Vuelo> iteradorVuelos = streamVuelos( ).iterator( );
+        return new Iterator<Tiquete>( ) {
+            private Iterator<Tiquete> iteradorVuelo = Collections.emptyIterator( );
+
+            @Override
+            public boolean hasNext( )
+            {
+                while( !iteradorVuelo.hasNext( ) && iteradorVuelos.hasNext( ) )
+                    iteradorVuelo = iteradorVuelos.next( ).getTiquetes( ).iterator( );
+                return iteradorVuelo.hasNext( );
+            }
+
+            @Override
+            public Tiquete next( )
+            {
+                if( !hasNext( ) )
+                    throw new NoSuchElementException( );
+                return iteradorVuelo.next( );
+            }
+        };
+    }
+
+    /**
+     * Retorna una página de los tiquetes de la aerolínea. Los tiquetes se recorren por ruta, por fecha del vuelo y por silla, usando el índice de vuelos, así que se
+     * pueden recorrer todos los tiquetes por partes sin tener nunca más de una página en memoria.
+     *
+     * Si entre dos páginas se venden tiquetes o se programan vuelos, las páginas siguientes incluyen los que queden después del cursor. Ningún tiquete se entrega dos veces.
+     *
+     * Si se llega a una silla reservada cuyo tiquete todavía no se ha generado (porque la venta está en curso), la página termina antes de esa silla y el cursor apunta a
+     * ella, así que la página puede tener menos tiquetes que el tamaño pedido e incluso ninguno.
+     * @param cursor El cursor de la página anterior (PaginaTiquetes.getCursorSiguiente), o null para pedir la primera página
+     * @param tamano La cantidad máxima de tiquetes de la página
+     * @return La página con los tiquetes y el cursor de la página siguiente
+     * @throws IllegalArgumentException Se lanza esta excepción si el tamaño no es positivo o si el cursor no fue generado por este método
+     */
+    public PaginaTiquetes getPaginaTiquetes( String cursor, int tamano )
+    {
+        if( tamano <= 0 )
+            throw new IllegalArgumentException( "El tamaño de la página debe ser positivo" );
+
+        String rutaInicial = null;
+        String fechaInicial = null;
+        int sillaInicial = 0;
+        if( cursor != null )
+        {
+            // El cursor es 'ruta|fecha|silla'. Se parte desde el final porque la fecha y la silla no tienen el separador.
+            int separadorSilla = cursor.lastIndexOf( SEPARADOR_CURSOR );
+            int separadorFecha = separadorSilla <= 0 ? -1 : cursor.lastIndexOf( SEPARADOR_CURSOR, separadorSilla - 1 );
+            if( separadorFecha < 0 )
+                throw new IllegalArgumentException( "El cursor no es válido: " + cursor );
+            rutaInicial = cursor.substring( 0, separadorFecha );
+            fechaInicial = cursor.substring( separadorFecha + 1, separadorSilla );
+            try
+            {
+                sillaInicial = Integer.parseInt( cursor.substring( separadorSilla + 1 ) );
+            }
+            catch( NumberFormatException e )
+            {
+                throw new IllegalArgumentException( "El cursor no es válido: " + cursor );
+            }
+        }
+
+        List<Tiquete> tiquetes = new ArrayList<Tiquete>( Math.min( tamano, 1024 ) );
+        NavigableMap<String, NavigableMap<String, Vuelo>> rutasPendientes = rutaInicial == null ? indiceVuelos : indiceVuelos.tailMap( rutaInicial, true );
+        for( Map.Entry<String, NavigableMap<String, Vuelo>> vuelosRuta : rutasPendientes.entrySet( ) )
+        {
+            boolean rutaDelCursor = vuelosRuta.getKey( ).equals( rutaInicial );
+            NavigableMap<String, Vuelo> vuelosPendientes = rutaDelCursor ? vuelosRuta.getValue( ).tailMap( fechaInicial, true ) : vuelosRuta.getValue( );
+            for( Vuelo vuelo : vuelosPendientes.values( ) )
+            {
+                int primeraSilla = rutaDelCursor && vuelo.getFecha( ).equals( fechaInicial ) ? sillaInicial : 0;
+                int siguienteSilla = vuelo.recorrerManifiesto( primeraSilla, tamano - tiquetes.size( ), tiquetes );
+                if( tiquetes.size( ) == tamano || siguienteSilla < vuelo.getSillasOcupadas( ) )
+                {
+                    String siguiente = vuelosRuta.getKey( ) + SEPARADOR_CURSOR + vuelo.getFecha( ) + SEPARADOR_CURSOR + siguienteSilla;
+                    return new PaginaTiquetes( tiquetes, siguiente );
+                }
+            }
+        }
+        return new PaginaTiquetes( tiquetes, null );
     }
 
     // ************************************************************************************
@@ -228,7 +720,9 @@ public class Aerolinea
     {
         // TODO implementar
     	IPersistenciaAerolinea cargador = CentralPersistencia.getPersistenciaAerolinea(tipoArchivo);
+    	long inicio = Metricas.iniciar();
     	cargador.cargarAerolinea(archivo, this);
+    	LATENCIA_CARGA_AEROLINEA.registrarDesde(inicio);
     }
 
     /**
@@ -242,7 +736,9 @@ public class Aerolinea
     {
         // TODO implementar
     	IPersistenciaAerolinea salvador = CentralPersistencia.getPersistenciaAerolinea(tipoArchivo);
+    	long inicio = Metricas.iniciar();
     	salvador.salvarAerolinea(archivo, this);
+    	LATENCIA_SALVADO_AEROLINEA.registrarDesde(inicio);
     }
 
     /**
@@ -257,7 +753,9 @@ public class Aerolinea
     public void cargarTiquetes( String archivo, String tipoArchivo ) throws TipoInvalidoException, IOException, InformacionInconsistenteException
     {
         IPersistenciaTiquetes cargador = CentralPersistencia.getPersistenciaTiquetes( tipoArchivo );
+        long inicio = Metricas.iniciar( );
         cargador.cargarTiquetes( archivo, this );
+        LATENCIA_CARGA_TIQUETES.registrarDesde( inicio );
     }
 
     /**
@@ -270,7 +768,9 @@ public class Aerolinea
     public void salvarTiquetes( String archivo, String tipoArchivo ) throws TipoInvalidoException, IOException
     {
         IPersistenciaTiquetes cargador = CentralPersistencia.getPersistenciaTiquetes( tipoArchivo );
+        long inicio = Metricas.iniciar( );
         cargador.salvarTiquetes( archivo, this );
+        LATENCIA_SALVADO_TIQUETES.registrarDesde( inicio );
     }
 
     // ************************************************************************************
@@ -290,62 +790,134 @@ public class Aerolinea
      * @param nombreAvion El nombre del avión que realizará el vuelo
      * @throws Exception Lanza esta excepción si hay algún problema con los datos suministrados
      */
-    public void programarVuelo( String fecha, String codigoRuta, String nombreAvion ) throws Exception
+    public synchronized void programarVuelo( String fecha, String codigoRuta, String nombreAvion ) throws Exception
     {
-        // TODO Implementar el método
-    	Avion planeUsed = null;
-    	Ruta ruteTaken = null;
-    	for (Avion plane : aviones) {
-    		if(plane.getNombre().equals(nombreAvion)) {
-    			planeUsed = plane;
-    			break;
-    		}
-    	}
-    	for (Ruta rute : rutas.values()) {
-    		if(rute.getCodigoRuta().equals(codigoRuta)) {
-    			ruteTaken = rute;
-    			break;
-    		}
-    	}
+    	long medicion = Metricas.iniciar();
+    	Avion planeUsed = aviones.get(nombreAvion);
+    	Ruta ruteTaken = rutas.get(codigoRuta);
     	if (planeUsed == null || ruteTaken == null) throw new InformacionInconsistenteException("Algún dato es invalido");
-    	
-    	
-    	for (Vuelo flight : vuelos) {
-    		if (flight.getAvion() == planeUsed) {
-    			if (interseccionVuelos(flight.getRuta(), ruteTaken)) 
-    				throw new InformacionInconsistenteException("Este avión está ocupado en otro vuelo");
-    		}
-    	}
-    	Vuelo newFlight = new Vuelo(ruteTaken, fecha, planeUsed);
-    	vuelos.add(newFlight);
-    }
-    
-    private boolean interseccionVuelos(Ruta ruta1, Ruta ruta2) {
-    	
-    	boolean interseccion = false;
-    	
-    	int horaS = Ruta.getHoras(ruta1.getHoraSalida()), horaL = Ruta.getHoras(ruta1.getHoraLlegada());
-    	int minutoS = Ruta.getMinutos(ruta1.getHoraSalida()), minutoL = Ruta.getMinutos(ruta1.getHoraLlegada());
-    	ArrayList<Integer> rango1 = new ArrayList<Integer>();
-    	int lim = 60;
-    	while(horaS <= horaL) {
-    		int hora = horaS*100;
-    		if (horaS == horaL) lim = minutoL;
-    		while(minutoS < lim) {
-    			
-    			rango1.add(hora + minutoS);
-    			minutoS++;
+    	if (getVuelo(codigoRuta, fecha) != null)
+    		throw new InformacionInconsistenteException("Ya existe un vuelo de la ruta " + codigoRuta + " en " + fecha);
+
+    	Vuelo newFlight = crearVuelo(ruteTaken, fecha, planeUsed);
+    	long inicio = AgendaAvion.calcularInicio(newFlight);
+    	long fin = AgendaAvion.calcularFin(ruteTaken, inicio);
+    	BitacoraAerolinea bitacoraCambio = iniciarCambio();
+    	try {
+    		if (!agendas.get(nombreAvion).reservar(inicio, fin))
+    			throw new InformacionInconsistenteException("Este avión está ocupado en otro vuelo");
+
+    		// El vuelo se registra antes de indexarlo para que ninguna venta suya quede registrada antes que él
+    		if (bitacoraCambio != null) {
+    			try {
+    				bitacoraCambio.registrarVueloProgramado(fecha, codigoRuta, nombreAvion);
+    			} catch (UncheckedIOException e) {
+    				agendas.get(nombreAvion).liberar(inicio);
+    				throw e;
+    			}
     		}
-    		horaS++;
+    		indexarVuelo(newFlight);
+    	} finally {
+    		terminarCambio(bitacoraCambio);
     	}
-    	
-    	if (rango1.contains(Integer.parseInt(ruta2.getHoraSalida())) || rango1.contains(Integer.parseInt(ruta2.getHoraLlegada())) ) {
-    		interseccion = true;
-    	} else if (Integer.parseInt(ruta2.getHoraSalida()) < rango1.getFirst() && Integer.parseInt(ruta2.getHoraLlegada()) > rango1.getLast()) {
-    		interseccion = true;
-    	}
-    
-    	return interseccion;
+    	LATENCIA_PROGRAMACION.registrarDesde(medicion);
+    }
+
+    /**
+     * Agrega a la aerolínea un vuelo en cada una de las fechas dadas, todos en la misma ruta y con el mismo avión.
+     * 
+     * Los vuelos se programan todos o ninguno: si alguno de ellos choca con otro vuelo del avión (incluyendo los demás vuelos de la misma programación), o si ya existía un
+     * vuelo de la ruta en alguna de las fechas, no se programa ninguno.
+     * 
+     * @param fechas Las fechas en las que se realizarán los vuelos
+     * @param codigoRuta La ruta que cubrirán los vuelos
+     * @param nombreAvion El nombre del avión que realizará los vuelos
+     * @throws Exception Lanza esta excepción si hay algún problema con los datos suministrados
+     */
+    public synchronized void programarVuelos( Collection<String> fechas, String codigoRuta, String nombreAvion ) throws Exception
+    {
+        long medicion = Metricas.iniciar( );
+        Avion avion = aviones.get( nombreAvion );
+        Ruta ruta = rutas.get( codigoRuta );
+        if( avion == null || ruta == null )
+            throw new InformacionInconsistenteException( "Algún dato es invalido" );
+
+        AgendaAvion agenda = agendas.get( nombreAvion );
+        List<Long> reservados = new ArrayList<Long>( fechas.size( ) );
+        List<Vuelo> nuevos = new ArrayList<Vuelo>( fechas.size( ) );
+        try
+        {
+            for( String fecha : fechas )
+            {
+                if( getVuelo( codigoRuta, fecha ) != null )
+                    throw new InformacionInconsistenteException( "Ya existe un vuelo de la ruta " + codigoRuta + " en " + fecha );
+
+                Vuelo vuelo = crearVuelo( ruta, fecha, avion );
+                long inicio = AgendaAvion.calcularInicio( vuelo );
+                if( !agenda.reservar( inicio, AgendaAvion.calcularFin( ruta, inicio ) ) )
+                    throw new InformacionInconsistenteException( "Este avión está ocupado en otro vuelo en " + fecha );
+                reservados.add( inicio );
+                nuevos.add( vuelo );
+            }
+        }
+        catch( InformacionInconsistenteException e )
+        {
+            for( Long inicio : reservados )
+                agenda.liberar( inicio );
+            throw e;
+        }
+
+        BitacoraAerolinea bitacoraCambio = iniciarCambio( );
+        try
+        {
+            // Cada vuelo se registra en la bitácora antes de indexarlo. Si falla la escritura, los vuelos ya registrados quedan programados y se liberan los demás.
+            int programados = 0;
+            try
+            {
+                for( Vuelo vuelo : nuevos )
+                {
+                    if( bitacoraCambio != null )
+                        bitacoraCambio.registrarVueloProgramado( vuelo.getFecha( ), codigoRuta, nombreAvion );
+                    indexarVuelo( vuelo );
+                    programados++;
+                }
+            }
+            catch( UncheckedIOException e )
+            {
+                for( Long inicio : reservados.subList( programados, reservados.size( ) ) )
+                    agenda.liberar( inicio );
+                throw e;
+            }
+        }
+        finally
+        {
+            terminarCambio( bitacoraCambio );
+        }
+        LATENCIA_PROGRAMACION_LOTE.registrarDesde( medicion );
+    }
+
+    /**
+     * Construye un vuelo nuevo, convirtiendo su fecha una sola vez. Si la aerolínea tiene un almacén de tiquetes, el vuelo guarda sus tiquetes en él, pero sólo se registra
+     * en el almacén cuando se indexa.
+     * @param ruta La ruta del vuelo
+     * @param fecha La fecha del vuelo, con el formato aaaa-mm-dd
+     * @param avion El avión del vuelo
+     * @return El vuelo
+     * @throws InformacionInconsistenteException Se lanza esta excepción si la fecha no tiene un formato válido
+     */
+    private Vuelo crearVuelo( Ruta ruta, String fecha, Avion avion ) throws InformacionInconsistenteException
+    {
+        AlmacenTiquetes almacen = almacenTiquetes;
+        try
+        {
+            if( almacen != null )
+                return new Vuelo( ruta, fecha, avion, almacen );
+            return new Vuelo( ruta, fecha, avion );
+        }
+        catch( DateTimeParseException e )
+        {
+            throw new InformacionInconsistenteException( "La fecha '" + fecha + "' no es válida" );
+        }
     }
 
     /**
@@ -355,65 +927,453 @@ public class Aerolinea
      * 
      * Según la fecha del vuelo, se deben usar las tarifas de temporada baja (enero a mayo y septiembre a noviembre) o las de temporada alta (el resto del año).
      * 
+     * Si hay bitácora, la venta se registra antes de generar los tiquetes. Si el registro no se puede escribir, se lanza una UncheckedIOException y no se vende ningún
+     * tiquete. Lo mismo ocurre si ya no quedan códigos de tiquete disponibles: se lanza una IllegalStateException y las sillas reservadas se liberan.
+     * 
      * @param identificadorCliente El identificador del cliente al cual se le venden los tiquetes
      * @param fecha La fecha en la que se realiza el vuelo para el que se van a vender los tiquetes
      * @param codigoRuta El código de la ruta para el que se van a vender los tiquetes
      * @param cantidad La cantidad de tiquetes que se quieren comprar
      * @return El valor total de los tiquetes vendidos
      * @throws VueloSobrevendidoException Se lanza esta excepción si no hay suficiente espacio en el vuelo para todos los pasajeros
+     * @throws ArithmeticException Se lanza esta excepción si el valor total de los tiquetes no cabe en un int. En ese caso no se vende ningún tiquete.
      * @throws Exception Se lanza esta excepción para indicar que no se pudieron vender los tiquetes por algún otro motivo
      */
     public int venderTiquetes( String identificadorCliente, String fecha, String codigoRuta, int cantidad ) throws VueloSobrevendidoException, Exception
     {
-        // TODO Implementar el método
-    	Cliente cliente = null;
-    	for (Cliente current : clientes.values()) {
-    		if (current.getIdentificador().equals(identificadorCliente)) {
-    			cliente = current;
-    			break;
-    		}
-    	}
-    	
-    	if (cliente == null) throw new InformacionInconsistenteException("No existe un cliente con ese identificador");
-    	int month = Integer.parseInt(fecha.substring(4, 6));
-    	CalculadoraTarifas calculadora;
-    	if (month >= 1 && month <= 5 ) {
-    		calculadora = new CalculadoraTarifasTemporadaBaja(); 
-    	} else 
-    		calculadora = new CalculadoraTarifasTemporadaAlta();
-    	
-    	Vuelo vuelo = getVuelo(codigoRuta, fecha);
-    	int tiquetesVendidos = vuelo.venderTiquetes(cliente, calculadora, cantidad);
-    	
-//    	int i = 0;
-//    	while(clientes.values().iterator().hasNext()) {
-//    		clientes.values().ge
-//    		i++;
-//    	}
-        return tiquetesVendidos;
-    }
-
-    /**
-     * Registra que un cierto vuelo fue realizado
+        long inicio = Metricas.iniciar( );
+        Cliente cliente = clientes.get( identificadorCliente );
+        if( cliente == null )
+            throw new InformacionInconsistenteException( "No existe un cliente con ese identificador" );
+        if( cantidad <= 0 )
+            throw new InformacionInconsistenteException( "La cantidad de tiquetes debe ser positiva" );
+
+        Vuelo vuelo = getVuelo( codigoRuta, fecha );
+        if( vuelo == null )
+            throw new InformacionInconsistenteException( "No existe un vuelo de la ruta " + codigoRuta + " en la fecha " + fecha );
+
+        int tarifa = getCalculadora( vuelo ).calcularTarifa( vuelo, cliente );
+        // El total se calcula antes de vender para que un valor que no cabe en un int no deje tiquetes vendidos
+        int total = Math.multiplyExact( tarifa, cantidad );
+        BitacoraAerolinea bitacoraCambio = iniciarCambio( );
+        try
+        {
+            // Con el candado del vuelo, las sillas reservadas siguen siendo las últimas del vuelo si no se pueden asignar los códigos o registrar la venta
+            synchronized( vuelo )
+            {
+                // El vuelo se pudo haber realizado mientras se calculaba la tarifa; registrarVueloRealizado lo retira del índice con el candado del vuelo
+                if( getVuelo( codigoRuta, fecha ) != vuelo )
+                    throw new InformacionInconsistenteException( "No existe un vuelo de la ruta " + codigoRuta + " en la fecha " + fecha );
+                int primeraSilla = vuelo.reservarSillas( cantidad );
+                String[] codigos;
+                try
+                {
+                    codigos = registrarVenta( bitacoraCambio, vuelo, cliente, tarifa, cantidad );
+                }
+                catch( RuntimeException e )
+                {
+                    vuelo.liberarSillas( primeraSilla, cantidad );
+                    throw e;
+                }
+                vuelo.emitirTiquetes( cliente, tarifa, primeraSilla, codigos );
+            }
+        }
+        catch( VueloSobrevendidoException e )
+        {
+            VENTAS_RECHAZADAS.incrementar( );
+            throw e;
+        }
+        finally
+        {
+            terminarCambio( bitacoraCambio );
+        }
+        TIQUETES_VENDIDOS.sumar( cantidad );
+        LATENCIA_VENTA.registrarDesde( inicio );
+        return total;
+    }
+
+    /**
+     * Asigna los códigos de los tiquetes de una venta y, si hay bitácora, registra la venta antes de generar los tiquetes.
+     * 
+     * Se debe llamar con el candado del vuelo y después de reservar las sillas, para que la venta quede registrada en el mismo orden que los demás cambios del vuelo y
+     * para que, si no quedan códigos o la venta no se puede registrar, las sillas reservadas sean las últimas del vuelo y se puedan liberar.
+     * @param bitacoraCambio La bitácora, o null si no hay bitácora
+     * @param vuelo El vuelo
+     * @param cliente El cliente que compra los tiquetes
+     * @param tarifa La tarifa de cada tiquete
+     * @param cantidad La cantidad de tiquetes
+     * @return Los códigos de los tiquetes
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo en la bitácora. En ese caso la venta no quedó registrada.
+     * @throws IllegalStateException Se lanza esta excepción si ya no quedan códigos disponibles
+     */
+    private static String[] registrarVenta( BitacoraAerolinea bitacoraCambio, Vuelo vuelo, Cliente cliente, int tarifa, int cantidad )
+    {
+        String[] codigos = GeneradorTiquetes.asignarCodigos( cantidad );
+        if( bitacoraCambio != null )
+            bitacoraCambio.registrarVenta( vuelo, cliente, tarifa, codigos );
+        return codigos;
+    }
+
+    /**
+     * Vende los tiquetes de un lote de solicitudes.
+     * 
+     * Las solicitudes se agrupan por vuelo, de modo que cada vuelo se busca una sola vez, la tarifa se calcula una sola vez para cada categoría de cliente dentro de cada
+     * vuelo, y las sillas de todas las solicitudes de un vuelo se reservan en un solo paso. Si el vuelo no tiene sillas para todas sus solicitudes, se atienden en orden las
+     * que todavía quepan.
+     * 
+     * Cada solicitud es de todo o nada: o se venden todos sus tiquetes, o no se vende ninguno. Si no quedan códigos para los tiquetes de una solicitud, o si hay bitácora
+     * y su venta no se puede registrar, su resultado tiene el error, sus sillas se liberan y las demás solicitudes se siguen atendiendo. Si la bitácora no se puede sincronizar al final, los resultados exitosos lo indican en
+     * getErrorSincronizacion.
+     * @param solicitudes Las solicitudes de venta
+     * @return Los resultados de las solicitudes, en el mismo orden de las solicitudes
+     */
+    public List<ResultadoVenta> venderTiquetes( List<SolicitudVenta> solicitudes )
+    {
+        long inicio = Metricas.iniciar( );
+        ResultadoVenta[] resultados = new ResultadoVenta[solicitudes.size( )];
+
+        // Agrupar las solicitudes por vuelo
+        Map<String, List<Integer>> solicitudesVuelo = new LinkedHashMap<String, List<Integer>>( );
+        for( int i = 0; i < resultados.length; i++ )
+        {
+            SolicitudVenta solicitud = solicitudes.get( i );
+            String llave = solicitud.getCodigoRuta( ) + "|" + solicitud.getFecha( );
+            List<Integer> indices = solicitudesVuelo.get( llave );
+            if( indices == null )
+            {
+                indices = new ArrayList<Integer>( );
+                solicitudesVuelo.put( llave, indices );
+            }
+            indices.add( i );
+        }
+
+        BitacoraAerolinea bitacoraCambio = iniciarCambio( );
+        try
+        {
+            for( List<Integer> indices : solicitudesVuelo.values( ) )
+                venderTiquetesVuelo( bitacoraCambio, solicitudes, indices, resultados );
+        }
+        finally
+        {
+            try
+            {
+                terminarCambio( bitacoraCambio );
+            }
+            catch( UncheckedIOException e )
+            {
+                // Las ventas exitosas ya se hicieron y quedaron en la bitácora, así que no se pueden reportar como fallidas
+                for( ResultadoVenta resultado : resultados )
+                {
+                    if( resultado != null && resultado.esExitosa( ) )
+                        resultado.setErrorSincronizacion( e );
+                }
+            }
+        }
+
+        LATENCIA_VENTA_LOTE.registrarDesde( inicio );
+        return Arrays.asList( resultados );
+    }
+
+    /**
+     * Vende los tiquetes de las solicitudes de un lote que corresponden a un mismo vuelo
+     * @param bitacoraCambio La bitácora donde se registran las ventas, o null si no hay bitácora
+     * @param solicitudes Todas las solicitudes del lote
+     * @param indices Las posiciones de las solicitudes del vuelo dentro del lote
+     * @param resultados El arreglo donde deben quedar los resultados de las solicitudes
+     */
+    private void venderTiquetesVuelo( BitacoraAerolinea bitacoraCambio, List<SolicitudVenta> solicitudes, List<Integer> indices, ResultadoVenta[] resultados )
+    {
+        SolicitudVenta primera = solicitudes.get( indices.get( 0 ) );
+        Vuelo vuelo = getVuelo( primera.getCodigoRuta( ), primera.getFecha( ) );
+        if( vuelo == null )
+        {
+            InformacionInconsistenteException error = new InformacionInconsistenteException( "No existe un vuelo de la ruta " + primera.getCodigoRuta( ) + " en la fecha " + primera.getFecha( ) );
+            for( int i : indices )
+                resultados[ i ] = new ResultadoVenta( solicitudes.get( i ), error );
+            return;
+        }
+
+        // Validar las solicitudes y calcular las tarifas
+        CalculadoraTarifas calculadora = getCalculadora( vuelo );
+        int[] tarifasCategoria = new int[CalculadoraTarifas.CATEGORIAS];
+        Arrays.fill( tarifasCategoria, -1 );
+        List<Integer> validas = new ArrayList<Integer>( indices.size( ) );
+        Cliente[] compradores = new Cliente[indices.size( )];
+        int[] tarifas = new int[indices.size( )];
+        long totalSillas = 0;
+        for( int j = 0; j < indices.size( ); j++ )
+        {
+            SolicitudVenta solicitud = solicitudes.get( indices.get( j ) );
+            Cliente cliente = clientes.get( solicitud.getIdentificadorCliente( ) );
+            if( cliente == null )
+            {
+                resultados[ indices.get( j ) ] = new ResultadoVenta( solicitud, new InformacionInconsistenteException( "No existe un cliente con el identificador " + solicitud.getIdentificadorCliente( ) ) );
+                continue;
+            }
+            if( solicitud.getCantidad( ) <= 0 )
+            {
+                resultados[ indices.get( j ) ] = new ResultadoVenta( solicitud, new InformacionInconsistenteException( "La cantidad de tiquetes debe ser positiva" ) );
+                continue;
+            }
+
+            int categoria = CalculadoraTarifas.getCategoriaCliente( cliente );
+            if( categoria < 0 )
+                tarifas[ j ] = calculadora.calcularTarifa( vuelo, cliente );
+            else
+            {
+                if( tarifasCategoria[ categoria ] < 0 )
+                    tarifasCategoria[ categoria ] = calculadora.calcularTarifa( vuelo, cliente );
+                tarifas[ j ] = tarifasCategoria[ categoria ];
+            }
+            compradores[ j ] = cliente;
+            totalSillas += solicitud.getCantidad( );
+            validas.add( j );
+        }
+
+        // Las sillas se reservan y las ventas se registran con el candado del vuelo: así, si la venta de una solicitud no se puede registrar, sus sillas y las que quedan
+        // del bloque son las últimas reservadas del vuelo y se pueden liberar
+        synchronized( vuelo )
+        {
+            // El vuelo se pudo haber realizado mientras se validaban las solicitudes; registrarVueloRealizado lo retira del índice con el candado del vuelo
+            if( getVuelo( primera.getCodigoRuta( ), primera.getFecha( ) ) != vuelo )
+            {
+                InformacionInconsistenteException error = new InformacionInconsistenteException( "No existe un vuelo de la ruta " + primera.getCodigoRuta( ) + " en la fecha " + primera.getFecha( ) );
+                for( int j : validas )
+                    resultados[ indices.get( j ) ] = new ResultadoVenta( solicitudes.get( indices.get( j ) ), error );
+                return;
+            }
+
+            // Reservar las sillas de todas las solicitudes en un solo paso y, si no caben todas, solicitud por solicitud
+            int siguienteSilla = -1;
+            int finBloque = -1;
+            if( totalSillas <= vuelo.getAvion( ).getCapacidad( ) )
+            {
+                try
+                {
+                    siguienteSilla = vuelo.reservarSillas( ( int )totalSillas );
+                    finBloque = siguienteSilla + ( int )totalSillas;
+                }
+                catch( VueloSobrevendidoException e )
+                {
+                    // Se reservan las sillas de cada solicitud por separado
+                }
+            }
+
+            for( int j : validas )
+            {
+                SolicitudVenta solicitud = solicitudes.get( indices.get( j ) );
+                int cantidad = solicitud.getCantidad( );
+                int primeraSilla;
+                if( siguienteSilla >= 0 )
+                {
+                    primeraSilla = siguienteSilla;
+                    siguienteSilla += cantidad;
+                }
+                else
+                {
+                    try
+                    {
+                        primeraSilla = vuelo.reservarSillas( cantidad );
+                    }
+                    catch( VueloSobrevendidoException e )
+                    {
+                        VENTAS_RECHAZADAS.incrementar( );
+                        resultados[ indices.get( j ) ] = new ResultadoVenta( solicitud, e );
+                        continue;
+                    }
+                }
+
+                String[] codigos;
+                try
+                {
+                    codigos = registrarVenta( bitacoraCambio, vuelo, compradores[ j ], tarifas[ j ], cantidad );
+                }
+                catch( RuntimeException e )
+                {
+                    // Las solicitudes que siguen reservan sus sillas por separado
+                    vuelo.liberarSillas( primeraSilla, ( siguienteSilla >= 0 ? finBloque : primeraSilla + cantidad ) - primeraSilla );
+                    siguienteSilla = -1;
+                    resultados[ indices.get( j ) ] = new ResultadoVenta( solicitud, e );
+                    continue;
+                }
+                List<Tiquete> vendidos = vuelo.emitirTiquetes( compradores[ j ], tarifas[ j ], primeraSilla, codigos );
+                TIQUETES_VENDIDOS.sumar( cantidad );
+                resultados[ indices.get( j ) ] = new ResultadoVenta( solicitud, vendidos, ( long )tarifas[ j ] * cantidad );
+            }
+        }
+    }
+
+    /**
+     * Retorna la calculadora de tarifas que corresponde a la temporada de un vuelo: temporada baja de enero a mayo y de septiembre a noviembre, y temporada alta el resto
+     * del año
+     * @param vuelo El vuelo
+     * @return La calculadora
+     */
+    private CalculadoraTarifas getCalculadora( Vuelo vuelo )
+    {
+        int mes = vuelo.getMes( );
+        if( mes <= 5 || ( mes >= 9 && mes <= 11 ) )
+            return CalculadoraTarifasTemporadaBaja.getInstancia( );
+        return CalculadoraTarifasTemporadaAlta.getInstancia( );
+    }
+
+    /**
+     * Marca como usados todos los tiquetes de un vuelo, por ejemplo cuando termina el abordaje.
+     * 
+     * Los tiquetes del vuelo se recorren una sola vez, y cada pasajero marca de una vez todos sus tiquetes para el vuelo.
+     * @param fecha La fecha del vuelo
+     * @param codigoRuta El código de la ruta del vuelo
+     * @return La cantidad de tiquetes que se marcaron como usados. Si el vuelo no existe, retorna 0.
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo en la bitácora. Si no se pudo escribir el registro, ningún tiquete se marca como
+     *         usado.
+     */
+    public int usarTiquetesVuelo( String fecha, String codigoRuta )
+    {
+        Vuelo vuelo = getVuelo( codigoRuta, fecha );
+        if( vuelo == null )
+            return 0;
+
+        BitacoraAerolinea bitacoraCambio = iniciarCambio( );
+        try
+        {
+            if( bitacoraCambio == null )
+                return usarTiquetes( vuelo );
+            synchronized( vuelo )
+            {
+                bitacoraCambio.registrarTiquetesUsados( vuelo );
+                return usarTiquetes( vuelo );
+            }
+        }
+        finally
+        {
+            terminarCambio( bitacoraCambio );
+        }
+    }
+
+    /**
+     * Marca como usados todos los tiquetes de un vuelo
+     * @param vuelo El vuelo
+     * @return La cantidad de tiquetes que se marcaron como usados
+     */
+    private int usarTiquetes( Vuelo vuelo )
+    {
+        int usados = 0;
+        for( Cliente pasajero : getPasajeros( vuelo ) )
+            usados += pasajero.usarTiquetes( vuelo );
+        return usados;
+    }
+
+    /**
+     * Retorna los clientes que tienen tiquetes de un vuelo, sin repetirlos
+     * @param vuelo El vuelo
+     * @return Los clientes
+     */
+    private Set<Cliente> getPasajeros( Vuelo vuelo )
+    {
+        Set<Cliente> pasajeros = new LinkedHashSet<Cliente>( );
+        for( Tiquete tiquete : vuelo.getTiquetes( ) )
+            pasajeros.add( tiquete.getCliente( ) );
+        return pasajeros;
+    }
+
+    /**
+     * Registra que un cierto vuelo fue realizado. Todos los tiquetes del vuelo quedan marcados como usados.
+     * 
+     * Si la aerolínea tiene un archivo histórico, los tiquetes del vuelo se agregan al archivo y los clientes dejan de tenerlos en memoria. Antes de cambiar nada se revisa
+     * que todos los tiquetes del vuelo se puedan archivar.
+     * 
+     * Si la aerolínea tiene una bitácora, el vuelo se registra como realizado antes de cambiar nada: si el registro no se puede escribir, el vuelo queda igual. Si después
+     * falla el archivo histórico, el vuelo ya quedó realizado en la bitácora y se puede volver a llamar este método para terminar de archivar sus tiquetes.
      * @param fecha La fecha del vuelo
      * @param codigoRuta El código de la ruta que recorrió el vuelo
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo en el archivo histórico o en la bitácora
+     * @throws IllegalArgumentException Se lanza esta excepción si el archivo histórico ya tiene otro tiquete con el código de uno de los tiquetes del vuelo. En ese caso el
+     *         vuelo queda igual.
      */
-    public void registrarVueloRealizado( String fecha, String codigoRuta )
+    public synchronized void registrarVueloRealizado( String fecha, String codigoRuta )
     {
-        // TODO Implementar el método
     	Vuelo current = this.getVuelo(codigoRuta, fecha);
-    	vuelos.remove(current);
+    	if (current != null) {
+    		BitacoraAerolinea bitacoraCambio = iniciarCambio();
+    		try {
+    			synchronized (current) {
+    				if (archivoTiquetes != null)
+    					verificarArchivables(current);
+    				if (bitacoraCambio != null)
+    					bitacoraCambio.registrarVueloRealizado(current);
+    				usarTiquetes(current);
+    				if (archivoTiquetes != null)
+    					archivarTiquetes(current);
+    				desindexarVuelo(current);
+    				liberarAvion(current);
+    			}
+    		} finally {
+    			terminarCambio(bitacoraCambio);
+    		}
+    	}
+    }
+
+    /**
+     * Revisa que todos los tiquetes de un vuelo se puedan agregar al archivo histórico, sin modificarlo
+     * @param vuelo El vuelo
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas leyendo el archivo histórico
+     * @throws IllegalArgumentException Se lanza esta excepción si el archivo histórico ya tiene otro tiquete con el código de uno de los tiquetes del vuelo
+     */
+    private void verificarArchivables( Vuelo vuelo )
+    {
+        try
+        {
+            for( Tiquete tiquete : vuelo.getTiquetes( ) )
+                archivoTiquetes.verificar( tiquete );
+        }
+        catch( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Mueve al archivo histórico todos los tiquetes de un vuelo
+     * @param vuelo El vuelo
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo en el archivo histórico
+     */
+    private void archivarTiquetes( Vuelo vuelo )
+    {
+        try
+        {
+            // Al recuperar la aerolínea de una bitácora, algunos tiquetes del vuelo pueden haber quedado archivados antes de una falla: el archivo no los vuelve a agregar
+            for( Tiquete tiquete : vuelo.getTiquetes( ) )
+                archivoTiquetes.archivar( tiquete );
+            for( Cliente pasajero : getPasajeros( vuelo ) )
+                pasajero.retirarTiquetes( vuelo );
+        }
+        catch( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Libera en la agenda del avión de un vuelo el intervalo que ocupaba ese vuelo
+     * @param vuelo El vuelo
+     */
+    private void liberarAvion( Vuelo vuelo )
+    {
+        AgendaAvion agenda = agendas.get( vuelo.getAvion( ).getNombre( ) );
+        agenda.liberar( AgendaAvion.calcularInicio( vuelo ) );
     }
 
     /**
      * Calcula cuánto valen los tiquetes que ya compró un cliente dado y que todavía no ha utilizado
      * @param identificadorCliente El identificador del cliente
-     * @return La suma de lo que pagó el cliente por los tiquetes sin usar
+     * @return La suma de lo que pagó el cliente por los tiquetes sin usar, o null si no existe un cliente con el identificador dado
      */
     public String consultarSaldoPendienteCliente( String identificadorCliente )
     {
-        // TODO Implementar el método
-        return "";
+        Cliente cliente = clientes.get( identificadorCliente );
+        if( cliente == null )
+            return null;
+        return Long.toString( cliente.getSaldoPendiente( ) );
     }
 
 }
@@ -1,13 +1,14 @@
 package uniandes.dpoo.aerolinea.modelo;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
 import uniandes.dpoo.aerolinea.exceptions.AeropuertoDuplicadoException;
 
 /**
  * Esta clase encapsula la información sobre los aeropuertos e implementa algunas operaciones relacionadas con la ubicación geográfica de los aeropuertos.
  * 
- * No puede haber dos aeropuertos con el mismo código.
+ * No puede haber dos aeropuertos con el mismo código. Para obtener un aeropuerto que puede haber sido creado antes (por ejemplo, al cargar otra vez un archivo), se debe usar el
+ * método obtenerAeropuerto en lugar del constructor.
  */
 public class Aeropuerto
 {
@@ -17,8 +18,15 @@ public class Aeropuerto
 	private String nombreCiudad;
 	private double latitud;
 	private double longitud;
-	private static Set<String> codigosUtilizados = new HashSet<String>();
-	private static final int RADIO_TERRESTRE = 6371;
+	
+	/**
+	 * Los aeropuertos que ya se crearon, indexados por su código
+	 */
+	private static Map<String, Aeropuerto> aeropuertosCreados = new HashMap<String, Aeropuerto>();
+	/**
+	 * El radio de la Tierra en kilómetros
+	 */
+	static final int RADIO_TERRESTRE = 6371;
 	
 	
 	public Aeropuerto(String nombre, String codigo, String nombreCiudad, double latitud, double longitud) throws AeropuertoDuplicadoException{
@@ -28,9 +36,38 @@ public class Aeropuerto
 		this.latitud = latitud;
 		this.longitud = longitud;
 		
-		if (codigosUtilizados.contains(codigo)) {
+		synchronized (Aeropuerto.class) {
+			if (aeropuertosCreados.containsKey(codigo)) {
+				throw new AeropuertoDuplicadoException(codigo);
+			} else aeropuertosCreados.put(codigo, this);
+		}
+	}
+	
+	/**
+	 * Retorna el aeropuerto con los datos dados. Si ya se había creado un aeropuerto con el mismo código y los mismos datos, se retorna ese aeropuerto; si no, se crea uno
+	 * nuevo.
+	 * @return El aeropuerto
+	 * @throws AeropuertoDuplicadoException Se lanza esta excepción si ya existe un aeropuerto con el mismo código pero con datos diferentes
+	 */
+	public static synchronized Aeropuerto obtenerAeropuerto(String nombre, String codigo, String nombreCiudad, double latitud, double longitud) throws AeropuertoDuplicadoException {
+		Aeropuerto existente = aeropuertosCreados.get(codigo);
+		if (existente == null)
+			return new Aeropuerto(nombre, codigo, nombreCiudad, latitud, longitud);
+		
+		boolean iguales = existente.nombre.equals(nombre) && existente.nombreCiudad.equals(nombreCiudad)
+				&& Double.compare(existente.latitud, latitud) == 0 && Double.compare(existente.longitud, longitud) == 0;
+		if (!iguales)
 			throw new AeropuertoDuplicadoException(codigo);
-		} else codigosUtilizados.add(codigo);
+		return existente;
+	}
+	
+	/**
+	 * Busca un aeropuerto que ya se haya creado a partir de su código
+	 * @param codigo El código del aeropuerto
+	 * @return El aeropuerto, o null si no se ha creado ningún aeropuerto con ese código
+	 */
+	public static synchronized Aeropuerto getAeropuerto(String codigo) {
+		return aeropuertosCreados.get(codigo);
 	}
 	
     public String getNombre() {
@@ -67,12 +104,25 @@ public class Aeropuerto
      * @return La distancia en kilómetros entre los puntos
      */
     public static int calcularDistancia( Aeropuerto aeropuerto1, Aeropuerto aeropuerto2 )
+    {
+        return calcularDistancia( aeropuerto1.getLatitud( ), aeropuerto1.getLongitud( ), aeropuerto2.getLatitud( ), aeropuerto2.getLongitud( ) );
+    }
+
+    /**
+     * Calcula la distancia aproximada entre dos puntos dados por sus coordenadas, con la misma fórmula que se usa para la distancia entre dos aeropuertos
+     * @param latitud1 La latitud del primer punto, en grados
+     * @param longitud1 La longitud del primer punto, en grados
+     * @param latitud2 La latitud del segundo punto, en grados
+     * @param longitud2 La longitud del segundo punto, en grados
+     * @return La distancia en kilómetros entre los puntos
+     */
+    public static int calcularDistancia( double latitud1, double longitud1, double latitud2, double longitud2 )
     {
         // Convertir los ángulos a radianes para facilitar las operaciones trigonométricas
-        double latAeropuerto1 = Math.toRadians( aeropuerto1.getLatitud( ) );
-        double lonAeropuerto1 = Math.toRadians( aeropuerto1.getLongitud( ) );
-        double latAeropuerto2 = Math.toRadians( aeropuerto2.getLatitud( ) );
-        double lonAeropuerto2 = Math.toRadians( aeropuerto2.getLongitud( ) );
+        double latAeropuerto1 = Math.toRadians( latitud1 );
+        double lonAeropuerto1 = Math.toRadians( longitud1 );
+        double latAeropuerto2 = Math.toRadians( latitud2 );
+        double lonAeropuerto2 = Math.toRadians( longitud2 );
 
         // Calcular la distancia debido a la diferencia de latitud y de longitud
         double deltaX = ( lonAeropuerto2 - lonAeropuerto1 ) * Math.cos( ( latAeropuerto1 + latAeropuerto2 ) / 2 );
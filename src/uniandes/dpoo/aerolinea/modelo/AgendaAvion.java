@@ -0,0 +1,108 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Esta clase mantiene la agenda de un avión: los intervalos de tiempo en los que el avión ya está asignado a algún vuelo.
+ *
+ * Los intervalos se expresan en minutos absolutos (contados desde el 1 de enero de 1970) y son semiabiertos: un vuelo ocupa el avión desde el minuto de salida hasta el minuto
+ * anterior a la llegada. Como los intervalos de un mismo avión nunca se traslapan, basta con un mapa ordenado por el minuto de inicio para verificar en tiempo logarítmico
+ * si un nuevo intervalo choca con alguno de los existentes: sólo pueden chocar el intervalo inmediatamente anterior y el inmediatamente posterior.
+ */
+public class AgendaAvion
+{
+    /**
+     * La cantidad de minutos que tiene un día
+     */
+    private static final int MINUTOS_DIA = 24 * 60;
+
+    /**
+     * Un mapa con los intervalos ocupados del avión.
+     *
+     * Las llaves del mapa son los minutos de inicio de cada intervalo, mientras que los valores son los minutos de finalización (excluidos)
+     */
+    private TreeMap<Long, Long> intervalos;
+
+    /**
+     * Construye una nueva agenda sin ningún intervalo ocupado
+     */
+    public AgendaAvion( )
+    {
+        intervalos = new TreeMap<Long, Long>( );
+    }
+
+    /**
+     * Revisa si el avión está libre durante todo un intervalo
+     * @param inicio El minuto absoluto en el que empieza el intervalo
+     * @param fin El minuto absoluto en el que termina el intervalo (excluido)
+     * @return Retorna true si ningún intervalo ocupado se traslapa con el intervalo dado
+     */
+    public boolean estaLibre( long inicio, long fin )
+    {
+        Map.Entry<Long, Long> anterior = intervalos.floorEntry( inicio );
+        if( anterior != null && anterior.getValue( ) > inicio )
+            return false;
+
+        Map.Entry<Long, Long> siguiente = intervalos.higherEntry( inicio );
+        return siguiente == null || siguiente.getKey( ) >= fin;
+    }
+
+    /**
+     * Marca un intervalo como ocupado, si el avión está libre durante todo el intervalo
+     * @param inicio El minuto absoluto en el que empieza el intervalo
+     * @param fin El minuto absoluto en el que termina el intervalo (excluido)
+     * @return Retorna true si se pudo reservar el intervalo, o false si se traslapa con otro intervalo ya ocupado
+     */
+    public boolean reservar( long inicio, long fin )
+    {
+        if( !estaLibre( inicio, fin ) )
+            return false;
+        intervalos.put( inicio, fin );
+        return true;
+    }
+
+    /**
+     * Libera el intervalo ocupado que empieza en el minuto dado
+     * @param inicio El minuto absoluto en el que empieza el intervalo
+     */
+    public void liberar( long inicio )
+    {
+        intervalos.remove( inicio );
+    }
+
+    /**
+     * Retorna la cantidad de intervalos ocupados en la agenda
+     * @return
+     */
+    public int getCantidadIntervalos( )
+    {
+        return intervalos.size( );
+    }
+
+    /**
+     * Calcula el minuto absoluto en el que sale un vuelo, a partir de la fecha que el vuelo ya tiene convertida
+     * @param vuelo El vuelo
+     * @return La cantidad de minutos entre el 1 de enero de 1970 y la salida del vuelo
+     */
+    public static long calcularInicio( Vuelo vuelo )
+    {
+        return ( long )vuelo.getDiaEpoca( ) * MINUTOS_DIA + vuelo.getRuta( ).getMinutoSalida( );
+    }
+
+    /**
+     * Calcula el minuto absoluto en el que llega un vuelo, a partir del minuto en el que sale.
+     *
+     * Si la hora de llegada de la ruta es anterior o igual a la hora de salida, se asume que el vuelo llega al día siguiente.
+     * @param ruta La ruta del vuelo
+     * @param inicio El minuto absoluto en el que sale el vuelo
+     * @return El minuto absoluto en el que llega el vuelo
+     */
+    public static long calcularFin( Ruta ruta, long inicio )
+    {
+        int salida = ruta.getMinutoSalida( );
+        int llegada = ruta.getMinutoLlegada( );
+        int duracion = llegada > salida ? llegada - salida : llegada + MINUTOS_DIA - salida;
+        return inicio + duracion;
+    }
+}
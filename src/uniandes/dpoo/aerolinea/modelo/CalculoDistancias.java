@@ -0,0 +1,62 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Esta tarea calcula en paralelo las filas de una matriz de distancias, dividiendo el rango de filas en partes hasta que cada parte tenga suficientemente pocas distancias.
+ *
+ * La fila i de la matriz tiene las distancias del aeropuerto i a los aeropuertos 0 a i - 1, así que las filas tienen tamaños distintos: los rangos se dividen de forma que
+ * las dos mitades tengan más o menos la misma cantidad de distancias, no la misma cantidad de filas.
+ */
+@SuppressWarnings("serial")
+class CalculoDistancias extends RecursiveAction
+{
+    /**
+     * La cantidad de distancias a partir de la cual una parte se vuelve a dividir
+     */
+    private static final long UMBRAL = 1 << 14;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private int[] distancias;
+    private int filaInicio;
+    private int filaFin;
+
+    /**
+     * Construye una tarea para calcular un rango de filas
+     * @param latitudes Las latitudes de los aeropuertos, en la posición de su identificador
+     * @param longitudes Las longitudes de los aeropuertos, en la posición de su identificador
+     * @param distancias La matriz, donde la fila i empieza en la posición i * ( i - 1 ) / 2
+     * @param filaInicio La primera fila del rango
+     * @param filaFin La fila siguiente a la última del rango
+     */
+    public CalculoDistancias( double[] latitudes, double[] longitudes, int[] distancias, int filaInicio, int filaFin )
+    {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.distancias = distancias;
+        this.filaInicio = filaInicio;
+        this.filaFin = filaFin;
+    }
+
+    @Override
+    protected void compute( )
+    {
+        if( MatrizDistancias.inicioFila( filaFin ) - MatrizDistancias.inicioFila( filaInicio ) <= UMBRAL || filaFin - filaInicio < 2 )
+        {
+            for( int i = filaInicio; i < filaFin; i++ )
+            {
+                int inicio = ( int )MatrizDistancias.inicioFila( i );
+                for( int j = 0; j < i; j++ )
+                    distancias[ inicio + j ] = Aeropuerto.calcularDistancia( latitudes[ i ], longitudes[ i ], latitudes[ j ], longitudes[ j ] );
+            }
+        }
+        else
+        {
+            // El trabajo hasta la fila f crece como f al cuadrado, así que la mitad del trabajo queda en la raíz del promedio de los cuadrados
+            int mitad = ( int )Math.sqrt( ( ( double )filaInicio * filaInicio + ( double )filaFin * filaFin ) / 2 );
+            mitad = Math.max( filaInicio + 1, Math.min( filaFin - 1, mitad ) );
+            invokeAll( new CalculoDistancias( latitudes, longitudes, distancias, filaInicio, mitad ), new CalculoDistancias( latitudes, longitudes, distancias, mitad, filaFin ) );
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Esta clase es un índice espacial de aeropuertos, que permite encontrar los aeropuertos más cercanos a un punto y los aeropuertos que están a menos de una distancia
+ * dada, sin calcular la distancia a todos los aeropuertos.
+ *
+ * El índice es un árbol k-d sobre la latitud y la longitud: cada nodo parte los aeropuertos de su rango por la mediana de la coordenada en la que están más dispersos. El
+ * árbol se guarda de forma implícita en un arreglo ordenado, así que no hay objetos por cada nodo. Durante una búsqueda se descartan las ramas cuya caja de coordenadas
+ * está, con seguridad, más lejos que el peor resultado encontrado hasta el momento.
+ *
+ * Las distancias son las de Aeropuerto.calcularDistancia: los resultados son exactamente los mismos que se obtendrían calculando la distancia a todos los aeropuertos. Si
+ * hay empates en la distancia, los aeropuertos se ordenan por código.
+ *
+ * El índice no cambia después de construido: si se agregan aeropuertos hay que construir otro. Se puede consultar desde varios hilos al mismo tiempo.
+ */
+public class IndiceAeropuertos
+{
+    /**
+     * La cantidad máxima de aeropuertos de un rango que se revisa sin volver a partirlo
+     */
+    private static final int TAMANO_HOJA = 8;
+
+    /**
+     * El orden de los resultados: por distancia y, si hay empate, por código del aeropuerto
+     */
+    private static final Comparator<Resultado> ORDEN_RESULTADOS = new Comparator<Resultado>( )
+    {
+        @Override
+        public int compare( Resultado r1, Resultado r2 )
+        {
+            if( r1.distancia != r2.distancia )
+                return Integer.compare( r1.distancia, r2.distancia );
+            return r1.aeropuerto.getCodigo( ).compareTo( r2.aeropuerto.getCodigo( ) );
+        }
+    };
+
+    /**
+     * Un aeropuerto encontrado en una búsqueda, junto con su distancia al punto de la búsqueda
+     */
+    private static class Resultado
+    {
+        private final Aeropuerto aeropuerto;
+        private final int distancia;
+
+        private Resultado( Aeropuerto aeropuerto, int distancia )
+        {
+            this.aeropuerto = aeropuerto;
+            this.distancia = distancia;
+        }
+    }
+
+    /**
+     * Los aeropuertos, en el orden del árbol
+     */
+    private final Aeropuerto[] aeropuertos;
+
+    /**
+     * Las latitudes de los aeropuertos, en el orden del árbol
+     */
+    private final double[] latitudes;
+
+    /**
+     * Las longitudes de los aeropuertos, en el orden del árbol
+     */
+    private final double[] longitudes;
+
+    /**
+     * Para cada nodo, identificado por la posición de su aeropuerto central, indica si el nodo parte su rango por la latitud (true) o por la longitud (false)
+     */
+    private final boolean[] porLatitud;
+
+    /**
+     * Los límites de las coordenadas de todos los aeropuertos: latitud mínima, latitud máxima, longitud mínima y longitud máxima
+     */
+    private final double[] limites;
+
+    /**
+     * Construye el índice sobre un conjunto de aeropuertos
+     * @param aeropuertos Los aeropuertos. Si un aeropuerto aparece varias veces, se indexa una sola vez.
+     */
+    public IndiceAeropuertos( Collection<Aeropuerto> aeropuertos )
+    {
+        this.aeropuertos = aeropuertos.stream( ).distinct( ).toArray( Aeropuerto[]::new );
+        int n = this.aeropuertos.length;
+        latitudes = new double[n];
+        longitudes = new double[n];
+        porLatitud = new boolean[n];
+        limites = new double[]{ Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE };
+
+        construir( 0, n );
+        for( int i = 0; i < n; i++ )
+        {
+            latitudes[ i ] = this.aeropuertos[ i ].getLatitud( );
+            longitudes[ i ] = this.aeropuertos[ i ].getLongitud( );
+            limites[ 0 ] = Math.min( limites[ 0 ], latitudes[ i ] );
+            limites[ 1 ] = Math.max( limites[ 1 ], latitudes[ i ] );
+            limites[ 2 ] = Math.min( limites[ 2 ], longitudes[ i ] );
+            limites[ 3 ] = Math.max( limites[ 3 ], longitudes[ i ] );
+        }
+    }
+
+    /**
+     * Retorna la cantidad de aeropuertos del índice
+     * @return
+     */
+    public int getCantidad( )
+    {
+        return aeropuertos.length;
+    }
+
+    /**
+     * Busca los aeropuertos más cercanos a un punto
+     * @param latitud La latitud del punto, en grados
+     * @param longitud La longitud del punto, en grados
+     * @param cantidad La cantidad máxima de aeropuertos que se deben retornar
+     * @return Los aeropuertos más cercanos, ordenados del más cercano al más lejano
+     */
+    public List<Aeropuerto> buscarCercanos( double latitud, double longitud, int cantidad )
+    {
+        return buscarCercanos( latitud, longitud, cantidad, null );
+    }
+
+    /**
+     * Busca los aeropuertos más cercanos a un aeropuerto, por ejemplo para escoger aeropuertos alternos. El aeropuerto mismo no hace parte del resultado.
+     * @param aeropuerto El aeropuerto
+     * @param cantidad La cantidad máxima de aeropuertos que se deben retornar
+     * @return Los aeropuertos más cercanos, ordenados del más cercano al más lejano
+     */
+    public List<Aeropuerto> buscarCercanos( Aeropuerto aeropuerto, int cantidad )
+    {
+        return buscarCercanos( aeropuerto.getLatitud( ), aeropuerto.getLongitud( ), cantidad, aeropuerto );
+    }
+
+    /**
+     * Busca los aeropuertos que están a una distancia dada de un punto o menos
+     * @param latitud La latitud del punto, en grados
+     * @param longitud La longitud del punto, en grados
+     * @param radio La distancia máxima, en kilómetros
+     * @return Los aeropuertos encontrados, ordenados del más cercano al más lejano
+     */
+    public List<Aeropuerto> buscarEnRadio( double latitud, double longitud, int radio )
+    {
+        return buscarEnRadio( latitud, longitud, radio, null );
+    }
+
+    /**
+     * Busca los aeropuertos que están a una distancia dada de un aeropuerto o menos. El aeropuerto mismo no hace parte del resultado.
+     * @param aeropuerto El aeropuerto
+     * @param radio La distancia máxima, en kilómetros
+     * @return Los aeropuertos encontrados, ordenados del más cercano al más lejano
+     */
+    public List<Aeropuerto> buscarEnRadio( Aeropuerto aeropuerto, int radio )
+    {
+        return buscarEnRadio( aeropuerto.getLatitud( ), aeropuerto.getLongitud( ), radio, aeropuerto );
+    }
+
+    // ************************************************************************************
+    //
+    // Construcción y recorrido del árbol
+    //
+    // ************************************************************************************
+
+    /**
+     * Organiza como un árbol los aeropuertos de un rango: el aeropuerto de la mitad del rango queda en la mediana de la coordenada más dispersa, los de la izquierda tienen
+     * un valor menor o igual en esa coordenada y los de la derecha uno mayor o igual
+     * @param inicio La primera posición del rango
+     * @param fin La posición siguiente a la última del rango
+     */
+    private void construir( int inicio, int fin )
+    {
+        if( fin - inicio <= TAMANO_HOJA )
+            return;
+
+        double minLatitud = Double.MAX_VALUE, maxLatitud = -Double.MAX_VALUE, minLongitud = Double.MAX_VALUE, maxLongitud = -Double.MAX_VALUE;
+        for( int i = inicio; i < fin; i++ )
+        {
+            minLatitud = Math.min( minLatitud, aeropuertos[ i ].getLatitud( ) );
+            maxLatitud = Math.max( maxLatitud, aeropuertos[ i ].getLatitud( ) );
+            minLongitud = Math.min( minLongitud, aeropuertos[ i ].getLongitud( ) );
+            maxLongitud = Math.max( maxLongitud, aeropuertos[ i ].getLongitud( ) );
+        }
+        boolean latitud = maxLatitud - minLatitud >= maxLongitud - minLongitud;
+
+        int mitad = ( inicio + fin ) >>> 1;
+        Comparator<Aeropuerto> orden = latitud ? Comparator.comparingDouble( Aeropuerto::getLatitud ) : Comparator.comparingDouble( Aeropuerto::getLongitud );
+        Arrays.sort( aeropuertos, inicio, fin, orden );
+        porLatitud[ mitad ] = latitud;
+
+        construir( inicio, mitad );
+        construir( mitad + 1, fin );
+    }
+
+    /**
+     * Busca los aeropuertos más cercanos a un punto, sin incluir un aeropuerto dado
+     */
+    private List<Aeropuerto> buscarCercanos( double latitud, double longitud, int cantidad, Aeropuerto excluido )
+    {
+        // Los mejores resultados hasta el momento, con el peor de ellos en la cabeza
+        PriorityQueue<Resultado> mejores = new PriorityQueue<Resultado>( Math.max( 1, cantidad ), ORDEN_RESULTADOS.reversed( ) );
+        if( cantidad > 0 )
+            buscarCercanos( 0, aeropuertos.length, limites.clone( ), latitud, longitud, cantidad, excluido, mejores );
+
+        List<Resultado> ordenados = new ArrayList<Resultado>( mejores );
+        ordenados.sort( ORDEN_RESULTADOS );
+        return extraerAeropuertos( ordenados );
+    }
+
+    /**
+     * Revisa un rango del árbol en busca de aeropuertos más cercanos que los que ya se encontraron
+     * @param caja Los límites de las coordenadas del rango. Se modifican durante la búsqueda, pero quedan con sus valores originales al terminar.
+     */
+    private void buscarCercanos( int inicio, int fin, double[] caja, double latitud, double longitud, int cantidad, Aeropuerto excluido, PriorityQueue<Resultado> mejores )
+    {
+        if( inicio >= fin )
+            return;
+        if( mejores.size( ) == cantidad && Math.round( calcularCotaInferior( caja, latitud, longitud ) ) > mejores.peek( ).distancia )
+            return;
+
+        if( fin - inicio <= TAMANO_HOJA )
+        {
+            for( int i = inicio; i < fin; i++ )
+                considerar( i, latitud, longitud, cantidad, excluido, mejores );
+            return;
+        }
+
+        int mitad = ( inicio + fin ) >>> 1;
+        considerar( mitad, latitud, longitud, cantidad, excluido, mejores );
+
+        // Primero se revisa el lado donde está el punto, para encontrar pronto resultados buenos y descartar más ramas del otro lado
+        int indiceMinimo = porLatitud[ mitad ] ? 0 : 2;
+        double corte = porLatitud[ mitad ] ? latitudes[ mitad ] : longitudes[ mitad ];
+        double valor = porLatitud[ mitad ] ? latitud : longitud;
+        if( valor < corte )
+        {
+            buscarIzquierda( inicio, mitad, caja, indiceMinimo, corte, latitud, longitud, cantidad, excluido, mejores );
+            buscarDerecha( mitad + 1, fin, caja, indiceMinimo, corte, latitud, longitud, cantidad, excluido, mejores );
+        }
+        else
+        {
+            buscarDerecha( mitad + 1, fin, caja, indiceMinimo, corte, latitud, longitud, cantidad, excluido, mejores );
+            buscarIzquierda( inicio, mitad, caja, indiceMinimo, corte, latitud, longitud, cantidad, excluido, mejores );
+        }
+    }
+
+    /**
+     * Revisa el lado izquierdo de un nodo, cuya caja tiene como máximo el valor de corte en la coordenada del nodo
+     */
+    private void buscarIzquierda( int inicio, int fin, double[] caja, int indiceMinimo, double corte, double latitud, double longitud, int cantidad, Aeropuerto excluido,
+            PriorityQueue<Resultado> mejores )
+    {
+        double anterior = caja[ indiceMinimo + 1 ];
+        caja[ indiceMinimo + 1 ] = corte;
+        buscarCercanos( inicio, fin, caja, latitud, longitud, cantidad, excluido, mejores );
+        caja[ indiceMinimo + 1 ] = anterior;
+    }
+
+    /**
+     * Revisa el lado derecho de un nodo, cuya caja tiene como mínimo el valor de corte en la coordenada del nodo
+     */
+    private void buscarDerecha( int inicio, int fin, double[] caja, int indiceMinimo, double corte, double latitud, double longitud, int cantidad, Aeropuerto excluido,
+            PriorityQueue<Resultado> mejores )
+    {
+        double anterior = caja[ indiceMinimo ];
+        caja[ indiceMinimo ] = corte;
+        buscarCercanos( inicio, fin, caja, latitud, longitud, cantidad, excluido, mejores );
+        caja[ indiceMinimo ] = anterior;
+    }
+
+    /**
+     * Agrega un aeropuerto a los mejores resultados si está más cerca que el peor de ellos
+     */
+    private void considerar( int posicion, double latitud, double longitud, int cantidad, Aeropuerto excluido, PriorityQueue<Resultado> mejores )
+    {
+        if( aeropuertos[ posicion ] == excluido )
+            return;
+        Resultado resultado = new Resultado( aeropuertos[ posicion ], Aeropuerto.calcularDistancia( latitud, longitud, latitudes[ posicion ], longitudes[ posicion ] ) );
+        if( mejores.size( ) < cantidad )
+            mejores.add( resultado );
+        else if( ORDEN_RESULTADOS.compare( resultado, mejores.peek( ) ) < 0 )
+        {
+            mejores.poll( );
+            mejores.add( resultado );
+        }
+    }
+
+    /**
+     * Busca los aeropuertos que están a una distancia dada de un punto o menos, sin incluir un aeropuerto dado
+     */
+    private List<Aeropuerto> buscarEnRadio( double latitud, double longitud, int radio, Aeropuerto excluido )
+    {
+        List<Resultado> encontrados = new ArrayList<Resultado>( );
+        buscarEnRadio( 0, aeropuertos.length, limites.clone( ), latitud, longitud, radio, excluido, encontrados );
+        encontrados.sort( ORDEN_RESULTADOS );
+        return extraerAeropuertos( encontrados );
+    }
+
+    /**
+     * Revisa un rango del árbol en busca de aeropuertos que estén dentro del radio
+     * @param caja Los límites de las coordenadas del rango. Se modifican durante la búsqueda, pero quedan con sus valores originales al terminar.
+     */
+    private void buscarEnRadio( int inicio, int fin, double[] caja, double latitud, double longitud, int radio, Aeropuerto excluido, List<Resultado> encontrados )
+    {
+        if( inicio >= fin || Math.round( calcularCotaInferior( caja, latitud, longitud ) ) > radio )
+            return;
+
+        if( fin - inicio <= TAMANO_HOJA )
+        {
+            for( int i = inicio; i < fin; i++ )
+                agregarSiEstaEnRadio( i, latitud, longitud, radio, excluido, encontrados );
+            return;
+        }
+
+        int mitad = ( inicio + fin ) >>> 1;
+        agregarSiEstaEnRadio( mitad, latitud, longitud, radio, excluido, encontrados );
+
+        int indiceMinimo = porLatitud[ mitad ] ? 0 : 2;
+        double corte = porLatitud[ mitad ] ? latitudes[ mitad ] : longitudes[ mitad ];
+
+        double anterior = caja[ indiceMinimo + 1 ];
+        caja[ indiceMinimo + 1 ] = corte;
+        buscarEnRadio( inicio, mitad, caja, latitud, longitud, radio, excluido, encontrados );
+        caja[ indiceMinimo + 1 ] = anterior;
+
+        anterior = caja[ indiceMinimo ];
+        caja[ indiceMinimo ] = corte;
+        buscarEnRadio( mitad + 1, fin, caja, latitud, longitud, radio, excluido, encontrados );
+        caja[ indiceMinimo ] = anterior;
+    }
+
+    /**
+     * Agrega un aeropuerto a los resultados si está dentro del radio
+     */
+    private void agregarSiEstaEnRadio( int posicion, double latitud, double longitud, int radio, Aeropuerto excluido, List<Resultado> encontrados )
+    {
+        if( aeropuertos[ posicion ] == excluido )
+            return;
+        int distancia = Aeropuerto.calcularDistancia( latitud, longitud, latitudes[ posicion ], longitudes[ posicion ] );
+        if( distancia <= radio )
+            encontrados.add( new Resultado( aeropuertos[ posicion ], distancia ) );
+    }
+
+    /**
+     * Calcula una cota inferior de la distancia entre un punto y cualquier punto de una caja de coordenadas, con la fórmula de Aeropuerto.calcularDistancia.
+     *
+     * La fórmula multiplica la diferencia de longitud por el coseno de la latitud promedio de los dos puntos. El coseno más pequeño se obtiene con la latitud de la caja
+     * que aleja más el promedio del ecuador, y esa latitud siempre es uno de los bordes de la caja.
+     * @param caja Los límites de la caja: latitud mínima, latitud máxima, longitud mínima y longitud máxima
+     * @param latitud La latitud del punto, en grados
+     * @param longitud La longitud del punto, en grados
+     * @return La cota inferior, en kilómetros, sin redondear
+     */
+    private static double calcularCotaInferior( double[] caja, double latitud, double longitud )
+    {
+        double deltaLatitud = Math.max( 0, Math.max( caja[ 0 ] - latitud, latitud - caja[ 1 ] ) );
+        double deltaLongitud = Math.max( 0, Math.max( caja[ 2 ] - longitud, longitud - caja[ 3 ] ) );
+
+        double promedioExtremo = Math.max( Math.abs( latitud + caja[ 0 ] ), Math.abs( latitud + caja[ 1 ] ) ) / 2;
+        double coseno = Math.cos( Math.toRadians( Math.min( promedioExtremo, 90 ) ) );
+
+        double deltaX = Math.toRadians( deltaLongitud ) * coseno;
+        double deltaY = Math.toRadians( deltaLatitud );
+
+        // Se resta un margen pequeño para que los errores de redondeo nunca hagan que la cota supere la distancia real
+        return Math.max( 0, Math.sqrt( deltaX * deltaX + deltaY * deltaY ) * Aeropuerto.RADIO_TERRESTRE - 1e-6 );
+    }
+
+    /**
+     * Retorna los aeropuertos de una lista de resultados, en el mismo orden
+     */
+    private static List<Aeropuerto> extraerAeropuertos( List<Resultado> resultados )
+    {
+        List<Aeropuerto> lista = new ArrayList<Aeropuerto>( resultados.size( ) );
+        for( Resultado resultado : resultados )
+            lista.add( resultado.aeropuerto );
+        return lista;
+    }
+}
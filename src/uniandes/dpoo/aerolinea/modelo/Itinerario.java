@@ -0,0 +1,113 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Esta clase representa un itinerario: una secuencia de vuelos que lleva de un aeropuerto a otro, donde cada vuelo sale del aeropuerto al que llega el anterior después
+ * del tiempo mínimo de conexión.
+ *
+ * Los tiempos de un itinerario son minutos absolutos, contados desde la medianoche del 1 de enero de 1970, como en AgendaAvion.
+ */
+public class Itinerario
+{
+    /**
+     * Los vuelos del itinerario, en el orden en que se toman
+     */
+    private final List<Vuelo> vuelos;
+
+    /**
+     * El minuto absoluto en el que sale el primer vuelo
+     */
+    private final long salida;
+
+    /**
+     * El minuto absoluto en el que llega el último vuelo
+     */
+    private final long llegada;
+
+    /**
+     * Construye un itinerario
+     * @param vuelos Los vuelos del itinerario, en el orden en que se toman
+     * @param salida El minuto absoluto en el que sale el primer vuelo
+     * @param llegada El minuto absoluto en el que llega el último vuelo
+     */
+    Itinerario( List<Vuelo> vuelos, long salida, long llegada )
+    {
+        this.vuelos = Collections.unmodifiableList( vuelos );
+        this.salida = salida;
+        this.llegada = llegada;
+    }
+
+    /**
+     * Retorna los vuelos del itinerario
+     * @return Una lista que no se puede modificar, con los vuelos en el orden en que se toman
+     */
+    public List<Vuelo> getVuelos( )
+    {
+        return vuelos;
+    }
+
+    /**
+     * Retorna la cantidad de vuelos del itinerario
+     * @return
+     */
+    public int getCantidadTramos( )
+    {
+        return vuelos.size( );
+    }
+
+    public Aeropuerto getOrigen( )
+    {
+        return vuelos.get( 0 ).getRuta( ).getOrigen( );
+    }
+
+    public Aeropuerto getDestino( )
+    {
+        return vuelos.get( vuelos.size( ) - 1 ).getRuta( ).getDestino( );
+    }
+
+    public long getSalida( )
+    {
+        return salida;
+    }
+
+    public long getLlegada( )
+    {
+        return llegada;
+    }
+
+    /**
+     * Retorna la duración total del itinerario, incluyendo las esperas en las conexiones
+     * @return La duración en minutos
+     */
+    public long getDuracion( )
+    {
+        return llegada - salida;
+    }
+
+    /**
+     * Retorna la distancia total que se recorre en el itinerario
+     * @return La suma de las distancias de las rutas de los vuelos, en kilómetros
+     */
+    public int getDistancia( )
+    {
+        int distancia = 0;
+        for( Vuelo vuelo : vuelos )
+            distancia += vuelo.getRuta( ).getDistancia( );
+        return distancia;
+    }
+
+    @Override
+    public String toString( )
+    {
+        StringBuilder texto = new StringBuilder( );
+        for( Vuelo vuelo : vuelos )
+        {
+            if( texto.length( ) > 0 )
+                texto.append( " -> " );
+            texto.append( vuelo.getRuta( ).getCodigoRuta( ) ).append( ' ' ).append( vuelo.getFecha( ) );
+        }
+        return texto.toString( );
+    }
+}
@@ -0,0 +1,358 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import uniandes.dpoo.aerolinea.exceptions.AeropuertoDuplicadoException;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+
+/**
+ * Esta clase es una matriz con las distancias entre todas las parejas de un conjunto de aeropuertos, calculadas con Aeropuerto.calcularDistancia, para que consultar una
+ * distancia no requiera funciones trigonométricas.
+ *
+ * Cada aeropuerto recibe un identificador consecutivo cuando se agrega a la matriz. Como la distancia es simétrica, sólo se guarda la mitad de la matriz, en un arreglo de
+ * enteros: la fila i tiene las distancias del aeropuerto i a los aeropuertos 0 a i - 1 y empieza en la posición i * ( i - 1 ) / 2. Así, agregar aeropuertos sólo agrega
+ * filas al final del arreglo y no cambia las distancias que ya estaban calculadas. Las filas nuevas se calculan en paralelo con un ForkJoinPool.
+ *
+ * La matriz se puede guardar en un archivo y abrirse después mapeada en memoria, sin leerla completa. Una matriz abierta de un archivo no lo modifica: si se le agregan
+ * aeropuertos, sus distancias se copian a memoria.
+ *
+ * Se puede consultar desde varios hilos al mismo tiempo, incluso mientras se agregan aeropuertos.
+ */
+public class MatrizDistancias
+{
+    /**
+     * La cantidad máxima de aeropuertos de una matriz, para que la mitad de la matriz quepa en un arreglo y en un archivo mapeado
+     */
+    public static final int MAXIMO_AEROPUERTOS = 32768;
+
+    /**
+     * El número mágico con el que empieza el archivo de una matriz
+     */
+    private static final int MAGICO = 0x44504F4D;
+
+    /**
+     * La versión actual del formato del archivo
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * El tamaño en bytes del encabezado del archivo: el número mágico, la versión, la cantidad de aeropuertos y la posición donde empiezan las distancias
+     */
+    private static final int TAMANO_ENCABEZADO = 20;
+
+    /**
+     * Los datos de la matriz en un momento dado. Cuando se agregan aeropuertos se publica un estado nuevo, así que quien lee un estado siempre lo ve completo.
+     */
+    private static class Estado
+    {
+        /**
+         * Los aeropuertos de la matriz, en la posición de su identificador. El arreglo puede tener posiciones de más al final.
+         */
+        private final Aeropuerto[] aeropuertos;
+
+        /**
+         * La cantidad de aeropuertos de la matriz
+         */
+        private final int cantidad;
+
+        /**
+         * La mitad de la matriz, si está en memoria. El arreglo puede tener espacio para más filas.
+         */
+        private final int[] distancias;
+
+        /**
+         * La mitad de la matriz, si está mapeada de un archivo
+         */
+        private final IntBuffer mapeadas;
+
+        private Estado( Aeropuerto[] aeropuertos, int cantidad, int[] distancias, IntBuffer mapeadas )
+        {
+            this.aeropuertos = aeropuertos;
+            this.cantidad = cantidad;
+            this.distancias = distancias;
+            this.mapeadas = mapeadas;
+        }
+    }
+
+    /**
+     * Los identificadores de los aeropuertos de la matriz
+     */
+    private final Map<Aeropuerto, Integer> identificadores;
+
+    /**
+     * El estado actual de la matriz
+     */
+    private volatile Estado estado;
+
+    /**
+     * Construye la matriz de distancias de un conjunto de aeropuertos
+     * @param aeropuertos Los aeropuertos. Los identificadores se asignan en el orden de la colección.
+     * @throws IllegalStateException Se lanza esta excepción si hay más de MAXIMO_AEROPUERTOS aeropuertos
+     */
+    public MatrizDistancias( Collection<Aeropuerto> aeropuertos )
+    {
+        identificadores = new ConcurrentHashMap<Aeropuerto, Integer>( );
+        estado = new Estado( new Aeropuerto[0], 0, new int[0], null );
+        agregarAeropuertos( aeropuertos );
+    }
+
+    /**
+     * Construye una matriz a partir de un estado leído de un archivo
+     */
+    private MatrizDistancias( Estado estado )
+    {
+        identificadores = new ConcurrentHashMap<Aeropuerto, Integer>( );
+        for( int i = 0; i < estado.cantidad; i++ )
+            identificadores.put( estado.aeropuertos[ i ], i );
+        this.estado = estado;
+    }
+
+    /**
+     * Retorna la cantidad de aeropuertos de la matriz
+     * @return
+     */
+    public int getCantidad( )
+    {
+        return estado.cantidad;
+    }
+
+    /**
+     * Retorna el identificador de un aeropuerto dentro de la matriz
+     * @param aeropuerto El aeropuerto
+     * @return El identificador, o -1 si el aeropuerto no está en la matriz
+     */
+    public int getIdentificador( Aeropuerto aeropuerto )
+    {
+        Integer identificador = identificadores.get( aeropuerto );
+        return identificador == null ? -1 : identificador;
+    }
+
+    /**
+     * Retorna el aeropuerto que tiene un identificador
+     * @param identificador El identificador
+     * @return El aeropuerto
+     */
+    public Aeropuerto getAeropuerto( int identificador )
+    {
+        Estado actual = estado;
+        if( identificador < 0 || identificador >= actual.cantidad )
+            throw new IndexOutOfBoundsException( "No hay ningún aeropuerto con el identificador " + identificador );
+        return actual.aeropuertos[ identificador ];
+    }
+
+    /**
+     * Retorna la distancia entre dos aeropuertos a partir de sus identificadores
+     * @param identificador1 El identificador del primer aeropuerto
+     * @param identificador2 El identificador del segundo aeropuerto
+     * @return La distancia en kilómetros, igual a la que calcula Aeropuerto.calcularDistancia
+     */
+    public int getDistancia( int identificador1, int identificador2 )
+    {
+        Estado actual = estado;
+        if( identificador1 < 0 || identificador2 < 0 || identificador1 >= actual.cantidad || identificador2 >= actual.cantidad )
+            throw new IndexOutOfBoundsException( "No hay ningún aeropuerto con el identificador " + Math.max( identificador1, identificador2 ) );
+        if( identificador1 == identificador2 )
+            return 0;
+
+        int fila = Math.max( identificador1, identificador2 );
+        int posicion = ( int )inicioFila( fila ) + Math.min( identificador1, identificador2 );
+        return actual.distancias != null ? actual.distancias[ posicion ] : actual.mapeadas.get( posicion );
+    }
+
+    /**
+     * Retorna la distancia entre dos aeropuertos. Si alguno de los aeropuertos no está en la matriz, la distancia se calcula directamente.
+     * @param aeropuerto1 El primer aeropuerto
+     * @param aeropuerto2 El segundo aeropuerto
+     * @return La distancia en kilómetros, igual a la que calcula Aeropuerto.calcularDistancia
+     */
+    public int getDistancia( Aeropuerto aeropuerto1, Aeropuerto aeropuerto2 )
+    {
+        Integer identificador1 = identificadores.get( aeropuerto1 );
+        Integer identificador2 = identificadores.get( aeropuerto2 );
+        if( identificador1 == null || identificador2 == null )
+            return Aeropuerto.calcularDistancia( aeropuerto1, aeropuerto2 );
+        return getDistancia( identificador1, identificador2 );
+    }
+
+    /**
+     * Agrega aeropuertos a la matriz. Sólo se calculan las distancias de los aeropuertos nuevos: las filas que ya estaban no se vuelven a calcular.
+     * @param aeropuertos Los aeropuertos. Los que ya estaban en la matriz se ignoran.
+     * @return La cantidad de aeropuertos que se agregaron
+     * @throws IllegalStateException Se lanza esta excepción si la matriz quedaría con más de MAXIMO_AEROPUERTOS aeropuertos
+     */
+    public synchronized int agregarAeropuertos( Collection<Aeropuerto> aeropuertos )
+    {
+        Estado actual = estado;
+        Set<Aeropuerto> conjuntoNuevos = new LinkedHashSet<Aeropuerto>( );
+        for( Aeropuerto aeropuerto : aeropuertos )
+        {
+            if( !identificadores.containsKey( aeropuerto ) )
+                conjuntoNuevos.add( aeropuerto );
+        }
+        List<Aeropuerto> nuevos = new ArrayList<Aeropuerto>( conjuntoNuevos );
+        if( nuevos.isEmpty( ) )
+            return 0;
+
+        int cantidad = actual.cantidad + nuevos.size( );
+        if( cantidad > MAXIMO_AEROPUERTOS )
+            throw new IllegalStateException( "La matriz de distancias no puede tener más de " + MAXIMO_AEROPUERTOS + " aeropuertos" );
+
+        // Si no hay espacio, se reserva espacio de más para que agregar aeropuertos de a uno no copie la matriz cada vez
+        Aeropuerto[] lista = actual.aeropuertos;
+        int[] distancias = actual.distancias;
+        if( cantidad > lista.length || distancias == null )
+        {
+            int capacidad = Math.min( MAXIMO_AEROPUERTOS, Math.max( cantidad, lista.length + lista.length / 2 ) );
+            lista = Arrays.copyOf( lista, capacidad );
+            distancias = new int[( int )inicioFila( capacidad )];
+            if( actual.distancias != null )
+                System.arraycopy( actual.distancias, 0, distancias, 0, ( int )inicioFila( actual.cantidad ) );
+            else
+                actual.mapeadas.duplicate( ).position( 0 ).get( distancias, 0, ( int )inicioFila( actual.cantidad ) );
+        }
+        for( int i = 0; i < nuevos.size( ); i++ )
+            lista[ actual.cantidad + i ] = nuevos.get( i );
+
+        double[] latitudes = new double[cantidad];
+        double[] longitudes = new double[cantidad];
+        for( int i = 0; i < cantidad; i++ )
+        {
+            latitudes[ i ] = lista[ i ].getLatitud( );
+            longitudes[ i ] = lista[ i ].getLongitud( );
+        }
+        ForkJoinPool.commonPool( ).invoke( new CalculoDistancias( latitudes, longitudes, distancias, actual.cantidad, cantidad ) );
+
+        // Los lectores sólo ven los aeropuertos nuevos cuando su fila ya está calculada
+        estado = new Estado( lista, cantidad, distancias, null );
+        for( int i = actual.cantidad; i < cantidad; i++ )
+            identificadores.put( lista[ i ], i );
+        return nuevos.size( );
+    }
+
+    /**
+     * Guarda la matriz en un archivo, para abrirla después con el método abrir
+     * @param archivo La ruta del archivo. Si ya existe, se reemplaza.
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public void guardar( String archivo ) throws IOException
+    {
+        Estado actual = estado;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( );
+        DataOutputStream salida = new DataOutputStream( bytes );
+        for( int i = 0; i < actual.cantidad; i++ )
+        {
+            Aeropuerto aeropuerto = actual.aeropuertos[ i ];
+            salida.writeUTF( aeropuerto.getCodigo( ) );
+            salida.writeUTF( aeropuerto.getNombre( ) );
+            salida.writeUTF( aeropuerto.getNombreCiudad( ) );
+            salida.writeDouble( aeropuerto.getLatitud( ) );
+            salida.writeDouble( aeropuerto.getLongitud( ) );
+        }
+        salida.flush( );
+
+        // Las distancias empiezan en una posición múltiplo de 4, para que se puedan leer como enteros
+        long inicioDistancias = ( TAMANO_ENCABEZADO + bytes.size( ) + 3 ) & ~3L;
+        int cantidadDistancias = ( int )inicioFila( actual.cantidad );
+
+        try( FileChannel canal = FileChannel.open( Paths.get( archivo ), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE ) )
+        {
+            ByteBuffer encabezado = ByteBuffer.allocate( TAMANO_ENCABEZADO );
+            encabezado.putInt( MAGICO ).putInt( VERSION ).putInt( actual.cantidad ).putLong( inicioDistancias ).flip( );
+            canal.write( encabezado, 0 );
+            canal.write( ByteBuffer.wrap( bytes.toByteArray( ) ), TAMANO_ENCABEZADO );
+
+            MappedByteBuffer mapa = canal.map( MapMode.READ_WRITE, inicioDistancias, 4L * cantidadDistancias );
+            if( actual.distancias != null )
+                mapa.asIntBuffer( ).put( actual.distancias, 0, cantidadDistancias );
+            else
+                mapa.asIntBuffer( ).put( actual.mapeadas.duplicate( ).position( 0 ).limit( cantidadDistancias ) );
+            mapa.force( );
+        }
+    }
+
+    /**
+     * Abre una matriz guardada en un archivo. Las distancias no se leen: se consultan directamente del archivo mapeado en memoria.
+     *
+     * Los aeropuertos del archivo se obtienen con Aeropuerto.obtenerAeropuerto, así que se crean si todavía no existían.
+     * @param archivo La ruta del archivo
+     * @return La matriz
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo o si no tiene el formato esperado
+     * @throws InformacionInconsistenteException Se lanza esta excepción si un aeropuerto del archivo ya existe con datos distintos, es decir, si la matriz no corresponde a
+     *         los aeropuertos actuales
+     */
+    public static MatrizDistancias abrir( String archivo ) throws IOException, InformacionInconsistenteException
+    {
+        try( FileChannel canal = FileChannel.open( Paths.get( archivo ), StandardOpenOption.READ ) )
+        {
+            ByteBuffer encabezado = ByteBuffer.allocate( TAMANO_ENCABEZADO );
+            if( canal.read( encabezado, 0 ) != TAMANO_ENCABEZADO )
+                throw new IOException( "El archivo " + archivo + " no es una matriz de distancias válida" );
+            encabezado.flip( );
+            int magico = encabezado.getInt( );
+            int version = encabezado.getInt( );
+            int cantidad = encabezado.getInt( );
+            long inicioDistancias = encabezado.getLong( );
+            long cantidadDistancias = inicioFila( cantidad );
+            if( magico != MAGICO || version != VERSION || cantidad < 0 || cantidad > MAXIMO_AEROPUERTOS || inicioDistancias < TAMANO_ENCABEZADO
+                    || canal.size( ) < inicioDistancias + 4 * cantidadDistancias )
+                throw new IOException( "El archivo " + archivo + " no es una matriz de distancias válida" );
+
+            ByteBuffer datosAeropuertos = ByteBuffer.allocate( ( int )( inicioDistancias - TAMANO_ENCABEZADO ) );
+            canal.read( datosAeropuertos, TAMANO_ENCABEZADO );
+            DataInputStream entrada = new DataInputStream( new ByteArrayInputStream( datosAeropuertos.array( ) ) );
+            Aeropuerto[] aeropuertos = new Aeropuerto[cantidad];
+            for( int i = 0; i < cantidad; i++ )
+            {
+                String codigo = entrada.readUTF( );
+                String nombre = entrada.readUTF( );
+                String ciudad = entrada.readUTF( );
+                double latitud = entrada.readDouble( );
+                double longitud = entrada.readDouble( );
+                try
+                {
+                    aeropuertos[ i ] = Aeropuerto.obtenerAeropuerto( nombre, codigo, ciudad, latitud, longitud );
+                }
+                catch( AeropuertoDuplicadoException e )
+                {
+                    throw new InformacionInconsistenteException( "El aeropuerto " + codigo + " de la matriz de distancias no coincide con el aeropuerto existente" );
+                }
+            }
+
+            // El mapeo se mantiene válido después de cerrar el canal
+            IntBuffer mapeadas = canal.map( MapMode.READ_ONLY, inicioDistancias, 4 * cantidadDistancias ).asIntBuffer( );
+            return new MatrizDistancias( new Estado( aeropuertos, cantidad, null, mapeadas ) );
+        }
+    }
+
+    /**
+     * Calcula la posición en la que empieza una fila de la mitad de la matriz, que también es la cantidad de distancias de las filas anteriores
+     * @param fila La fila
+     * @return La posición
+     */
+    static long inicioFila( int fila )
+    {
+        return ( long )fila * ( fila - 1 ) / 2;
+    }
+}
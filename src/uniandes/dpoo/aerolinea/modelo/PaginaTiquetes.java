@@ -0,0 +1,53 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.util.Collections;
+import java.util.List;
+
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase representa una página de los tiquetes de la aerolínea, obtenida con Aerolinea.getPaginaTiquetes, junto con el cursor para pedir la página siguiente.
+ *
+ * Los tiquetes se recorren por ruta (en orden de código), por fecha y por silla, así que el cursor sigue siendo válido aunque entre dos páginas se vendan tiquetes o se
+ * programen vuelos nuevos: cada tiquete se entrega a lo sumo una vez.
+ */
+public class PaginaTiquetes
+{
+    private List<Tiquete> tiquetes;
+    private String cursorSiguiente;
+
+    /**
+     * Construye una página
+     * @param tiquetes Los tiquetes de la página
+     * @param cursorSiguiente El cursor de la página siguiente, o null si no hay más tiquetes
+     */
+    PaginaTiquetes( List<Tiquete> tiquetes, String cursorSiguiente )
+    {
+        this.tiquetes = Collections.unmodifiableList( tiquetes );
+        this.cursorSiguiente = cursorSiguiente;
+    }
+
+    public List<Tiquete> getTiquetes( )
+    {
+        return tiquetes;
+    }
+
+    /**
+     * Retorna el cursor con el que se pide la página siguiente a Aerolinea.getPaginaTiquetes. El cursor es opaco: sólo se debe usar para pedir la página siguiente.
+     * @return El cursor, o null si ya no hay más tiquetes. Una página llena puede estar seguida por una página vacía, y una página incompleta (o vacía) puede tener cursor
+     *         si se detuvo en una silla cuya venta todavía está en curso.
+     */
+    public String getCursorSiguiente( )
+    {
+        return cursorSiguiente;
+    }
+
+    /**
+     * Indica si puede haber más tiquetes después de esta página. Puede haberlos aunque la página no esté llena.
+     * @return
+     */
+    public boolean hayMas( )
+    {
+        return cursorSiguiente != null;
+    }
+}
@@ -0,0 +1,453 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+
+/**
+ * Esta clase es un grafo de los vuelos programados de una aerolínea, que permite buscar itinerarios con conexiones entre dos aeropuertos.
+ *
+ * Los nodos del grafo son los aeropuertos y los arcos son los vuelos. Las salidas de cada aeropuerto se guardan juntas en arreglos ordenados por la hora de salida, así
+ * que encontrar los vuelos que se pueden tomar después de llegar a un aeropuerto es una búsqueda binaria.
+ *
+ * El mejor itinerario se busca con una variante de A* dependiente del tiempo: el costo de una etiqueta es el minuto en que se llega a un aeropuerto, y lo que falta se
+ * estima con la duración del vuelo más corto que llega al destino, que nunca supera el tiempo real porque todo itinerario termina con alguno de esos vuelos. Como un
+ * itinerario puede tener a lo sumo MAXIMO_TRAMOS vuelos, una etiqueta sólo descarta a otra del mismo aeropuerto si llegó antes y con menos vuelos.
+ *
+ * Los k mejores itinerarios se buscan con el algoritmo de Yen: cada itinerario nuevo se desvía de uno ya encontrado en alguno de sus aeropuertos, conservando los
+ * vuelos anteriores al desvío y sin tomar desde ahí un vuelo que ya haya tomado otro itinerario con los mismos vuelos anteriores. Los itinerarios no pasan dos veces
+ * por el mismo aeropuerto, tienen a lo sumo MAXIMO_TRAMOS vuelos y deben llegar antes de HORIZONTE minutos después de la hora mínima de salida.
+ *
+ * La red es una fotografía de los vuelos que había cuando se construyó: si se programan o se realizan vuelos hay que construir otra (Aerolinea.getRedVuelos lo hace
+ * automáticamente). Se puede consultar desde varios hilos al mismo tiempo, pero los tiempos mínimos de conexión se deben definir antes de empezar a consultar.
+ */
+public class RedVuelos
+{
+    /**
+     * La cantidad máxima de vuelos de un itinerario
+     */
+    public static final int MAXIMO_TRAMOS = 4;
+
+    /**
+     * La cantidad máxima de minutos entre la hora mínima de salida y la llegada de un itinerario
+     */
+    public static final int HORIZONTE = 2 * 24 * 60;
+
+    /**
+     * El tiempo mínimo de conexión que se usa en los aeropuertos que no tienen uno propio, en minutos
+     */
+    public static final int CONEXION_POR_DEFECTO = 45;
+
+    /**
+     * Los aeropuertos de la red, en la posición de su identificador
+     */
+    private final Aeropuerto[] aeropuertos;
+
+    /**
+     * Los identificadores de los aeropuertos de la red
+     */
+    private final Map<Aeropuerto, Integer> identificadores;
+
+    /**
+     * Las salidas del aeropuerto i están en las posiciones de inicioSalidas[ i ] a inicioSalidas[ i + 1 ] - 1 de los arreglos de vuelos, ordenadas por la hora de salida
+     */
+    private final int[] inicioSalidas;
+
+    /**
+     * Los vuelos de la red, agrupados por aeropuerto de origen
+     */
+    private final Vuelo[] vuelos;
+
+    /**
+     * El minuto absoluto en que sale cada vuelo
+     */
+    private final long[] salidas;
+
+    /**
+     * El minuto absoluto en que llega cada vuelo
+     */
+    private final long[] llegadas;
+
+    /**
+     * El identificador del aeropuerto de destino de cada vuelo
+     */
+    private final int[] destinos;
+
+    /**
+     * El tiempo mínimo de conexión de cada aeropuerto, en minutos
+     */
+    private final int[] conexiones;
+
+    /**
+     * La duración del vuelo más corto que llega a cada aeropuerto, en minutos, o Long.MAX_VALUE si ningún vuelo llega al aeropuerto
+     */
+    private final long[] duracionesMinimas;
+
+    /**
+     * Una etiqueta de la búsqueda: una forma de llegar a un aeropuerto, con el vuelo que llegó y la etiqueta desde la que se tomó ese vuelo
+     */
+    private static class Etiqueta implements Comparable<Etiqueta>
+    {
+        private final int aeropuerto;
+        private final long llegada;
+        private final long prioridad;
+        private final int tramos;
+        private final int vuelo;
+        private final Etiqueta anterior;
+
+        private Etiqueta( int aeropuerto, long llegada, long prioridad, int tramos, int vuelo, Etiqueta anterior )
+        {
+            this.aeropuerto = aeropuerto;
+            this.llegada = llegada;
+            this.prioridad = prioridad;
+            this.tramos = tramos;
+            this.vuelo = vuelo;
+            this.anterior = anterior;
+        }
+
+        @Override
+        public int compareTo( Etiqueta otra )
+        {
+            if( prioridad != otra.prioridad )
+                return Long.compare( prioridad, otra.prioridad );
+            return Integer.compare( tramos, otra.tramos );
+        }
+    }
+
+    /**
+     * Un itinerario de la búsqueda de los k mejores, con las posiciones de sus vuelos en los arreglos de la red
+     */
+    private static class Camino implements Comparable<Camino>
+    {
+        private final int[] tramos;
+        private final long llegada;
+
+        private Camino( int[] tramos, long llegada )
+        {
+            this.tramos = tramos;
+            this.llegada = llegada;
+        }
+
+        @Override
+        public int compareTo( Camino otro )
+        {
+            if( llegada != otro.llegada )
+                return Long.compare( llegada, otro.llegada );
+            return Integer.compare( tramos.length, otro.tramos.length );
+        }
+
+        @Override
+        public boolean equals( Object otro )
+        {
+            return otro instanceof Camino && Arrays.equals( tramos, ( ( Camino )otro ).tramos );
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return Arrays.hashCode( tramos );
+        }
+    }
+
+    /**
+     * Construye la red a partir de un conjunto de vuelos
+     * @param vuelos Los vuelos
+     */
+    public RedVuelos( Collection<Vuelo> vuelos )
+    {
+        identificadores = new HashMap<Aeropuerto, Integer>( );
+        List<Aeropuerto> listaAeropuertos = new ArrayList<Aeropuerto>( );
+        for( Vuelo vuelo : vuelos )
+        {
+            registrarAeropuerto( vuelo.getRuta( ).getOrigen( ), listaAeropuertos );
+            registrarAeropuerto( vuelo.getRuta( ).getDestino( ), listaAeropuertos );
+        }
+        aeropuertos = listaAeropuertos.toArray( new Aeropuerto[0] );
+        conexiones = new int[aeropuertos.length];
+        Arrays.fill( conexiones, CONEXION_POR_DEFECTO );
+
+        // Se agrupan los vuelos por origen con un conteo y una suma acumulada
+        int n = vuelos.size( );
+        inicioSalidas = new int[aeropuertos.length + 1];
+        for( Vuelo vuelo : vuelos )
+            inicioSalidas[ identificadores.get( vuelo.getRuta( ).getOrigen( ) ) + 1 ]++;
+        for( int i = 0; i < aeropuertos.length; i++ )
+            inicioSalidas[ i + 1 ] += inicioSalidas[ i ];
+
+        Vuelo[] agrupados = new Vuelo[n];
+        int[] siguiente = Arrays.copyOf( inicioSalidas, aeropuertos.length );
+        for( Vuelo vuelo : vuelos )
+            agrupados[ siguiente[ identificadores.get( vuelo.getRuta( ).getOrigen( ) ) ]++ ] = vuelo;
+        for( int i = 0; i < aeropuertos.length; i++ )
+            Arrays.sort( agrupados, inicioSalidas[ i ], inicioSalidas[ i + 1 ], ( v1, v2 ) -> Long.compare( AgendaAvion.calcularInicio( v1 ), AgendaAvion.calcularInicio( v2 ) ) );
+
+        this.vuelos = agrupados;
+        salidas = new long[n];
+        llegadas = new long[n];
+        destinos = new int[n];
+        duracionesMinimas = new long[aeropuertos.length];
+        Arrays.fill( duracionesMinimas, Long.MAX_VALUE );
+        for( int i = 0; i < n; i++ )
+        {
+            Ruta ruta = agrupados[ i ].getRuta( );
+            salidas[ i ] = AgendaAvion.calcularInicio( agrupados[ i ] );
+            llegadas[ i ] = AgendaAvion.calcularFin( ruta, salidas[ i ] );
+            destinos[ i ] = identificadores.get( ruta.getDestino( ) );
+            duracionesMinimas[ destinos[ i ] ] = Math.min( duracionesMinimas[ destinos[ i ] ], llegadas[ i ] - salidas[ i ] );
+        }
+    }
+
+    /**
+     * Define el tiempo mínimo de conexión de un aeropuerto. Se debe llamar antes de empezar a buscar itinerarios.
+     * @param aeropuerto El aeropuerto
+     * @param minutos El tiempo mínimo, en minutos, entre la llegada de un vuelo y la salida del siguiente vuelo del itinerario
+     */
+    public void setTiempoMinimoConexion( Aeropuerto aeropuerto, int minutos )
+    {
+        Integer id = identificadores.get( aeropuerto );
+        if( id != null )
+            conexiones[ id ] = minutos;
+    }
+
+    /**
+     * Retorna la cantidad de aeropuertos de la red
+     * @return
+     */
+    public int getCantidadAeropuertos( )
+    {
+        return aeropuertos.length;
+    }
+
+    /**
+     * Retorna la cantidad de vuelos de la red
+     * @return
+     */
+    public int getCantidadVuelos( )
+    {
+        return vuelos.length;
+    }
+
+    /**
+     * Busca el itinerario que llega más temprano de un aeropuerto a otro
+     * @param origen El aeropuerto de origen
+     * @param destino El aeropuerto de destino
+     * @param fecha La fecha mínima de salida, con el formato aaaa-mm-dd
+     * @param minutoSalida La hora mínima de salida, en minutos desde la medianoche de la fecha
+     * @return El itinerario, o null si no hay ninguno
+     * @throws InformacionInconsistenteException Se lanza esta excepción si la fecha no tiene un formato válido
+     */
+    public Itinerario buscarItinerario( Aeropuerto origen, Aeropuerto destino, String fecha, int minutoSalida ) throws InformacionInconsistenteException
+    {
+        List<Itinerario> itinerarios = buscarItinerarios( origen, destino, fecha, minutoSalida, 1 );
+        return itinerarios.isEmpty( ) ? null : itinerarios.get( 0 );
+    }
+
+    /**
+     * Busca los itinerarios que llegan más temprano de un aeropuerto a otro. Si dos itinerarios llegan al mismo tiempo, primero va el que tiene menos vuelos.
+     * @param origen El aeropuerto de origen
+     * @param destino El aeropuerto de destino
+     * @param fecha La fecha mínima de salida, con el formato aaaa-mm-dd
+     * @param minutoSalida La hora mínima de salida, en minutos desde la medianoche de la fecha
+     * @param cantidad La cantidad máxima de itinerarios
+     * @return Los itinerarios, ordenados por la hora de llegada
+     * @throws InformacionInconsistenteException Se lanza esta excepción si la fecha no tiene un formato válido
+     */
+    public List<Itinerario> buscarItinerarios( Aeropuerto origen, Aeropuerto destino, String fecha, int minutoSalida, int cantidad ) throws InformacionInconsistenteException
+    {
+        long inicio;
+        try
+        {
+            inicio = LocalDate.parse( fecha ).toEpochDay( ) * 24 * 60 + minutoSalida;
+        }
+        catch( DateTimeParseException e )
+        {
+            throw new InformacionInconsistenteException( "La fecha '" + fecha + "' no es válida" );
+        }
+
+        Integer idOrigen = identificadores.get( origen );
+        Integer idDestino = identificadores.get( destino );
+        if( idOrigen == null || idDestino == null || idOrigen.equals( idDestino ) || cantidad <= 0 )
+            return Collections.emptyList( );
+        return buscar( idOrigen, idDestino, inicio, cantidad );
+    }
+
+    /**
+     * Hace la búsqueda de los k mejores itinerarios con el algoritmo de Yen
+     * @param origen El identificador del aeropuerto de origen
+     * @param destino El identificador del aeropuerto de destino
+     * @param inicio El minuto absoluto mínimo de salida
+     * @param cantidad La cantidad de itinerarios
+     * @return Los itinerarios, ordenados por la hora de llegada
+     */
+    private List<Itinerario> buscar( int origen, int destino, long inicio, int cantidad )
+    {
+        if( duracionesMinimas[ destino ] == Long.MAX_VALUE )
+            return Collections.emptyList( );
+        long limite = inicio + HORIZONTE;
+
+        Camino primero = buscarDesvio( new int[0], origen, inicio, destino, limite, new boolean[aeropuertos.length], Collections.<Integer> emptySet( ) );
+        if( primero == null )
+            return Collections.emptyList( );
+
+        List<Camino> encontrados = new ArrayList<Camino>( cantidad );
+        encontrados.add( primero );
+        PriorityQueue<Camino> candidatos = new PriorityQueue<Camino>( );
+        Set<Camino> vistos = new HashSet<Camino>( );
+        vistos.add( primero );
+        while( encontrados.size( ) < cantidad )
+        {
+            // Se busca un desvío en cada aeropuerto del último itinerario encontrado. Los aeropuertos anteriores al desvío, y el del desvío, quedan prohibidos.
+            int[] ultimo = encontrados.get( encontrados.size( ) - 1 ).tramos;
+            boolean[] prohibidos = new boolean[aeropuertos.length];
+            for( int i = 0; i < ultimo.length; i++ )
+            {
+                int desvio = i == 0 ? origen : destinos[ ultimo[ i - 1 ] ];
+                long minimo = i == 0 ? inicio : llegadas[ ultimo[ i - 1 ] ] + conexiones[ desvio ];
+                prohibidos[ desvio ] = true;
+
+                Set<Integer> vuelosProhibidos = new HashSet<Integer>( );
+                for( Camino camino : encontrados )
+                {
+                    if( camino.tramos.length > i && Arrays.equals( camino.tramos, 0, i, ultimo, 0, i ) )
+                        vuelosProhibidos.add( camino.tramos[ i ] );
+                }
+
+                Camino candidato = buscarDesvio( Arrays.copyOf( ultimo, i ), desvio, minimo, destino, limite, prohibidos, vuelosProhibidos );
+                if( candidato != null && vistos.add( candidato ) )
+                    candidatos.add( candidato );
+            }
+            if( candidatos.isEmpty( ) )
+                break;
+            encontrados.add( candidatos.poll( ) );
+        }
+
+        List<Itinerario> resultado = new ArrayList<Itinerario>( encontrados.size( ) );
+        for( Camino camino : encontrados )
+            resultado.add( construirItinerario( camino ) );
+        return resultado;
+    }
+
+    /**
+     * Busca el itinerario que llega más temprano al destino empezando con unos vuelos fijos. Si hay varios, retorna el que tiene menos vuelos.
+     *
+     * Una etiqueta de un aeropuerto se descarta sólo si ya se cerró otra del mismo aeropuerto con menos vuelos: la otra llegó antes, así que puede tomar los mismos vuelos
+     * que ésta y tiene más tramos disponibles. El mejor camino encontrado así no repite aeropuertos, porque si repitiera uno se podría quitar la vuelta y llegar al mismo
+     * tiempo con menos vuelos.
+     * @param prefijo Las posiciones de los vuelos fijos, que terminan en el aeropuerto del desvío
+     * @param desvio El identificador del aeropuerto donde terminan los vuelos fijos
+     * @param minimo El minuto absoluto mínimo de salida desde el aeropuerto del desvío, incluyendo el tiempo de conexión
+     * @param destino El identificador del aeropuerto de destino
+     * @param limite El minuto absoluto máximo de llegada
+     * @param prohibidos Los aeropuertos a los que no se puede llegar: los de los vuelos fijos y el del desvío
+     * @param vuelosProhibidos Las posiciones de los vuelos que no se pueden tomar desde el aeropuerto del desvío
+     * @return El itinerario completo, o null si no hay ninguno
+     */
+    private Camino buscarDesvio( int[] prefijo, int desvio, long minimo, int destino, long limite, boolean[] prohibidos, Set<Integer> vuelosProhibidos )
+    {
+        int maximoTramos = MAXIMO_TRAMOS - prefijo.length;
+        long estimacion = duracionesMinimas[ destino ];
+        int[] menosTramos = new int[aeropuertos.length];
+        Arrays.fill( menosTramos, Integer.MAX_VALUE );
+
+        PriorityQueue<Etiqueta> abiertas = new PriorityQueue<Etiqueta>( );
+        abiertas.add( new Etiqueta( desvio, minimo, minimo + estimacion, 0, -1, null ) );
+        while( !abiertas.isEmpty( ) )
+        {
+            Etiqueta etiqueta = abiertas.poll( );
+            if( etiqueta.tramos >= menosTramos[ etiqueta.aeropuerto ] )
+                continue;
+            menosTramos[ etiqueta.aeropuerto ] = etiqueta.tramos;
+
+            if( etiqueta.aeropuerto == destino )
+                return construirCamino( prefijo, etiqueta );
+            if( etiqueta.tramos == maximoTramos )
+                continue;
+
+            // En el desvío el tiempo de conexión ya está incluido en el mínimo
+            boolean enDesvio = etiqueta.anterior == null;
+            long salidaMinima = enDesvio ? etiqueta.llegada : etiqueta.llegada + conexiones[ etiqueta.aeropuerto ];
+            for( int i = buscarPrimeraSalida( etiqueta.aeropuerto, salidaMinima ); i < inicioSalidas[ etiqueta.aeropuerto + 1 ] && salidas[ i ] < limite; i++ )
+            {
+                int siguiente = destinos[ i ];
+                if( llegadas[ i ] > limite || prohibidos[ siguiente ] || etiqueta.tramos + 1 >= menosTramos[ siguiente ] || ( enDesvio && vuelosProhibidos.contains( i ) ) )
+                    continue;
+
+                long prioridad = siguiente == destino ? llegadas[ i ] : llegadas[ i ] + estimacion;
+                if( prioridad <= limite )
+                    abiertas.add( new Etiqueta( siguiente, llegadas[ i ], prioridad, etiqueta.tramos + 1, i, etiqueta ) );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Busca la primera salida de un aeropuerto que sale en un minuto dado o después
+     * @param aeropuerto El identificador del aeropuerto
+     * @param minimo El minuto absoluto mínimo de salida
+     * @return La posición de la salida en los arreglos de vuelos, o el final de las salidas del aeropuerto si no hay ninguna
+     */
+    private int buscarPrimeraSalida( int aeropuerto, long minimo )
+    {
+        int bajo = inicioSalidas[ aeropuerto ];
+        int alto = inicioSalidas[ aeropuerto + 1 ];
+        while( bajo < alto )
+        {
+            int medio = ( bajo + alto ) >>> 1;
+            if( salidas[ medio ] < minimo )
+                bajo = medio + 1;
+            else
+                alto = medio;
+        }
+        return bajo;
+    }
+
+    /**
+     * Construye el camino formado por unos vuelos fijos y los vuelos que llevan a una etiqueta
+     * @param prefijo Las posiciones de los vuelos fijos
+     * @param etiqueta La etiqueta del destino
+     * @return El camino
+     */
+    private static Camino construirCamino( int[] prefijo, Etiqueta etiqueta )
+    {
+        int[] tramos = Arrays.copyOf( prefijo, prefijo.length + etiqueta.tramos );
+        for( Etiqueta actual = etiqueta; actual.anterior != null; actual = actual.anterior )
+            tramos[ prefijo.length + actual.tramos - 1 ] = actual.vuelo;
+        return new Camino( tramos, etiqueta.llegada );
+    }
+
+    /**
+     * Construye el itinerario de un camino
+     * @param camino El camino
+     * @return El itinerario
+     */
+    private Itinerario construirItinerario( Camino camino )
+    {
+        Vuelo[] tramos = new Vuelo[camino.tramos.length];
+        for( int i = 0; i < tramos.length; i++ )
+            tramos[ i ] = vuelos[ camino.tramos[ i ] ];
+        return new Itinerario( Arrays.asList( tramos ), salidas[ camino.tramos[ 0 ] ], camino.llegada );
+    }
+
+    /**
+     * Le asigna un identificador a un aeropuerto si todavía no lo tiene
+     */
+    private void registrarAeropuerto( Aeropuerto aeropuerto, List<Aeropuerto> lista )
+    {
+        if( !identificadores.containsKey( aeropuerto ) )
+        {
+            identificadores.put( aeropuerto, lista.size( ) );
+            lista.add( aeropuerto );
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.util.Collections;
+import java.util.List;
+
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase representa el resultado de una solicitud dentro de una venta por lotes: o bien los tiquetes que se vendieron, o bien el motivo por el que no se pudo vender
+ * ningún tiquete.
+ */
+public class ResultadoVenta
+{
+    private SolicitudVenta solicitud;
+    private List<Tiquete> tiquetes;
+    private long valorTotal;
+    private Exception error;
+    private Exception errorSincronizacion;
+
+    /**
+     * Construye el resultado de una solicitud que se pudo atender
+     * @param solicitud La solicitud
+     * @param tiquetes Los tiquetes vendidos
+     * @param valorTotal La suma de las tarifas de los tiquetes vendidos
+     */
+    public ResultadoVenta( SolicitudVenta solicitud, List<Tiquete> tiquetes, long valorTotal )
+    {
+        this.solicitud = solicitud;
+        this.tiquetes = Collections.unmodifiableList( tiquetes );
+        this.valorTotal = valorTotal;
+    }
+
+    /**
+     * Construye el resultado de una solicitud que no se pudo atender
+     * @param solicitud La solicitud
+     * @param error La excepción que explica por qué no se vendieron los tiquetes
+     */
+    public ResultadoVenta( SolicitudVenta solicitud, Exception error )
+    {
+        this.solicitud = solicitud;
+        this.tiquetes = Collections.emptyList( );
+        this.error = error;
+    }
+
+    public SolicitudVenta getSolicitud( )
+    {
+        return solicitud;
+    }
+
+    /**
+     * Indica si se vendieron los tiquetes de la solicitud
+     * @return
+     */
+    public boolean esExitosa( )
+    {
+        return error == null;
+    }
+
+    /**
+     * Retorna los tiquetes vendidos. Si la solicitud no se pudo atender, la lista está vacía.
+     * @return
+     */
+    public List<Tiquete> getTiquetes( )
+    {
+        return tiquetes;
+    }
+
+    public long getValorTotal( )
+    {
+        return valorTotal;
+    }
+
+    /**
+     * Retorna la excepción que explica por qué no se pudo atender la solicitud
+     * @return La excepción, o null si la solicitud fue exitosa
+     */
+    public Exception getError( )
+    {
+        return error;
+    }
+
+    /**
+     * Retorna el error con el que falló la sincronización de la bitácora al terminar el lote. Los tiquetes de una solicitud exitosa se vendieron y su venta quedó
+     * escrita en la bitácora, pero si hubo este error no se sabe si quedó en el disco.
+     * @return La excepción, o null si no hubo error o si la solicitud no fue exitosa
+     */
+    public Exception getErrorSincronizacion( )
+    {
+        return errorSincronizacion;
+    }
+
+    /**
+     * Indica que la sincronización de la bitácora falló después de atender la solicitud
+     * @param errorSincronizacion La excepción
+     */
+    void setErrorSincronizacion( Exception errorSincronizacion )
+    {
+        this.errorSincronizacion = errorSincronizacion;
+    }
+}
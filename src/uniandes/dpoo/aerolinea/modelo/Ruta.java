@@ -1,5 +1,10 @@
 package uniandes.dpoo.aerolinea.modelo;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import uniandes.dpoo.aerolinea.modelo.tarifas.CalculadoraTarifas;
+
 /**
  * Esta clase tiene la información de una ruta entre dos aeropuertos que cubre una aerolínea.
  */
@@ -11,6 +16,23 @@ public class Ruta
     private String horaSalida;
     private String horaLlegada;
     private String codigoRuta;
+    
+    /**
+     * La distancia en kilómetros entre el origen y el destino, que se calcula una sola vez al construir la ruta
+     */
+    private int distancia;
+    
+    /**
+     * Las horas de salida y de llegada, como la cantidad de minutos transcurridos desde la medianoche. Se calculan una sola vez al construir la ruta.
+     */
+    private short minutoSalida;
+    private short minutoLlegada;
+    
+    /**
+     * Las tarifas de la ruta que ya calculó cada calculadora de tarifas. Las calculadoras se comparten entre aerolíneas, así que las tarifas se guardan en la ruta para
+     * que se descarten junto con ella.
+     */
+    private Map<CalculadoraTarifas, int[]> tarifasCalculadas;
 
     
     public Ruta(Aeropuerto origen, Aeropuerto destino, String horaSalida, String horaLlegada, String codigoRuta) {
@@ -19,6 +41,10 @@ public class Ruta
     	this.horaSalida = horaSalida;
     	this.horaLlegada = horaLlegada;
     	this.codigoRuta = codigoRuta;
+    	this.distancia = Aeropuerto.calcularDistancia(origen, destino);
+    	this.minutoSalida = (short) (getHoras(horaSalida) * 60 + getMinutos(horaSalida));
+    	this.minutoLlegada = (short) (getHoras(horaLlegada) * 60 + getMinutos(horaLlegada));
+    	this.tarifasCalculadas = new ConcurrentHashMap<CalculadoraTarifas, int[]>(2);
     }
     
     public String getCodigoRuta() {
@@ -33,6 +59,14 @@ public class Ruta
     	return destino;
     }
     
+    /**
+     * Retorna la distancia entre el origen y el destino de la ruta
+     * @return La distancia en kilómetros, calculada con Aeropuerto.calcularDistancia
+     */
+    public int getDistancia() {
+    	return distancia;
+    }
+    
     public String getHoraSalida() {
 		return horaSalida;
 	}
@@ -42,12 +76,32 @@ public class Ruta
 		return horaLlegada;
 	}
 
+	/**
+	 * Retorna la hora de salida de la ruta
+	 * @return La cantidad de minutos transcurridos desde la medianoche, entre 0 y 1439
+	 */
+	public int getMinutoSalida() {
+		return minutoSalida;
+	}
+
+	/**
+	 * Retorna la hora de llegada de la ruta
+	 * @return La cantidad de minutos transcurridos desde la medianoche, entre 0 y 1439
+	 */
+	public int getMinutoLlegada() {
+		return minutoLlegada;
+	}
+
 	public int getDuracion() {
-		int hourDuration = getHoras(this.horaLlegada) - getHoras(this.horaSalida);
-		int minuteDuration = getMinutos(this.horaLlegada) - getMinutos(this.horaSalida);
-		
-		int totalDuration = hourDuration * 60 + minuteDuration;
-		return totalDuration;
+		return minutoLlegada - minutoSalida;
+	}
+	
+	/**
+	 * Retorna las tarifas de la ruta que ya calcularon las calculadoras de tarifas. Sólo las usa CalculadoraTarifas.
+	 * @return Un mapa donde las llaves son las calculadoras y los valores tienen la tarifa de cada categoría de cliente, o -1 si todavía no se ha calculado
+	 */
+	public Map<CalculadoraTarifas, int[]> getTarifasCalculadas() {
+		return tarifasCalculadas;
 	}
 	
 	/**
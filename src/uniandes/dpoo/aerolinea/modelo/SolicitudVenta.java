@@ -0,0 +1,49 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+/**
+ * Esta clase representa una solicitud para comprar una cierta cantidad de tiquetes de un vuelo, dentro de una venta por lotes.
+ *
+ * Los objetos de esta clase no se pueden modificar.
+ */
+public class SolicitudVenta
+{
+    private String identificadorCliente;
+    private String fecha;
+    private String codigoRuta;
+    private int cantidad;
+
+    /**
+     * Construye una nueva solicitud de venta
+     * @param identificadorCliente El identificador del cliente que compra los tiquetes
+     * @param fecha La fecha del vuelo
+     * @param codigoRuta El código de la ruta del vuelo
+     * @param cantidad La cantidad de tiquetes que se quieren comprar
+     */
+    public SolicitudVenta( String identificadorCliente, String fecha, String codigoRuta, int cantidad )
+    {
+        this.identificadorCliente = identificadorCliente;
+        this.fecha = fecha;
+        this.codigoRuta = codigoRuta;
+        this.cantidad = cantidad;
+    }
+
+    public String getIdentificadorCliente( )
+    {
+        return identificadorCliente;
+    }
+
+    public String getFecha( )
+    {
+        return fecha;
+    }
+
+    public String getCodigoRuta( )
+    {
+        return codigoRuta;
+    }
+
+    public int getCantidad( )
+    {
+        return cantidad;
+    }
+}
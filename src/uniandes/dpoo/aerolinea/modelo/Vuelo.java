@@ -1,15 +1,32 @@
 package uniandes.dpoo.aerolinea.modelo;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import uniandes.dpoo.aerolinea.exceptions.VueloSobrevendidoException;
 import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
-import uniandes.dpoo.aerolinea.modelo.tarifas.CalculadoraTarifas;
-import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+import uniandes.dpoo.aerolinea.tiquetes.AlmacenTiquetes;
 import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
 
+/**
+ * Esta clase representa un vuelo de una ruta en una fecha, junto con los tiquetes que se han vendido para el vuelo.
+ * 
+ * Los tiquetes están indexados por su código. Además, el vuelo tiene un arreglo con una posición por cada silla del avión, donde queda el tiquete al que se le asignó
+ * esa silla. Las sillas se asignan en orden, a medida que se reservan.
+ * 
+ * Un vuelo también puede guardar sus tiquetes en un AlmacenTiquetes. En ese caso el vuelo no mantiene objetos por sus tiquetes: el arreglo de sillas tiene la posición de
+ * cada tiquete en el almacén, y los tiquetes que retorna el vuelo son vistas sobre el almacén. Para buscarlos por código, el vuelo tiene una tabla con sus posiciones.
+ * 
+ * La fecha se convierte una sola vez, al construir el vuelo, en la cantidad de días desde el 1 de enero de 1970 y en el mes, para que la agenda de los aviones y el
+ * cálculo de la temporada no tengan que volver a leer la cadena.
+ */
 public class Vuelo {
 	
 	private Avion avion;
@@ -17,11 +34,101 @@ public class Vuelo {
 	private Ruta ruta;
 	private Map<String, Tiquete> tiquetes;
 	
+	/**
+	 * La fecha del vuelo, como la cantidad de días desde el 1 de enero de 1970
+	 */
+	private int diaEpoca;
+	
+	/**
+	 * El mes de la fecha del vuelo, entre 1 y 12
+	 */
+	private byte mes;
+	
+	/**
+	 * Los tiquetes asignados a cada silla del vuelo, o null en las sillas que todavía no se han asignado
+	 */
+	private AtomicReferenceArray<Tiquete> sillas;
+	
+	/**
+	 * La cantidad de sillas del vuelo que ya están reservadas.
+	 * 
+	 * Las sillas se reservan de forma atómica, de modo que varias ventas concurrentes sobre el mismo vuelo nunca lo sobrevenden, y ventas sobre vuelos diferentes no
+	 * compiten entre sí.
+	 */
+	private AtomicInteger sillasReservadas;
+	
+	/**
+	 * El almacén donde se guardan los tiquetes del vuelo, o null si el vuelo mantiene un objeto por cada tiquete
+	 */
+	private AlmacenTiquetes almacen;
+	
+	/**
+	 * El identificador del vuelo dentro de su almacén, o -1 si todavía no se ha registrado en él
+	 */
+	private int idAlmacen;
+	
+	/**
+	 * Si el vuelo usa un almacén, la posición en el almacén del tiquete asignado a cada silla más uno, o 0 en las sillas que todavía no se han asignado
+	 */
+	private AtomicIntegerArray posicionesSillas;
+	
+	/**
+	 * Si el vuelo usa un almacén, una tabla de dispersión con las posiciones en el almacén de sus tiquetes más uno, indexada por el código del tiquete, o 0 en las entradas
+	 * libres. Las colisiones se resuelven con la siguiente entrada libre. Tiene un tercio más de entradas que sillas el vuelo, así que nunca se llena y una búsqueda revisa
+	 * pocas entradas, sin guardar los códigos ni un objeto por cada tiquete.
+	 */
+	private AtomicIntegerArray indiceCodigos;
+	
+	/**
+	 * Construye un vuelo sin tiquetes
+	 * @param ruta La ruta del vuelo
+	 * @param fecha La fecha del vuelo, con el formato aaaa-mm-dd
+	 * @param avion El avión del vuelo
+	 * @throws java.time.format.DateTimeParseException Se lanza esta excepción si la fecha no tiene un formato válido
+	 */
 	public Vuelo(Ruta ruta, String fecha, Avion avion) {
+		LocalDate dia = LocalDate.parse(fecha);
 		this.avion = avion;
 		this.fecha = fecha;
+		this.diaEpoca = (int) dia.toEpochDay();
+		this.mes = (byte) dia.getMonthValue();
 		this.ruta = ruta;
-		this.tiquetes = new HashMap<String, Tiquete>();
+		this.tiquetes = new ConcurrentHashMap<String, Tiquete>();
+		this.sillasReservadas = new AtomicInteger();
+		this.sillas = new AtomicReferenceArray<Tiquete>(avion.getCapacidad());
+	}
+	
+	/**
+	 * Construye un vuelo sin tiquetes que guarda sus tiquetes en un almacén columnar.
+	 * 
+	 * El vuelo no queda registrado en el almacén hasta que se llama registrarEnAlmacen, lo que hace la aerolínea cuando el vuelo queda programado. Así, un vuelo que
+	 * no se llega a programar no ocupa un lugar en el almacén.
+	 * @param ruta La ruta del vuelo
+	 * @param fecha La fecha del vuelo, con el formato aaaa-mm-dd
+	 * @param avion El avión del vuelo
+	 * @param almacen El almacén donde se guardarán los tiquetes del vuelo
+	 * @throws java.time.format.DateTimeParseException Se lanza esta excepción si la fecha no tiene un formato válido
+	 */
+	public Vuelo(Ruta ruta, String fecha, Avion avion, AlmacenTiquetes almacen) {
+		LocalDate dia = LocalDate.parse(fecha);
+		this.avion = avion;
+		this.fecha = fecha;
+		this.diaEpoca = (int) dia.toEpochDay();
+		this.mes = (byte) dia.getMonthValue();
+		this.ruta = ruta;
+		this.sillasReservadas = new AtomicInteger();
+		this.almacen = almacen;
+		this.idAlmacen = -1;
+		this.posicionesSillas = new AtomicIntegerArray(avion.getCapacidad());
+		this.indiceCodigos = new AtomicIntegerArray(avion.getCapacidad() + avion.getCapacidad() / 3 + 1);
+	}
+	
+	/**
+	 * Registra el vuelo en su almacén, si tiene uno y todavía no estaba registrado. Se debe llamar antes de que el vuelo pueda recibir tiquetes.
+	 */
+	void registrarEnAlmacen() {
+		if (this.almacen != null && this.idAlmacen < 0)
+			this.idAlmacen = this.almacen.registrarVuelo(this);
 	}
 	
 	public Ruta getRuta() {
@@ -32,30 +139,261 @@ public class Vuelo {
 		return this.fecha;
 	}
 	
+	/**
+	 * Retorna la fecha del vuelo
+	 * @return La cantidad de días entre el 1 de enero de 1970 y la fecha del vuelo
+	 */
+	public int getDiaEpoca() {
+		return this.diaEpoca;
+	}
+	
+	/**
+	 * Retorna el mes de la fecha del vuelo
+	 * @return Un valor entre 1 (enero) y 12 (diciembre)
+	 */
+	public int getMes() {
+		return this.mes;
+	}
+	
 	public Avion getAvion() {
 		return this.avion;
 	}
 	
+	/**
+	 * Retorna el almacén donde se guardan los tiquetes del vuelo
+	 * @return El almacén, o null si el vuelo mantiene un objeto por cada tiquete
+	 */
+	public AlmacenTiquetes getAlmacen() {
+		return this.almacen;
+	}
+	
 	public Collection<Tiquete> getTiquetes(){
+		if (this.almacen != null)
+			return getManifiesto();
 		Collection<Tiquete> tiquetes = this.tiquetes.values();
 		return tiquetes;
 	}
 	
-	public int venderTiquetes(Cliente cliente, CalculadoraTarifas calculadora, int cantidad) throws VueloSobrevendidoException{
+	/**
+	 * Busca un tiquete del vuelo a partir de su código
+	 * @param codigoTiquete El código del tiquete
+	 * @return El tiquete, o null si el vuelo no tiene un tiquete con ese código
+	 */
+	public Tiquete getTiquete(String codigoTiquete) {
+		if (this.almacen == null)
+			return this.tiquetes.get(codigoTiquete);
 		
-		int tarifa = calculadora.calcularTarifa(this, cliente);
-		
-		for (int i = 0; i < cantidad; i++) {
-			if (tiquetes.size() < avion.getCapacidad()) {
-				Tiquete newTicket = GeneradorTiquetes.generarTiquete(this, cliente, tarifa);
-				tiquetes.put(fecha, newTicket);	
-			} else throw new VueloSobrevendidoException(this);
+		int entrada = getEntradaCodigo(codigoTiquete);
+		int valor;
+		while ((valor = this.indiceCodigos.get(entrada)) != 0) {
+			if (this.almacen.tieneCodigo(valor - 1, codigoTiquete))
+				return this.almacen.getTiquete(valor - 1);
+			entrada = (entrada + 1) % this.indiceCodigos.length();
+		}
+		return null;
+	}
+	
+	/**
+	 * Retorna la cantidad de sillas del vuelo que ya están ocupadas
+	 * @return
+	 */
+	public int getSillasOcupadas() {
+		return this.sillasReservadas.get();
+	}
+	
+	/**
+	 * Retorna la cantidad de sillas del vuelo que todavía se pueden vender
+	 * @return
+	 */
+	public int getSillasDisponibles() {
+		return getCapacidad() - this.sillasReservadas.get();
+	}
+	
+	/**
+	 * Retorna el manifiesto del vuelo: los tiquetes de las sillas ocupadas, en el orden de las sillas
+	 * @return Una lista con los tiquetes, donde el tiquete de cada posición tiene asignada una silla anterior a la del siguiente
+	 */
+	public List<Tiquete> getManifiesto() {
+		int ocupadas = this.sillasReservadas.get();
+		List<Tiquete> manifiesto = new ArrayList<Tiquete>(ocupadas);
+		for (int i = 0; i < ocupadas; i++) {
+			Tiquete tiquete = getTiqueteSilla(i);
+			// Una silla reservada puede no tener tiquete todavía si la venta está en curso
+			if (tiquete != null)
+				manifiesto.add(tiquete);
+		}
+		return manifiesto;
+	}
+	
+	/**
+	 * Retorna la cantidad de tiquetes del vuelo, sin construir la colección de tiquetes
+	 * @return
+	 */
+	public int getCantidadTiquetes() {
+		if (this.almacen == null)
+			return this.tiquetes.size();
+		int ocupadas = this.sillasReservadas.get();
+		int cantidad = 0;
+		for (int i = 0; i < ocupadas; i++) {
+			if (this.posicionesSillas.get(i) != 0)
+				cantidad++;
 		}
 		return cantidad;
 	}
 	
-	@Override
-	public boolean equals(Object obj) {
-		return this.equals(obj);
+	/**
+	 * Agrega a una lista los tiquetes del vuelo a partir de una silla, en el orden de las sillas. Sirve para recorrer el manifiesto por partes.
+	 * 
+	 * El recorrido se detiene en la primera silla reservada que todavía no tiene tiquete (porque la venta está en curso), para que ese tiquete no se pierda: se debe
+	 * volver a recorrer desde esa silla más tarde.
+	 * @param primeraSilla La primera silla que se revisa
+	 * @param maximo La cantidad máxima de tiquetes que se agregan
+	 * @param destino La lista donde se agregan los tiquetes
+	 * @return La primera silla que no se agregó. Si no es menor a getSillasOcupadas, ya se recorrieron todas las sillas ocupadas; si lo es y se agregaron menos de maximo
+	 *         tiquetes, el recorrido se detuvo en una silla que todavía no tiene tiquete.
+	 */
+	public int recorrerManifiesto(int primeraSilla, int maximo, List<Tiquete> destino) {
+		int ocupadas = this.sillasReservadas.get();
+		int silla = primeraSilla;
+		int agregados = 0;
+		while (silla < ocupadas && agregados < maximo) {
+			Tiquete tiquete = getTiqueteSilla(silla);
+			if (tiquete == null)
+				break;
+			destino.add(tiquete);
+			agregados++;
+			silla++;
+		}
+		return silla;
+	}
+	
+	/**
+	 * Agrega al vuelo un tiquete que ya existía (por ejemplo, porque se cargó de un archivo), asignándole la siguiente silla libre.
+	 * 
+	 * Si el vuelo usa un almacén, los datos del tiquete se copian al almacén y el cliente pasa a tener la vista del almacén en lugar del tiquete original.
+	 * @param tiquete El tiquete
+	 * @return El tiquete tal como quedó en el vuelo: el mismo tiquete, o su vista en el almacén. Los cambios posteriores (como usarlo) se deben hacer sobre este tiquete.
+	 * @throws VueloSobrevendidoException Se lanza esta excepción si el vuelo no tiene sillas libres
+	 */
+	public Tiquete agregarTiquete(Tiquete tiquete) throws VueloSobrevendidoException {
+		int silla = reservarSillas(1);
+		if (this.almacen == null) {
+			asignarSilla(tiquete, silla);
+			return tiquete;
+		}
+		
+		int posicion = this.almacen.agregar(tiquete, this.idAlmacen, silla);
+		this.posicionesSillas.set(silla, posicion + 1);
+		indexarCodigo(tiquete.getCodigo(), posicion);
+		Tiquete almacenado = this.almacen.getTiquete(posicion);
+		Cliente cliente = tiquete.getCliente();
+		cliente.retirarTiquete(tiquete);
+		cliente.agregarTiquete(almacenado);
+		return almacenado;
+	}
+	
+	/**
+	 * Genera los tiquetes de un cliente para unas sillas que ya fueron reservadas, con códigos que ya se asignaron
+	 * @param cliente El cliente que compra los tiquetes
+	 * @param tarifa La tarifa de cada tiquete
+	 * @param primeraSilla La primera de las sillas reservadas
+	 * @param codigos Los códigos de los tiquetes, asignados con GeneradorTiquetes.asignarCodigos. Hay una silla reservada por cada código.
+	 * @return Los tiquetes generados
+	 */
+	List<Tiquete> emitirTiquetes(Cliente cliente, int tarifa, int primeraSilla, String[] codigos) {
+		List<Tiquete> emitidos = new ArrayList<Tiquete>(codigos.length);
+		for (int i = 0; i < codigos.length; i++) {
+			if (this.almacen == null) {
+				Tiquete newTicket = new Tiquete(codigos[i], this, cliente, tarifa);
+				asignarSilla(newTicket, primeraSilla + i);
+				emitidos.add(newTicket);
+			} else {
+				int posicion = this.almacen.emitir(codigos[i], this.idAlmacen, cliente, tarifa, primeraSilla + i);
+				this.posicionesSillas.set(primeraSilla + i, posicion + 1);
+				indexarCodigo(codigos[i], posicion);
+				Tiquete almacenado = this.almacen.getTiquete(posicion);
+				cliente.agregarTiquete(almacenado);
+				emitidos.add(almacenado);
+			}
+		}
+		return emitidos;
+	}
+	
+	/**
+	 * Reserva atómicamente una cierta cantidad de sillas consecutivas del vuelo
+	 * @param cantidad La cantidad de sillas
+	 * @return El número de la primera silla reservada
+	 * @throws VueloSobrevendidoException Se lanza esta excepción si no quedan suficientes sillas. En ese caso no se reserva ninguna.
+	 */
+	int reservarSillas(int cantidad) throws VueloSobrevendidoException {
+		int reservadas;
+		do {
+			reservadas = sillasReservadas.get();
+			if (reservadas + cantidad > getCapacidad())
+				throw new VueloSobrevendidoException(this);
+		} while (!sillasReservadas.compareAndSet(reservadas, reservadas + cantidad));
+		return reservadas;
+	}
+	
+	/**
+	 * Libera las últimas sillas reservadas del vuelo, cuando no se pudo terminar la venta para la que se reservaron
+	 * @param primeraSilla La primera de las sillas que se liberan
+	 * @param cantidad La cantidad de sillas que se liberan
+	 * @throws IllegalStateException Se lanza esta excepción si después de esas sillas ya se reservaron otras
+	 */
+	void liberarSillas(int primeraSilla, int cantidad) {
+		if (!sillasReservadas.compareAndSet(primeraSilla + cantidad, primeraSilla))
+			throw new IllegalStateException("Sólo se pueden liberar las últimas sillas reservadas del vuelo");
+	}
+	
+	/**
+	 * Asigna una silla reservada a un tiquete y lo registra en el vuelo
+	 * @param tiquete El tiquete
+	 * @param silla El número de la silla
+	 */
+	private void asignarSilla(Tiquete tiquete, int silla) {
+		tiquete.asignarSilla(silla);
+		sillas.set(silla, tiquete);
+		tiquetes.put(tiquete.getCodigo(), tiquete);
+	}
+	
+	/**
+	 * Agrega un tiquete almacenado a la tabla de códigos del vuelo
+	 * @param codigo El código del tiquete
+	 * @param posicion La posición del tiquete en el almacén
+	 */
+	private void indexarCodigo(String codigo, int posicion) {
+		int entrada = getEntradaCodigo(codigo);
+		while (!this.indiceCodigos.compareAndSet(entrada, 0, posicion + 1))
+			entrada = (entrada + 1) % this.indiceCodigos.length();
+	}
+	
+	/**
+	 * Calcula la primera entrada de la tabla de códigos donde se busca un código
+	 * @param codigo El código del tiquete
+	 * @return
+	 */
+	private int getEntradaCodigo(String codigo) {
+		return Math.floorMod(codigo.hashCode(), this.indiceCodigos.length());
+	}
+	
+	/**
+	 * Retorna el tiquete asignado a una silla
+	 * @param silla El número de la silla
+	 * @return El tiquete, o null si la silla todavía no tiene tiquete
+	 */
+	private Tiquete getTiqueteSilla(int silla) {
+		if (this.almacen == null)
+			return this.sillas.get(silla);
+		int posicion = this.posicionesSillas.get(silla) - 1;
+		return posicion < 0 ? null : this.almacen.getTiquete(posicion);
+	}
+	
+	/**
+	 * Retorna la cantidad de sillas del vuelo
+	 * @return
+	 */
+	private int getCapacidad() {
+		return this.almacen == null ? this.sillas.length() : this.posicionesSillas.length();
 	}
 }
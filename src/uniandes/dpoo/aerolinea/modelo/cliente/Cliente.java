@@ -1,62 +1,266 @@
 package uniandes.dpoo.aerolinea.modelo.cliente;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import uniandes.dpoo.aerolinea.modelo.Vuelo;
+import uniandes.dpoo.aerolinea.tiquetes.AlmacenTiquetes;
 import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+import uniandes.dpoo.aerolinea.tiquetes.TiqueteAlmacenado;
 
+/**
+ * Esta clase representa a un cliente de la aerolínea, junto con los tiquetes que ha comprado.
+ * 
+ * Los métodos que consultan o modifican los tiquetes del cliente están sincronizados, porque un mismo cliente puede estar comprando tiquetes de varios vuelos al mismo
+ * tiempo.
+ * 
+ * Además de los tiquetes, el cliente lleva la suma de las tarifas de sus tiquetes sin usar y de sus tiquetes usados, que se actualiza cada vez que se agrega, se usa o se
+ * retira un tiquete. Así, consultar el saldo pendiente o el valor total de los tiquetes no requiere recorrerlos.
+ * 
+ * Los tiquetes están agrupados por vuelo, así que usar o retirar los tiquetes de un vuelo sólo cuesta lo proporcional a la cantidad de tiquetes que el cliente tiene en
+ * ese vuelo.
+ * 
+ * De los tiquetes que están en un AlmacenTiquetes el cliente no guarda objetos, sino sólo su posición en el almacén; si están usados o no se consulta en el almacén.
+ */
 public abstract class Cliente {
 	
-	private List<Tiquete> tiquetesSinUsar;
-	private List<Tiquete> tiquetesUsados;
+	private Map<Vuelo, List<Tiquete>> tiquetesSinUsar;
+	private Map<Vuelo, List<Tiquete>> tiquetesUsados;
+	
+	/**
+	 * Las posiciones de los tiquetes del cliente que están en un almacén, usados o sin usar, agrupadas por vuelo
+	 */
+	private Map<Vuelo, Posiciones> tiquetesAlmacenados;
+	
+	/**
+	 * La suma de las tarifas de los tiquetes sin usar
+	 */
+	private long valorTiquetesSinUsar;
+	
+	/**
+	 * La suma de las tarifas de los tiquetes usados
+	 */
+	private long valorTiquetesUsados;
 	
 	public abstract String getTipoCliente();
 	public abstract String getIdentificador();
 	
 	
 	public Cliente() {
-		this.tiquetesSinUsar = new ArrayList<Tiquete>();
-		this.tiquetesUsados = new ArrayList<Tiquete>();
+		this.tiquetesSinUsar = new HashMap<Vuelo, List<Tiquete>>();
+		this.tiquetesUsados = new HashMap<Vuelo, List<Tiquete>>();
+		this.tiquetesAlmacenados = new HashMap<Vuelo, Posiciones>();
 	}
 	
-	public void agregarTiquete(Tiquete tiquete) {
-		this.tiquetesSinUsar.add(tiquete);
+	public synchronized void agregarTiquete(Tiquete tiquete) {
+		if (tiquete instanceof TiqueteAlmacenado) {
+			Posiciones posiciones = this.tiquetesAlmacenados.get(tiquete.getVuelo());
+			if (posiciones == null) {
+				posiciones = new Posiciones();
+				this.tiquetesAlmacenados.put(tiquete.getVuelo(), posiciones);
+			}
+			posiciones.agregar(((TiqueteAlmacenado) tiquete).getPosicion());
+			if (tiquete.esUsado())
+				this.valorTiquetesUsados += tiquete.getTarifa();
+			else
+				this.valorTiquetesSinUsar += tiquete.getTarifa();
+		} else if (tiquete.esUsado()) {
+			agregar(this.tiquetesUsados, tiquete);
+			this.valorTiquetesUsados += tiquete.getTarifa();
+		} else {
+			agregar(this.tiquetesSinUsar, tiquete);
+			this.valorTiquetesSinUsar += tiquete.getTarifa();
+		}
 	}
 	
-	public int calcularValorTotalTiquetes() {
-		int totalSpent = 0;
-		int biggestList;
-		if (this.tiquetesSinUsar.size() >= this.tiquetesUsados.size()) {
-			biggestList = this.tiquetesSinUsar.size();
-		} else biggestList = this.tiquetesUsados.size();
-		
-		int i = 0;
-		while (i < biggestList) {
-			Tiquete current;
-			if (i < this.tiquetesSinUsar.size()) {
-				current = tiquetesSinUsar.get(i);
-				totalSpent += current.getTarifa();
+	/**
+	 * Marca como usado un tiquete del cliente que todavía no había sido usado
+	 * @param tiquete El tiquete
+	 */
+	public synchronized void usarTiquete(Tiquete tiquete) {
+		if (tiquete instanceof TiqueteAlmacenado) {
+			TiqueteAlmacenado almacenado = (TiqueteAlmacenado) tiquete;
+			Posiciones posiciones = this.tiquetesAlmacenados.get(tiquete.getVuelo());
+			if (posiciones != null && posiciones.contiene(almacenado.getPosicion()) && almacenado.getAlmacen().marcarComoUsado(almacenado.getPosicion())) {
+				this.valorTiquetesSinUsar -= tiquete.getTarifa();
+				this.valorTiquetesUsados += tiquete.getTarifa();
 			}
-			if (i < this.tiquetesUsados.size()) {
-				current = tiquetesUsados.get(i);
-				totalSpent += current.getTarifa();
+		} else if (quitar(this.tiquetesSinUsar, tiquete)) {
+			tiquete.marcarComoUsado();
+			agregar(this.tiquetesUsados, tiquete);
+			this.valorTiquetesSinUsar -= tiquete.getTarifa();
+			this.valorTiquetesUsados += tiquete.getTarifa();
+		}
+	}
+	
+	/**
+	 * Deja de mantener en memoria un tiquete del cliente, por ejemplo porque fue movido a un archivo histórico
+	 * @param tiquete El tiquete que se retira
+	 */
+	public synchronized void retirarTiquete(Tiquete tiquete) {
+		if (tiquete instanceof TiqueteAlmacenado) {
+			Posiciones posiciones = this.tiquetesAlmacenados.get(tiquete.getVuelo());
+			if (posiciones != null && posiciones.quitar(((TiqueteAlmacenado) tiquete).getPosicion())) {
+				if (posiciones.cantidad == 0)
+					this.tiquetesAlmacenados.remove(tiquete.getVuelo());
+				if (tiquete.esUsado())
+					this.valorTiquetesUsados -= tiquete.getTarifa();
+				else
+					this.valorTiquetesSinUsar -= tiquete.getTarifa();
 			}
-			i++;
+		} else if (quitar(this.tiquetesUsados, tiquete))
+			this.valorTiquetesUsados -= tiquete.getTarifa();
+		else if (quitar(this.tiquetesSinUsar, tiquete))
+			this.valorTiquetesSinUsar -= tiquete.getTarifa();
+	}
+	
+	/**
+	 * Deja de mantener en memoria todos los tiquetes del cliente para un vuelo, usados o sin usar
+	 * @param vuelo El vuelo
+	 */
+	public synchronized void retirarTiquetes(Vuelo vuelo) {
+		List<Tiquete> usados = this.tiquetesUsados.remove(vuelo);
+		if (usados != null) {
+			for (Tiquete tiquete : usados)
+				this.valorTiquetesUsados -= tiquete.getTarifa();
+		}
+		List<Tiquete> sinUsar = this.tiquetesSinUsar.remove(vuelo);
+		if (sinUsar != null) {
+			for (Tiquete tiquete : sinUsar)
+				this.valorTiquetesSinUsar -= tiquete.getTarifa();
+		}
+		Posiciones almacenados = this.tiquetesAlmacenados.remove(vuelo);
+		if (almacenados != null) {
+			for (int i = 0; i < almacenados.cantidad; i++) {
+				Tiquete tiquete = vuelo.getAlmacen().getTiquete(almacenados.valores[i]);
+				if (tiquete.esUsado())
+					this.valorTiquetesUsados -= tiquete.getTarifa();
+				else
+					this.valorTiquetesSinUsar -= tiquete.getTarifa();
+			}
+		}
+	}
+	
+	/**
+	 * Retorna el valor de todos los tiquetes del cliente, usados y sin usar
+	 * @return La suma de las tarifas de los tiquetes
+	 */
+	public synchronized long calcularValorTotalTiquetes() {
+		return this.valorTiquetesSinUsar + this.valorTiquetesUsados;
+	}
+	
+	/**
+	 * Retorna el valor de los tiquetes que el cliente compró y todavía no ha usado
+	 * @return La suma de las tarifas de los tiquetes sin usar
+	 */
+	public synchronized long getSaldoPendiente() {
+		return this.valorTiquetesSinUsar;
+	}
+	
+	/**
+	 * Marca como usados todos los tiquetes sin usar que el cliente tiene para un vuelo
+	 * @param vuelo El vuelo
+	 * @return La cantidad de tiquetes que se marcaron como usados
+	 */
+	public synchronized int usarTiquetes(Vuelo vuelo) {
+		Posiciones almacenados = this.tiquetesAlmacenados.get(vuelo);
+		if (almacenados != null)
+			return usarTiquetesAlmacenados(vuelo.getAlmacen(), almacenados);
+		
+		List<Tiquete> tiquetesVuelo = this.tiquetesSinUsar.remove(vuelo);
+		if (tiquetesVuelo == null)
+			return 0;
+		
+		List<Tiquete> usados = this.tiquetesUsados.get(vuelo);
+		if (usados == null) {
+			usados = new ArrayList<Tiquete>(tiquetesVuelo.size());
+			this.tiquetesUsados.put(vuelo, usados);
+		}
+		for (Tiquete current : tiquetesVuelo) {
+			current.marcarComoUsado();
+			usados.add(current);
+			this.valorTiquetesSinUsar -= current.getTarifa();
+			this.valorTiquetesUsados += current.getTarifa();
 		}
-		return totalSpent;
+		return tiquetesVuelo.size();
 	}
 	
-	public void usarTiquetes(Vuelo vuelo) {
-		Collection<Tiquete> ticketsFlight = vuelo.getTiquetes();
-		for (Tiquete current : tiquetesSinUsar) {
-			if (ticketsFlight.contains(current)) {
-				current.marcarComoUsado();
-				this.tiquetesUsados.add(current);
-				this.tiquetesSinUsar.remove(current);
+	/**
+	 * Marca como usados los tiquetes sin usar de un vuelo que están en un almacén
+	 * @param almacen El almacén del vuelo
+	 * @param posiciones Las posiciones de los tiquetes del cliente para el vuelo
+	 * @return La cantidad de tiquetes que se marcaron como usados
+	 */
+	private int usarTiquetesAlmacenados(AlmacenTiquetes almacen, Posiciones posiciones) {
+		int usados = 0;
+		for (int i = 0; i < posiciones.cantidad; i++) {
+			if (almacen.marcarComoUsado(posiciones.valores[i])) {
+				int tarifa = almacen.getTiquete(posiciones.valores[i]).getTarifa();
+				this.valorTiquetesSinUsar -= tarifa;
+				this.valorTiquetesUsados += tarifa;
+				usados++;
 			}
 		}
+		return usados;
+	}
+	
+	/**
+	 * Agrega un tiquete a la lista de su vuelo en un mapa de tiquetes
+	 */
+	private static void agregar(Map<Vuelo, List<Tiquete>> tiquetes, Tiquete tiquete) {
+		List<Tiquete> tiquetesVuelo = tiquetes.get(tiquete.getVuelo());
+		if (tiquetesVuelo == null) {
+			tiquetesVuelo = new ArrayList<Tiquete>();
+			tiquetes.put(tiquete.getVuelo(), tiquetesVuelo);
+		}
+		tiquetesVuelo.add(tiquete);
+	}
+	
+	/**
+	 * Quita un tiquete de la lista de su vuelo en un mapa de tiquetes
+	 * @return Retorna true si el tiquete estaba en el mapa
+	 */
+	private static boolean quitar(Map<Vuelo, List<Tiquete>> tiquetes, Tiquete tiquete) {
+		List<Tiquete> tiquetesVuelo = tiquetes.get(tiquete.getVuelo());
+		if (tiquetesVuelo == null || !tiquetesVuelo.remove(tiquete))
+			return false;
+		if (tiquetesVuelo.isEmpty())
+			tiquetes.remove(tiquete.getVuelo());
+		return true;
 	}
 
+	/**
+	 * Una lista de posiciones de tiquetes en un almacén, guardadas en un arreglo de enteros
+	 */
+	private static class Posiciones {
+		private int[] valores = new int[4];
+		private int cantidad;
+		
+		private void agregar(int posicion) {
+			if (cantidad == valores.length)
+				valores = Arrays.copyOf(valores, cantidad * 2);
+			valores[cantidad++] = posicion;
+		}
+		
+		private boolean contiene(int posicion) {
+			for (int i = 0; i < cantidad; i++) {
+				if (valores[i] == posicion)
+					return true;
+			}
+			return false;
+		}
+		
+		private boolean quitar(int posicion) {
+			for (int i = 0; i < cantidad; i++) {
+				if (valores[i] == posicion) {
+					valores[i] = valores[--cantidad];
+					return true;
+				}
+			}
+			return false;
+		}
+	}
 }
@@ -1,14 +1,45 @@
 package uniandes.dpoo.aerolinea.modelo.tarifas;
 
-import uniandes.dpoo.aerolinea.modelo.Aeropuerto;
+import java.util.Arrays;
+
 import uniandes.dpoo.aerolinea.modelo.Ruta;
 import uniandes.dpoo.aerolinea.modelo.Vuelo;
 import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
 
+/**
+ * Esta clase define cómo se calculan las tarifas de los tiquetes.
+ * 
+ * Las tarifas sólo dependen de la ruta del vuelo y de la categoría del cliente (natural, o corporativo de un cierto tamaño), así que las tarifas que ya se calcularon se
+ * guardan en la ruta (ver Ruta.getTarifasCalculadas), en una tabla por calculadora indexada por categoría. Las subclases deben respetar esa condición. Como las
+ * calculadoras no tienen estado, se puede usar una sola instancia de cada una (ver los métodos getInstancia de las subclases) desde varios hilos y desde varias
+ * aerolíneas, sin que conserven las rutas de ninguna.
+ */
 public abstract class CalculadoraTarifas {
 	public final double IMPUESTO = 0.28;
 	
+	/**
+	 * La cantidad de categorías de clientes: los clientes naturales y los corporativos de cada uno de los tres tamaños
+	 */
+	public static final int CATEGORIAS = 4;
+	
 	public int calcularTarifa(Vuelo vuelo, Cliente cliente) {
+		int categoria = getCategoriaCliente(cliente);
+		if (categoria < 0)
+			return calcularTarifaSinTabla(vuelo, cliente);
+		
+		int[] tarifasRuta = vuelo.getRuta().getTarifasCalculadas().computeIfAbsent(this, calculadora -> nuevaFilaTarifas());
+		int tarifa = tarifasRuta[categoria];
+		if (tarifa < 0) {
+			// Si dos hilos calculan la misma tarifa al tiempo, ambos obtienen el mismo valor
+			tarifa = calcularTarifaSinTabla(vuelo, cliente);
+			tarifasRuta[categoria] = tarifa;
+		}
+		return tarifa;
+	}
+	
+	private int calcularTarifaSinTabla(Vuelo vuelo, Cliente cliente) {
 		int costoBase = calcularCostoBase(vuelo, cliente);
 		double descuento = calcularPorcentajeDescuento(cliente);
 		
@@ -22,7 +53,7 @@ public abstract class CalculadoraTarifas {
 	protected abstract double calcularPorcentajeDescuento(Cliente cliente);
 	
 	protected int calcularDistanciaVuelo(Ruta ruta) { 
-		return Aeropuerto.calcularDistancia(ruta.getOrigen(), ruta.getDestino());
+		return ruta.getDistancia();
 	}
 	
 	protected int calcularValorImpuestos(int costoBase) {
@@ -30,4 +61,26 @@ public abstract class CalculadoraTarifas {
 		return impuesto;
 	}
 	
+	/**
+	 * Calcula la categoría de un cliente. Todos los clientes de una misma categoría pagan la misma tarifa por un vuelo.
+	 * @param cliente El cliente
+	 * @return 0 para los clientes naturales, el tamaño de la empresa (entre 1 y 3) para los corporativos, o -1 si el cliente no cabe en ninguna categoría
+	 */
+	public static int getCategoriaCliente(Cliente cliente) {
+		if (ClienteNatural.NATURAL.equals(cliente.getTipoCliente()))
+			return 0;
+		if (cliente instanceof ClienteCorporativo) {
+			int tamano = ((ClienteCorporativo) cliente).getTamanoEmpresa();
+			if (tamano >= 1 && tamano < CATEGORIAS)
+				return tamano;
+		}
+		return -1;
+	}
+	
+	private static int[] nuevaFilaTarifas() {
+		int[] fila = new int[CATEGORIAS];
+		Arrays.fill(fila, -1);
+		return fila;
+	}
+	
 }
@@ -6,6 +6,16 @@ import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
 
 public class CalculadoraTarifasTemporadaAlta extends CalculadoraTarifas{
 
+	private static final CalculadoraTarifasTemporadaAlta INSTANCIA = new CalculadoraTarifasTemporadaAlta();
+	
+	/**
+	 * Retorna la instancia compartida de esta calculadora
+	 * @return
+	 */
+	public static CalculadoraTarifasTemporadaAlta getInstancia() {
+		return INSTANCIA;
+	}
+	
 	protected final int COSTO_POR_KM = 1000;
 	
 	@Override
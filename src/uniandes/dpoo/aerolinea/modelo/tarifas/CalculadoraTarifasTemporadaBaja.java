@@ -7,6 +7,16 @@ import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
 
 public class CalculadoraTarifasTemporadaBaja extends CalculadoraTarifas{
 
+	private static final CalculadoraTarifasTemporadaBaja INSTANCIA = new CalculadoraTarifasTemporadaBaja();
+	
+	/**
+	 * Retorna la instancia compartida de esta calculadora
+	 * @return
+	 */
+	public static CalculadoraTarifasTemporadaBaja getInstancia() {
+		return INSTANCIA;
+	}
+	
 	protected final int COSTO_POR_KM_NATURAL = 600;
 	protected final int COSTO_POR_KM_CORPORATIVO = 900;
 	protected final double DESCUENTO_PEQ = 0.02;
@@ -0,0 +1,851 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteTiqueteException;
+import uniandes.dpoo.aerolinea.exceptions.VueloSobrevendidoException;
+import uniandes.dpoo.aerolinea.metricas.Contador;
+import uniandes.dpoo.aerolinea.metricas.Histograma;
+import uniandes.dpoo.aerolinea.metricas.Metricas;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Vuelo;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase representa la bitácora de una aerolínea: un archivo al que sólo se le agregan registros, uno por cada cambio en el estado de la aerolínea, para que guardar
+ * un cambio cueste en proporción al cambio y no a todos los datos de la aerolínea.
+ *
+ * Los cambios que se registran son los clientes agregados, los vuelos programados, los tiquetes vendidos (con los códigos que se les generaron), los tiquetes de un vuelo
+ * marcados como usados y los vuelos realizados. Los cambios en las rutas y los aviones no se registran: después de cambiarlos hay que compactar la bitácora.
+ *
+ * La bitácora está compuesta por los siguientes archivos, cuyos nombres empiezan con una misma ruta base:
+ * <ul>
+ * <li>El archivo de registros ('.bitacora'), que empieza con el número mágico 'DPOJ', la versión del formato y el número de la instantánea sobre la que se aplican los
+ * registros. Cada registro tiene su longitud, el CRC32 de su contenido, el tipo de cambio y los datos del cambio.</li>
+ * <li>La instantánea del catálogo ('.N.aerolinea') y la de los clientes y tiquetes ('.N.tiquetes'), en los formatos de PersistenciaAerolineaBinaria y
+ * PersistenciaTiquetesBinaria. El número 0 indica que todavía no hay una instantánea.</li>
+ * </ul>
+ *
+ * Al compactar se escribe una instantánea nueva y se reemplaza el archivo de registros por uno vacío que apunta a ella; el reemplazo es atómico, así que si el programa
+ * falla a mitad de la compactación se sigue usando la instantánea anterior con todos sus registros. Al recuperar se carga la instantánea y se vuelven a aplicar los
+ * registros. Si el último registro quedó escrito a medias, se descarta.
+ *
+ * La aerolínea escribe el registro de cada cambio antes de hacerlo: si el registro no se puede escribir, el cambio no se hace. Un registro que falla a mitad de la
+ * escritura se quita del archivo, para que los registros siguientes no queden después de uno incompleto.
+ *
+ * Los registros se escriben en el disco por grupos cuando terminan los cambios: si la bitácora espera al disco en cada cambio, los cambios que terminan al mismo tiempo
+ * comparten una sola sincronización; si no, se sincroniza cada cierta cantidad de registros o de tiempo, y siempre al compactar y al cerrar.
+ */
+public class BitacoraAerolinea implements Closeable
+{
+    /**
+     * El número mágico con el que empieza el archivo de registros
+     */
+    private static final int MAGICO = 0x44504F4A;
+
+    /**
+     * La versión actual del formato de los registros
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * El tamaño en bytes del encabezado del archivo de registros
+     */
+    private static final int TAMANO_ENCABEZADO = 13;
+
+    /**
+     * El tamaño máximo en bytes del contenido de un registro. Un registro más grande se considera dañado.
+     */
+    private static final int MAXIMO_REGISTRO = 1 << 24;
+
+    /**
+     * La cantidad de registros después de la cual se sincroniza el archivo cuando la bitácora no espera al disco en cada cambio
+     */
+    private static final int REGISTROS_POR_GRUPO = 512;
+
+    /**
+     * El tiempo en milisegundos después del cual se sincroniza el archivo cuando la bitácora no espera al disco en cada cambio
+     */
+    private static final long INTERVALO_SINCRONIZACION = 200;
+
+    /**
+     * Las métricas de la bitácora: la latencia de escribir un registro (sin esperar el disco), la de cada sincronización con el disco y la cantidad de bytes escritos
+     */
+    private static final Histograma LATENCIA_REGISTRO = Metricas.getHistograma( "bitacora.escribirRegistro" );
+    private static final Histograma LATENCIA_SINCRONIZACION = Metricas.getHistograma( "bitacora.sincronizar" );
+    private static final Contador BYTES_ESCRITOS = Metricas.getContador( "bitacora.bytesEscritos" );
+
+    private static final int CLIENTE_AGREGADO = 1;
+    private static final int VUELO_PROGRAMADO = 2;
+    private static final int TIQUETES_VENDIDOS = 3;
+    private static final int TIQUETES_USADOS = 4;
+    private static final int VUELO_REALIZADO = 5;
+
+    private static final int NATURAL = 0;
+    private static final int CORPORATIVO = 1;
+
+    /**
+     * La ruta base de los archivos de la bitácora
+     */
+    private String rutaBase;
+
+    /**
+     * Indica si cada cambio debe esperar a que su registro quede escrito en el disco
+     */
+    private boolean esperarDisco;
+
+    /**
+     * El número de la instantánea sobre la que se aplican los registros
+     */
+    private long instantanea;
+
+    /**
+     * El canal con el que se escribe el archivo de registros, o null si la bitácora todavía no se ha recuperado
+     */
+    private FileChannel canal;
+
+    /**
+     * La cantidad de bytes escritos en el archivo de registros
+     */
+    private volatile long escrito;
+
+    /**
+     * La cantidad de bytes del archivo de registros que ya quedaron escritos en el disco
+     */
+    private long sincronizado;
+
+    /**
+     * Indica si algún hilo está sincronizando el archivo de registros
+     */
+    private boolean sincronizando;
+
+    /**
+     * El objeto sobre el que se coordinan los hilos que esperan a que el archivo de registros quede escrito en el disco
+     */
+    private final Object disco = new Object( );
+
+    /**
+     * La cantidad de registros escritos desde la última sincronización
+     */
+    private int registrosPendientes;
+
+    /**
+     * El momento (en milisegundos) de la última sincronización
+     */
+    private long ultimaSincronizacion;
+
+    /**
+     * El candado que impide compactar mientras se está haciendo un cambio: los cambios toman el candado de lectura, así que pueden hacerse varios a la vez, y la
+     * compactación toma el de escritura
+     */
+    private final ReentrantReadWriteLock cambios = new ReentrantReadWriteLock( );
+
+    /**
+     * Crea una bitácora. Los archivos no se abren hasta que se recupera la aerolínea.
+     * @param rutaBase La ruta base de los archivos de la bitácora
+     * @param esperarDisco Indica si cada cambio debe esperar a que su registro quede escrito en el disco. Si es false, al fallar el programa se pueden perder los últimos
+     *        cambios.
+     */
+    public BitacoraAerolinea( String rutaBase, boolean esperarDisco )
+    {
+        this.rutaBase = rutaBase;
+        this.esperarDisco = esperarDisco;
+    }
+
+    // ************************************************************************************
+    //
+    // Recuperación y compactación
+    //
+    // ************************************************************************************
+
+    /**
+     * Reconstruye el estado de una aerolínea a partir de la bitácora y la deja registrando sus cambios en ella.
+     *
+     * Si la bitácora tiene una instantánea, la aerolínea debe estar vacía, porque la instantánea incluye el catálogo. Si no la tiene, la aerolínea ya debe tener las rutas y
+     * los aviones sobre los que se hicieron los cambios. Si la bitácora no existe, se crea vacía.
+     * @param aerolinea La aerolínea
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo o escribiendo los archivos
+     * @throws InformacionInconsistenteException Se lanza esta excepción si la instantánea o algún registro no son consistentes con la aerolínea
+     */
+    public synchronized void recuperar( Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
+    {
+        if( canal != null )
+            throw new IllegalStateException( "La bitácora ya fue recuperada" );
+
+        File archivo = getArchivoRegistros( );
+        if( !archivo.exists( ) )
+            crearArchivoRegistros( archivo, 0 );
+
+        long fin;
+        try( DataInputStream entrada = new DataInputStream( new BufferedInputStream( Files.newInputStream( archivo.toPath( ) ), 1 << 16 ) ) )
+        {
+            if( entrada.readInt( ) != MAGICO || entrada.readByte( ) != VERSION )
+                throw new InformacionInconsistenteException( "El archivo " + archivo.getPath( ) + " no es una bitácora de la aerolínea" );
+            instantanea = entrada.readLong( );
+
+            // Los códigos de la instantánea y de los registros se revisan juntos para encontrar los repetidos aunque el registro de códigos sea persistente
+            CodigosCargados codigos = new CodigosCargados( aerolinea );
+            if( instantanea > 0 )
+            {
+                new PersistenciaAerolineaBinaria( ).cargarAerolinea( getArchivoInstantanea( instantanea, ".aerolinea" ), aerolinea );
+                new PersistenciaTiquetesBinaria( ).cargarTiquetes( getArchivoInstantanea( instantanea, ".tiquetes" ), aerolinea, codigos );
+            }
+            fin = aplicarRegistros( entrada, aerolinea, codigos );
+        }
+
+        canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.WRITE );
+        // Se descarta lo que haya quedado escrito a medias después del último registro completo
+        canal.truncate( fin );
+        canal.position( fin );
+        canal.force( true );
+        escrito = fin;
+        sincronizado = fin;
+        ultimaSincronizacion = System.currentTimeMillis( );
+
+        aerolinea.setBitacora( this );
+    }
+
+    /**
+     * Escribe una instantánea con todo el estado de la aerolínea y deja el archivo de registros vacío. Mientras se compacta no se pueden hacer cambios en la aerolínea.
+     * @param aerolinea La aerolínea cuyos cambios se registran en esta bitácora
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo los archivos. En ese caso se borran los archivos de la nueva instantánea y se sigue
+     *         usando la instantánea anterior, con el mismo archivo de registros.
+     */
+    public void compactar( Aerolinea aerolinea ) throws IOException
+    {
+        cambios.writeLock( ).lock( );
+        try
+        {
+            synchronized( this )
+            {
+                verificarAbierta( );
+                long nueva = instantanea + 1;
+                File temporal = new File( getArchivoRegistros( ).getPath( ) + ".tmp" );
+                FileChannel nuevoCanal = null;
+                try
+                {
+                    new PersistenciaAerolineaBinaria( ).salvarAerolinea( getArchivoInstantanea( nueva, ".aerolinea" ), aerolinea );
+                    new PersistenciaTiquetesBinaria( ).salvarTiquetes( getArchivoInstantanea( nueva, ".tiquetes" ), aerolinea );
+                    forzar( getArchivoInstantanea( nueva, ".aerolinea" ) );
+                    forzar( getArchivoInstantanea( nueva, ".tiquetes" ) );
+
+                    // El canal nuevo se abre antes del reemplazo, así que sigue apuntando al archivo nuevo después de moverlo, y el canal anterior sigue sirviendo si el
+                    // reemplazo falla
+                    crearArchivoRegistros( temporal, nueva );
+                    nuevoCanal = FileChannel.open( temporal.toPath( ), StandardOpenOption.WRITE );
+                    nuevoCanal.position( TAMANO_ENCABEZADO );
+
+                    // El reemplazo del archivo de registros es el momento en el que la nueva instantánea empieza a usarse
+                    Files.move( temporal.toPath( ), getArchivoRegistros( ).toPath( ), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+                }
+                catch( IOException | RuntimeException e )
+                {
+                    if( nuevoCanal != null )
+                        nuevoCanal.close( );
+                    temporal.delete( );
+                    new File( getArchivoInstantanea( nueva, ".aerolinea" ) ).delete( );
+                    new File( getArchivoInstantanea( nueva, ".tiquetes" ) ).delete( );
+                    throw e;
+                }
+                FileChannel canalAnterior = canal;
+                canal = nuevoCanal;
+                try
+                {
+                    canalAnterior.close( );
+                }
+                catch( IOException e )
+                {
+                    // El archivo anterior ya fue reemplazado, así que sus registros ya no se necesitan
+                }
+
+                long anterior = instantanea;
+                instantanea = nueva;
+                escrito = TAMANO_ENCABEZADO;
+                registrosPendientes = 0;
+                synchronized( disco )
+                {
+                    sincronizado = TAMANO_ENCABEZADO;
+                }
+                if( anterior > 0 )
+                {
+                    new File( getArchivoInstantanea( anterior, ".aerolinea" ) ).delete( );
+                    new File( getArchivoInstantanea( anterior, ".tiquetes" ) ).delete( );
+                }
+            }
+        }
+        finally
+        {
+            cambios.writeLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Retorna el tamaño en bytes del archivo de registros, que sirve para decidir cuándo compactar
+     * @return
+     */
+    public long getTamano( )
+    {
+        return escrito;
+    }
+
+    /**
+     * Obliga a que todos los registros escritos hasta ahora queden escritos en el disco
+     * @throws IOException Se lanza esta excepción si hay problemas sincronizando el archivo
+     */
+    public void sincronizar( ) throws IOException
+    {
+        // Con el candado de lectura no se puede compactar mientras se espera, porque la compactación vuelve a empezar las posiciones del archivo de registros
+        cambios.readLock( ).lock( );
+        try
+        {
+            esperarSincronizacion( escrito );
+        }
+        finally
+        {
+            cambios.readLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Escribe en el disco todos los registros y cierra el archivo de registros
+     * @throws IOException Se lanza esta excepción si hay problemas cerrando el archivo
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        cambios.writeLock( ).lock( );
+        try
+        {
+            synchronized( this )
+            {
+                if( canal != null )
+                {
+                    canal.force( false );
+                    canal.close( );
+                    canal = null;
+                }
+            }
+        }
+        finally
+        {
+            cambios.writeLock( ).unlock( );
+        }
+    }
+
+    // ************************************************************************************
+    //
+    // Registro de los cambios
+    //
+    // ************************************************************************************
+
+    /**
+     * Indica que empieza un cambio en la aerolínea. Hasta que el cambio termine no se puede compactar la bitácora, así que la instantánea nunca incluye un cambio cuyo
+     * registro quede después de ella.
+     */
+    public void iniciarCambio( )
+    {
+        cambios.readLock( ).lock( );
+    }
+
+    /**
+     * Indica que terminó un cambio en la aerolínea. Si la bitácora espera al disco en cada cambio, este método retorna cuando los registros del cambio quedaron escritos;
+     * si no, sincroniza el archivo cuando se completa un grupo de registros.
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas sincronizando el archivo. En ese caso el cambio ya se hizo y su registro ya se escribió, pero
+     *         no se sabe si quedó en el disco.
+     */
+    public void terminarCambio( )
+    {
+        try
+        {
+            if( esperarDisco || completoGrupo( ) )
+                esperarSincronizacion( escrito );
+        }
+        catch( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+        finally
+        {
+            cambios.readLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Registra que se agregó un cliente a la aerolínea
+     * @param cliente El cliente
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo el registro
+     */
+    public void registrarCliente( Cliente cliente )
+    {
+        escribirRegistro( salida -> {
+            salida.writeByte( CLIENTE_AGREGADO );
+            if( ClienteNatural.NATURAL.equals( cliente.getTipoCliente( ) ) )
+            {
+                salida.writeByte( NATURAL );
+                salida.writeUTF( cliente.getIdentificador( ) );
+            }
+            else
+            {
+                salida.writeByte( CORPORATIVO );
+                salida.writeUTF( cliente.getIdentificador( ) );
+                salida.writeInt( ( ( ClienteCorporativo )cliente ).getTamanoEmpresa( ) );
+            }
+        } );
+    }
+
+    /**
+     * Registra que se programó un vuelo
+     * @param fecha La fecha del vuelo
+     * @param codigoRuta El código de la ruta del vuelo
+     * @param nombreAvion El nombre del avión del vuelo
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo el registro
+     */
+    public void registrarVueloProgramado( String fecha, String codigoRuta, String nombreAvion )
+    {
+        escribirRegistro( salida -> {
+            salida.writeByte( VUELO_PROGRAMADO );
+            salida.writeUTF( fecha );
+            salida.writeUTF( codigoRuta );
+            salida.writeUTF( nombreAvion );
+        } );
+    }
+
+    /**
+     * Registra que se van a vender unos tiquetes de un vuelo a un cliente, con los códigos que se les asignaron
+     * @param vuelo El vuelo
+     * @param cliente El cliente
+     * @param tarifa La tarifa de cada tiquete
+     * @param codigos Los códigos de los tiquetes
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo el registro
+     */
+    public void registrarVenta( Vuelo vuelo, Cliente cliente, int tarifa, String[] codigos )
+    {
+        escribirRegistro( salida -> {
+            salida.writeByte( TIQUETES_VENDIDOS );
+            salida.writeUTF( vuelo.getFecha( ) );
+            salida.writeUTF( vuelo.getRuta( ).getCodigoRuta( ) );
+            salida.writeUTF( cliente.getIdentificador( ) );
+            salida.writeInt( tarifa );
+            salida.writeInt( codigos.length );
+            for( String codigo : codigos )
+                salida.writeUTF( codigo );
+        } );
+    }
+
+    /**
+     * Registra que se marcaron como usados todos los tiquetes de un vuelo
+     * @param vuelo El vuelo
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo el registro
+     */
+    public void registrarTiquetesUsados( Vuelo vuelo )
+    {
+        escribirRegistro( salida -> {
+            salida.writeByte( TIQUETES_USADOS );
+            salida.writeUTF( vuelo.getFecha( ) );
+            salida.writeUTF( vuelo.getRuta( ).getCodigoRuta( ) );
+        } );
+    }
+
+    /**
+     * Registra que un vuelo fue realizado
+     * @param vuelo El vuelo
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo el registro
+     */
+    public void registrarVueloRealizado( Vuelo vuelo )
+    {
+        escribirRegistro( salida -> {
+            salida.writeByte( VUELO_REALIZADO );
+            salida.writeUTF( vuelo.getFecha( ) );
+            salida.writeUTF( vuelo.getRuta( ).getCodigoRuta( ) );
+        } );
+    }
+
+    // ************************************************************************************
+    //
+    // Métodos auxiliares
+    //
+    // ************************************************************************************
+
+    /**
+     * Esta interfaz representa la escritura del contenido de un registro
+     */
+    private interface ContenidoRegistro
+    {
+        void escribir( DataOutputStream salida ) throws IOException;
+    }
+
+    /**
+     * Escribe un registro al final del archivo de registros. El registro se sincroniza con el disco cuando termina el cambio.
+     * @param contenido La escritura del contenido del registro
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo el registro. En ese caso el registro no queda en el archivo.
+     */
+    private void escribirRegistro( ContenidoRegistro contenido )
+    {
+        long inicio = Metricas.iniciar( );
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream( 64 );
+            DataOutputStream salida = new DataOutputStream( bytes );
+            salida.writeInt( 0 );
+            salida.writeInt( 0 );
+            contenido.escribir( salida );
+            salida.flush( );
+
+            ByteBuffer registro = ByteBuffer.wrap( bytes.toByteArray( ) );
+            int longitud = registro.capacity( ) - 8;
+            CRC32 crc = new CRC32( );
+            crc.update( registro.array( ), 8, longitud );
+            registro.putInt( 0, longitud );
+            registro.putInt( 4, ( int )crc.getValue( ) );
+
+            synchronized( this )
+            {
+                verificarAbierta( );
+                try
+                {
+                    while( registro.hasRemaining( ) )
+                        canal.write( registro );
+                }
+                catch( IOException e )
+                {
+                    descartarEscrituraIncompleta( e );
+                    throw e;
+                }
+                escrito += registro.capacity( );
+                registrosPendientes++;
+                BYTES_ESCRITOS.sumar( registro.capacity( ) );
+            }
+            LATENCIA_REGISTRO.registrarDesde( inicio );
+        }
+        catch( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Quita del archivo de registros lo que se alcanzó a escribir de un registro que falló, para que el siguiente registro quede justo después del último completo
+     * @param error El error con el que falló la escritura. Si no se puede quitar lo escrito, el nuevo error se agrega como suprimido.
+     */
+    private void descartarEscrituraIncompleta( IOException error )
+    {
+        try
+        {
+            canal.truncate( escrito );
+            canal.position( escrito );
+        }
+        catch( IOException e )
+        {
+            error.addSuppressed( e );
+        }
+    }
+
+    /**
+     * Indica si se completó un grupo de registros que se deben sincronizar, cuando la bitácora no espera al disco en cada cambio
+     * @return Retorna true si hay registros pendientes y ya son suficientes o ya pasó el intervalo de sincronización
+     */
+    private synchronized boolean completoGrupo( )
+    {
+        return registrosPendientes > 0
+                && ( registrosPendientes >= REGISTROS_POR_GRUPO || System.currentTimeMillis( ) - ultimaSincronizacion >= INTERVALO_SINCRONIZACION );
+    }
+
+    /**
+     * Espera a que el archivo de registros quede escrito en el disco hasta una cierta posición.
+     *
+     * Si ningún hilo está sincronizando el archivo, este hilo lo sincroniza con todo lo que se haya escrito hasta el momento, incluyendo los registros de los demás hilos;
+     * si otro hilo ya lo está sincronizando, este hilo espera a que termine y vuelve a revisar. Así, los cambios que terminan al mismo tiempo comparten una sola
+     * sincronización.
+     * @param posicion La posición hasta la que deben quedar escritos los registros
+     * @throws IOException Se lanza esta excepción si hay problemas sincronizando el archivo
+     */
+    private void esperarSincronizacion( long posicion ) throws IOException
+    {
+        while( true )
+        {
+            synchronized( disco )
+            {
+                while( sincronizando && sincronizado < posicion )
+                {
+                    try
+                    {
+                        disco.wait( );
+                    }
+                    catch( InterruptedException e )
+                    {
+                        Thread.currentThread( ).interrupt( );
+                        throw new InterruptedIOException( "Se interrumpió la espera de la sincronización de la bitácora" );
+                    }
+                }
+                if( sincronizado >= posicion )
+                    return;
+                sincronizando = true;
+            }
+
+            long objetivo = 0;
+            boolean exito = false;
+            try
+            {
+                FileChannel canalActual;
+                synchronized( this )
+                {
+                    verificarAbierta( );
+                    canalActual = canal;
+                    objetivo = escrito;
+                    registrosPendientes = 0;
+                    ultimaSincronizacion = System.currentTimeMillis( );
+                }
+                long inicio = Metricas.iniciar( );
+                canalActual.force( false );
+                LATENCIA_SINCRONIZACION.registrarDesde( inicio );
+                exito = true;
+            }
+            finally
+            {
+                synchronized( disco )
+                {
+                    sincronizando = false;
+                    if( exito && objetivo > sincronizado )
+                        sincronizado = objetivo;
+                    disco.notifyAll( );
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee y aplica a la aerolínea los registros que siguen al encabezado del archivo de registros
+     * @param entrada El flujo del archivo de registros, ubicado después del encabezado
+     * @param aerolinea La aerolínea
+     * @param codigos Los códigos de los tiquetes que ya se cargaron en esta recuperación
+     * @return La posición del final del último registro completo
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     * @throws InformacionInconsistenteException Se lanza esta excepción si algún registro no es consistente con la aerolínea
+     */
+    private long aplicarRegistros( DataInputStream entrada, Aerolinea aerolinea, CodigosCargados codigos ) throws IOException, InformacionInconsistenteException
+    {
+        long fin = TAMANO_ENCABEZADO;
+        CRC32 crc = new CRC32( );
+        while( true )
+        {
+            byte[] contenido;
+            try
+            {
+                int longitud = entrada.readInt( );
+                int esperado = entrada.readInt( );
+                if( longitud <= 0 || longitud > MAXIMO_REGISTRO )
+                    return fin;
+                contenido = new byte[longitud];
+                entrada.readFully( contenido );
+                crc.reset( );
+                crc.update( contenido );
+                if( ( int )crc.getValue( ) != esperado )
+                    return fin;
+            }
+            catch( EOFException e )
+            {
+                return fin;
+            }
+
+            aplicarRegistro( new DataInputStream( new ByteArrayInputStream( contenido ) ), aerolinea, codigos );
+            fin += 8 + contenido.length;
+        }
+    }
+
+    /**
+     * Aplica un registro a la aerolínea
+     * @param registro El contenido del registro
+     * @param aerolinea La aerolínea
+     * @param codigos Los códigos de los tiquetes que ya se cargaron en esta recuperación
+     * @throws IOException Se lanza esta excepción si el contenido del registro está incompleto
+     * @throws InformacionInconsistenteException Se lanza esta excepción si el registro no es consistente con la aerolínea
+     */
+    private void aplicarRegistro( DataInputStream registro, Aerolinea aerolinea, CodigosCargados codigos ) throws IOException, InformacionInconsistenteException
+    {
+        int tipo = registro.readByte( );
+        if( tipo == CLIENTE_AGREGADO )
+        {
+            int tipoCliente = registro.readByte( );
+            String identificador = registro.readUTF( );
+            if( tipoCliente == NATURAL )
+                aerolinea.agregarCliente( new ClienteNatural( identificador ) );
+            else
+                aerolinea.agregarCliente( new ClienteCorporativo( identificador, registro.readInt( ) ) );
+        }
+        else if( tipo == VUELO_PROGRAMADO )
+        {
+            String fecha = registro.readUTF( );
+            String codigoRuta = registro.readUTF( );
+            String nombreAvion = registro.readUTF( );
+            try
+            {
+                aerolinea.programarVuelo( fecha, codigoRuta, nombreAvion );
+            }
+            catch( InformacionInconsistenteException e )
+            {
+                throw e;
+            }
+            catch( Exception e )
+            {
+                throw new InformacionInconsistenteException( e.getMessage( ) );
+            }
+        }
+        else if( tipo == TIQUETES_VENDIDOS )
+        {
+            aplicarVenta( registro, aerolinea, codigos );
+        }
+        else if( tipo == TIQUETES_USADOS )
+        {
+            String fecha = registro.readUTF( );
+            aerolinea.usarTiquetesVuelo( fecha, registro.readUTF( ) );
+        }
+        else if( tipo == VUELO_REALIZADO )
+        {
+            String fecha = registro.readUTF( );
+            String codigoRuta = registro.readUTF( );
+            try
+            {
+                aerolinea.registrarVueloRealizado( fecha, codigoRuta );
+            }
+            catch( IllegalArgumentException e )
+            {
+                throw new InformacionInconsistenteException( e.getMessage( ) );
+            }
+        }
+        else
+            throw new InformacionInconsistenteException( "La bitácora tiene un registro de un tipo desconocido: " + tipo );
+    }
+
+    /**
+     * Aplica a la aerolínea un registro de venta de tiquetes, creando los tiquetes con los mismos códigos que tenían cuando se vendieron.
+     *
+     * Una venta sólo se registra mientras su vuelo está programado (la venta revisa el índice con el candado del vuelo), así que si el vuelo ya no existe la bitácora no
+     * es consistente.
+     * @param registro El contenido del registro, después del tipo
+     * @param aerolinea La aerolínea
+     * @param codigos Los códigos de los tiquetes que ya se cargaron en esta recuperación. Los códigos de la venta se agregan a este objeto.
+     * @throws IOException Se lanza esta excepción si el contenido del registro está incompleto
+     * @throws InformacionInconsistenteException Se lanza esta excepción si el registro no es consistente con la aerolínea
+     */
+    private void aplicarVenta( DataInputStream registro, Aerolinea aerolinea, CodigosCargados codigos ) throws IOException, InformacionInconsistenteException
+    {
+        String fecha = registro.readUTF( );
+        String codigoRuta = registro.readUTF( );
+        String identificadorCliente = registro.readUTF( );
+        int tarifa = registro.readInt( );
+        int cantidad = registro.readInt( );
+
+        Vuelo vuelo = aerolinea.getVuelo( codigoRuta, fecha );
+        if( vuelo == null )
+            throw new InformacionInconsistenteTiqueteException( "vuelo", codigoRuta + " en " + fecha );
+        Cliente cliente = aerolinea.getCliente( identificadorCliente );
+        if( cliente == null )
+            throw new InformacionInconsistenteTiqueteException( "cliente", identificadorCliente );
+
+        for( int i = 0; i < cantidad; i++ )
+        {
+            String codigoTiquete = registro.readUTF( );
+            // Si el registro de códigos es persistente, los códigos ya quedaron registrados cuando se vendieron los tiquetes, así que los repetidos se detectan con los
+            // códigos que ya tenía la aerolínea y los cargados en esta recuperación
+            if( !codigos.agregar( codigoTiquete ) || ( GeneradorTiquetes.validarTiquete( codigoTiquete ) && !GeneradorTiquetes.esRegistroPersistente( ) ) )
+                throw new InformacionInconsistenteTiqueteException( "tiquete", codigoTiquete, false );
+
+            Tiquete tiquete = new Tiquete( codigoTiquete, vuelo, cliente, tarifa );
+            try
+            {
+                // Si el vuelo usa un almacén, el tiquete que queda en el vuelo es otro
+                tiquete = vuelo.agregarTiquete( tiquete );
+            }
+            catch( VueloSobrevendidoException e )
+            {
+                cliente.retirarTiquete( tiquete );
+                throw new InformacionInconsistenteException( e.getMessage( ) );
+            }
+            GeneradorTiquetes.registrarTiquete( tiquete );
+        }
+    }
+
+    /**
+     * Crea un archivo de registros vacío y lo escribe en el disco
+     * @param archivo El archivo
+     * @param numeroInstantanea El número de la instantánea sobre la que se aplicarán los registros
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    private static void crearArchivoRegistros( File archivo, long numeroInstantanea ) throws IOException
+    {
+        try( FileChannel nuevo = FileChannel.open( archivo.toPath( ), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) )
+        {
+            DataOutputStream salida = new DataOutputStream( Channels.newOutputStream( nuevo ) );
+            salida.writeInt( MAGICO );
+            salida.writeByte( VERSION );
+            salida.writeLong( numeroInstantanea );
+            salida.flush( );
+            nuevo.force( true );
+        }
+    }
+
+    /**
+     * Obliga a que un archivo quede escrito en el disco
+     * @param archivo La ruta del archivo
+     * @throws IOException Se lanza esta excepción si hay problemas sincronizando el archivo
+     */
+    private static void forzar( String archivo ) throws IOException
+    {
+        try( FileChannel canalArchivo = FileChannel.open( new File( archivo ).toPath( ), StandardOpenOption.WRITE ) )
+        {
+            canalArchivo.force( true );
+        }
+    }
+
+    /**
+     * Verifica que la bitácora ya haya sido recuperada y no se haya cerrado
+     */
+    private void verificarAbierta( )
+    {
+        if( canal == null )
+            throw new IllegalStateException( "La bitácora no está abierta" );
+    }
+
+    /**
+     * Retorna el archivo de registros
+     * @return
+     */
+    private File getArchivoRegistros( )
+    {
+        return new File( rutaBase + ".bitacora" );
+    }
+
+    /**
+     * Retorna la ruta de uno de los archivos de una instantánea
+     * @param numero El número de la instantánea
+     * @param extension La extensión del archivo ('.aerolinea' o '.tiquetes')
+     * @return
+     */
+    private String getArchivoInstantanea( long numero, String extension )
+    {
+        return rutaBase + "." + numero + extension;
+    }
+}
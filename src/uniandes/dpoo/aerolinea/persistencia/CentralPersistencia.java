@@ -15,10 +15,20 @@ public class CentralPersistencia
      */
     public static final String PLAIN = "PlainText";
 
+    /**
+     * La cadena utilizada para identificar a los archivos en formato JSON escritos en forma compacta, sin espacios ni saltos de línea
+     */
+    public static final String JSON_COMPACTO = "JSONCompacto";
+
+    /**
+     * La cadena utilizada para identificar a los archivos en el formato binario de la aerolínea
+     */
+    public static final String BINARIO = "Binario";
+
     /**
      * Este método retorna una nueva instancia de una clase capaz de cargar y salvar los datos de una aerolínea.
      * 
-     * Las clases concretas que se pueden retornar son PersistenciaAerolineaJson y PersistenciaAerolineaPlaintext
+     * Las clases concretas que se pueden retornar son PersistenciaAerolineaJson, PersistenciaAerolineaPlaintext y PersistenciaAerolineaBinaria
      * 
      * @param tipoArchivo El tipo del archivo que será usado para cargar la información de la aerolínea
      * @return El objeto que debería usarse para cargar y salvar la información
@@ -32,6 +42,8 @@ public class CentralPersistencia
     		tipoPersistencia = new PersistenciaAerolineaJson();
     	} else if (tipoArchivo.equals(PLAIN)) {
     		tipoPersistencia = new PersistenciaAerolineaPlaintext();
+    	} else if (tipoArchivo.equals(BINARIO)) {
+    		tipoPersistencia = new PersistenciaAerolineaBinaria();
     	} else throw new TipoInvalidoException(tipoArchivo);
     	
     	return tipoPersistencia;
@@ -40,7 +52,7 @@ public class CentralPersistencia
     /**
      * Este método retorna una nueva instancia de una clase capaz de cargar y salvar los datos de los tiquetes de una aerolínea
      * 
-     * La única clase concreta que se puede retornar es PersistenciaTiquetesJson
+     * Las clases concretas que se pueden retornar son PersistenciaTiquetesJson, que escribe en forma compacta si el tipo es JSON_COMPACTO, y PersistenciaTiquetesBinaria
      * 
      * @param tipoArchivo El tipo del archivo que será usado para cargar la información de los tiquetes
      * @return  El objeto que debería usarse para cargar y salvar la información
@@ -50,6 +62,10 @@ public class CentralPersistencia
     {
         if( JSON.equals( tipoArchivo ) )
             return new PersistenciaTiquetesJson( );
+        else if( JSON_COMPACTO.equals( tipoArchivo ) )
+            return new PersistenciaTiquetesJson( true );
+        else if( BINARIO.equals( tipoArchivo ) )
+            return new PersistenciaTiquetesBinaria( );
         else
             throw new TipoInvalidoException( tipoArchivo );
     }
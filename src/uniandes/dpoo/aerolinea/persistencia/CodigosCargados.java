@@ -0,0 +1,57 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase lleva la cuenta de los códigos de los tiquetes que ya tiene una aerolínea y de los que se han cargado durante una misma carga de un archivo o recuperación
+ * de una bitácora, para detectar los códigos repetidos sin depender del registro de códigos de GeneradorTiquetes (que puede ser persistente y tener ya todos los códigos
+ * del archivo).
+ *
+ * Los códigos de 7 dígitos se marcan en un mapa de bits con una posición por código; los demás códigos (como los códigos especiales de la serie) se guardan en un
+ * conjunto.
+ */
+class CodigosCargados
+{
+    /**
+     * Los códigos de 7 dígitos que ya se cargaron
+     */
+    private BitSet numericos;
+
+    /**
+     * Los códigos que no tienen 7 dígitos y ya se cargaron
+     */
+    private Set<String> otros;
+
+    /**
+     * Construye el conjunto con los códigos de los tiquetes que la aerolínea ya tiene, para que un archivo no pueda volver a cargar un tiquete que ya está en ella
+     * @param aerolinea La aerolínea donde se van a cargar los tiquetes
+     */
+    public CodigosCargados( Aerolinea aerolinea )
+    {
+        numericos = new BitSet( );
+        otros = new HashSet<String>( );
+        aerolinea.streamTiquetes( ).sequential( ).map( Tiquete::getCodigo ).forEach( this::agregar );
+    }
+
+    /**
+     * Marca un código como cargado
+     * @param codigo El código del tiquete
+     * @return Retorna true si el código no se había cargado antes ni estaba en la aerolínea, o false si está repetido
+     */
+    public boolean agregar( String codigo )
+    {
+        int valor = GeneradorTiquetes.convertirCodigo( codigo );
+        if( valor < 0 )
+            return otros.add( codigo );
+        if( numericos.get( valor ) )
+            return false;
+        numericos.set( valor );
+        return true;
+    }
+}
@@ -0,0 +1,228 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+
+/**
+ * Esta clase lee archivos en el formato binario de la aerolínea, que se describe en la clase SalidaBinaria.
+ *
+ * Antes de entregar cualquier dato, la clase verifica el número mágico, la versión y el CRC32 del archivo, de modo que un archivo dañado no alcanza a modificar la
+ * aerolínea.
+ */
+class EntradaBinaria implements AutoCloseable
+{
+    /**
+     * El flujo del que se lee
+     */
+    private DataInputStream entrada;
+
+    /**
+     * La tabla de cadenas, en el orden en el que aparecieron en el archivo
+     */
+    private List<String> cadenas;
+
+    /**
+     * La versión del formato con la que se escribió el archivo
+     */
+    private int version;
+
+    /**
+     * Abre un archivo para leer, verifica su integridad y lee el encabezado
+     * @param archivo La ruta al archivo
+     * @param tipo El tipo de contenido que se espera encontrar en el archivo
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo, si el archivo no tiene el formato binario o si está dañado
+     * @throws InformacionInconsistenteException Se lanza esta excepción si el archivo tiene un tipo de contenido diferente al esperado
+     */
+    public EntradaBinaria( String archivo, int tipo ) throws IOException, InformacionInconsistenteException
+    {
+        verificarCrc( archivo );
+
+        entrada = new DataInputStream( new BufferedInputStream( new FileInputStream( archivo ), 1 << 16 ) );
+        cadenas = new ArrayList<String>( );
+        if( entrada.readInt( ) != SalidaBinaria.MAGICO )
+        {
+            entrada.close( );
+            throw new IOException( "El archivo " + archivo + " no tiene el formato binario de la aerolínea" );
+        }
+        version = entrada.readUnsignedByte( );
+        if( version < SalidaBinaria.VERSION_MINIMA || version > SalidaBinaria.VERSION )
+        {
+            entrada.close( );
+            throw new IOException( "La versión " + version + " del formato binario no está soportada" );
+        }
+        int tipoArchivo = entrada.readUnsignedByte( );
+        if( tipoArchivo != tipo )
+        {
+            entrada.close( );
+            throw new InformacionInconsistenteException( "El archivo " + archivo + " no tiene el contenido esperado" );
+        }
+    }
+
+    /**
+     * Retorna la versión del formato con la que se escribió el archivo
+     * @return
+     */
+    public int getVersion( )
+    {
+        return version;
+    }
+
+    /**
+     * Lee un entero no negativo escrito como varint
+     * @return El valor
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    public long leerVarint( ) throws IOException
+    {
+        long valor = 0;
+        int desplazamiento = 0;
+        int b;
+        do
+        {
+            if( desplazamiento > 63 )
+                throw new IOException( "Varint mal formado" );
+            b = entrada.readUnsignedByte( );
+            valor |= ( long )( b & 0x7F ) << desplazamiento;
+            desplazamiento += 7;
+        } while( ( b & 0x80 ) != 0 );
+        return valor;
+    }
+
+    /**
+     * Lee un entero no negativo escrito como varint, que debe caber en un int
+     * @return El valor
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo o el valor no cabe en un int
+     */
+    public int leerCantidad( ) throws IOException
+    {
+        long valor = leerVarint( );
+        if( valor > Integer.MAX_VALUE )
+            throw new IOException( "Cantidad fuera de rango: " + valor );
+        return ( int )valor;
+    }
+
+    /**
+     * Lee un entero escrito con la codificación zigzag
+     * @return El valor
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    public long leerEntero( ) throws IOException
+    {
+        long valor = leerVarint( );
+        return ( valor >>> 1 ) ^ -( valor & 1 );
+    }
+
+    /**
+     * Lee un valor booleano
+     * @return El valor
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    public boolean leerBooleano( ) throws IOException
+    {
+        return entrada.readUnsignedByte( ) != 0;
+    }
+
+    /**
+     * Lee un número con decimales
+     * @return El valor
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    public double leerDouble( ) throws IOException
+    {
+        return entrada.readDouble( );
+    }
+
+    /**
+     * Lee una cadena, resolviendo las referencias a la tabla de cadenas
+     * @return La cadena. Todas las apariciones de una misma cadena en el archivo retornan la misma instancia.
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    public String leerCadena( ) throws IOException
+    {
+        int referencia = leerCantidad( );
+        if( referencia > 0 )
+        {
+            if( referencia > cadenas.size( ) )
+                throw new IOException( "Referencia inválida a la tabla de cadenas: " + referencia );
+            return cadenas.get( referencia - 1 );
+        }
+        byte[] bytes = new byte[leerCantidad( )];
+        entrada.readFully( bytes );
+        String valor = new String( bytes, StandardCharsets.UTF_8 );
+        cadenas.add( valor );
+        return valor;
+    }
+
+    /**
+     * Lee el código de un tiquete escrito con SalidaBinaria.escribirCodigo
+     * @return El código, completado con ceros a la izquierda hasta su longitud original
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    public String leerCodigo( ) throws IOException
+    {
+        int longitud = leerCantidad( );
+        if( longitud == 0 )
+            return leerCadena( );
+
+        String digitos = Long.toString( leerVarint( ) );
+        if( digitos.length( ) >= longitud )
+            return digitos;
+        StringBuilder codigo = new StringBuilder( longitud );
+        for( int i = digitos.length( ); i < longitud; i++ )
+            codigo.append( '0' );
+        return codigo.append( digitos ).toString( );
+    }
+
+    @Override
+    public void close( ) throws IOException
+    {
+        entrada.close( );
+    }
+
+    /**
+     * Recorre el archivo completo y verifica que el CRC32 del contenido coincida con el que está al final del archivo
+     * @param archivo La ruta al archivo
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo o si el CRC32 no coincide
+     */
+    private static void verificarCrc( String archivo ) throws IOException
+    {
+        try( FileChannel canal = FileChannel.open( Paths.get( archivo ), StandardOpenOption.READ ) )
+        {
+            long tamano = canal.size( );
+            if( tamano < 10 )
+                throw new IOException( "El archivo " + archivo + " no tiene el formato binario de la aerolínea" );
+
+            CRC32 crc = new CRC32( );
+            ByteBuffer buffer = ByteBuffer.allocateDirect( 1 << 16 );
+            long pendiente = tamano - 4;
+            while( pendiente > 0 )
+            {
+                buffer.clear( );
+                if( pendiente < buffer.capacity( ) )
+                    buffer.limit( ( int )pendiente );
+                int leidos = canal.read( buffer );
+                if( leidos < 0 )
+                    throw new IOException( "El archivo " + archivo + " está incompleto" );
+                buffer.flip( );
+                crc.update( buffer );
+                pendiente -= leidos;
+            }
+
+            ByteBuffer esperado = ByteBuffer.allocate( 4 );
+            if( canal.read( esperado, tamano - 4 ) != 4 || esperado.getInt( 0 ) != ( int )crc.getValue( ) )
+                throw new IOException( "El archivo " + archivo + " está dañado: el CRC32 no coincide" );
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import org.json.JSONObject;
+
+/**
+ * Esta clase permite escribir un documento JSON de forma incremental, directamente sobre un flujo de caracteres, sin construir en memoria la estructura del documento.
+ *
+ * El escritor lleva la cuenta de los objetos y arreglos abiertos para poner las comas, los saltos de línea y la indentación donde corresponde. Si la indentación es 0, el
+ * documento se escribe en forma compacta (sin espacios ni saltos de línea).
+ *
+ * Por ejemplo, para escribir el documento {"datos": [{"nombre": "Alice"}]} se puede usar:
+ *
+ * <pre>
+ * escritor.iniciarObjeto( );
+ * escritor.llave( "datos" );
+ * escritor.iniciarArreglo( );
+ * escritor.iniciarObjeto( );
+ * escritor.propiedad( "nombre", "Alice" );
+ * escritor.terminarObjeto( );
+ * escritor.terminarArreglo( );
+ * escritor.terminarObjeto( );
+ * </pre>
+ */
+class EscritorJson
+{
+    /**
+     * El flujo donde se escribe el documento
+     */
+    private Writer writer;
+
+    /**
+     * La cantidad de espacios que se agregan por cada nivel de anidamiento. Si es 0, el documento se escribe en forma compacta.
+     */
+    private int indentacion;
+
+    /**
+     * La cantidad de objetos y arreglos que están abiertos en este momento
+     */
+    private int nivel;
+
+    /**
+     * Para cada nivel abierto, indica si ya se escribió algún elemento dentro de él
+     */
+    private boolean[] conElementos;
+
+    /**
+     * Indica si se acaba de escribir una llave y el siguiente valor le corresponde a esa llave
+     */
+    private boolean despuesDeLlave;
+
+    /**
+     * Construye un nuevo escritor sobre un flujo de caracteres
+     * @param writer El flujo donde se escribe el documento. Se recomienda que sea un flujo con buffer.
+     * @param indentacion La cantidad de espacios por nivel de anidamiento, o 0 para escribir en forma compacta
+     */
+    public EscritorJson( Writer writer, int indentacion )
+    {
+        this.writer = writer;
+        this.indentacion = indentacion;
+        this.conElementos = new boolean[8];
+    }
+
+    /**
+     * Abre un nuevo objeto
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void iniciarObjeto( ) throws IOException
+    {
+        abrir( '{' );
+    }
+
+    /**
+     * Cierra el último objeto abierto
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void terminarObjeto( ) throws IOException
+    {
+        cerrar( '}' );
+    }
+
+    /**
+     * Abre un nuevo arreglo
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void iniciarArreglo( ) throws IOException
+    {
+        abrir( '[' );
+    }
+
+    /**
+     * Cierra el último arreglo abierto
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void terminarArreglo( ) throws IOException
+    {
+        cerrar( ']' );
+    }
+
+    /**
+     * Escribe una llave dentro del objeto abierto. Después de llamar este método se debe escribir el valor asociado a la llave.
+     * @param llave La llave
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void llave( String llave ) throws IOException
+    {
+        separar( );
+        JSONObject.quote( llave, writer );
+        writer.write( indentacion > 0 ? ": " : ":" );
+        despuesDeLlave = true;
+    }
+
+    /**
+     * Escribe un valor de tipo cadena
+     * @param valor El valor
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void valor( String valor ) throws IOException
+    {
+        separar( );
+        JSONObject.quote( valor, writer );
+    }
+
+    /**
+     * Escribe un valor numérico entero
+     * @param valor El valor
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void valor( long valor ) throws IOException
+    {
+        separar( );
+        writer.write( Long.toString( valor ) );
+    }
+
+    /**
+     * Escribe un valor numérico con decimales
+     * @param valor El valor
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void valor( double valor ) throws IOException
+    {
+        separar( );
+        writer.write( JSONObject.numberToString( valor ) );
+    }
+
+    /**
+     * Escribe un valor booleano
+     * @param valor El valor
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void valor( boolean valor ) throws IOException
+    {
+        separar( );
+        writer.write( valor ? "true" : "false" );
+    }
+
+    /**
+     * Escribe como un objeto todas las propiedades de un JSONObject.
+     *
+     * Este método sirve para integrar objetos que saben salvarse a sí mismos en un JSONObject. Los valores de las propiedades se escriben en forma compacta.
+     * @param objeto El objeto que se quiere escribir
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void valor( JSONObject objeto ) throws IOException
+    {
+        iniciarObjeto( );
+        for( String llave : objeto.keySet( ) )
+        {
+            llave( llave );
+            separar( );
+            writer.write( JSONObject.valueToString( objeto.get( llave ) ) );
+        }
+        terminarObjeto( );
+    }
+
+    /**
+     * Escribe una llave con un valor de tipo cadena
+     * @param llave La llave
+     * @param valor El valor
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void propiedad( String llave, String valor ) throws IOException
+    {
+        llave( llave );
+        valor( valor );
+    }
+
+    /**
+     * Escribe una llave con un valor numérico entero
+     * @param llave La llave
+     * @param valor El valor
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void propiedad( String llave, long valor ) throws IOException
+    {
+        llave( llave );
+        valor( valor );
+    }
+
+    /**
+     * Escribe una llave con un valor numérico con decimales
+     * @param llave La llave
+     * @param valor El valor
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void propiedad( String llave, double valor ) throws IOException
+    {
+        llave( llave );
+        valor( valor );
+    }
+
+    /**
+     * Escribe una llave con un valor booleano
+     * @param llave La llave
+     * @param valor El valor
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    public void propiedad( String llave, boolean valor ) throws IOException
+    {
+        llave( llave );
+        valor( valor );
+    }
+
+    /**
+     * Escribe el inicio de un objeto o un arreglo y abre un nuevo nivel
+     * @param inicio El caracter con el que empieza el objeto o arreglo
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    private void abrir( char inicio ) throws IOException
+    {
+        separar( );
+        writer.write( inicio );
+        nivel++;
+        if( nivel == conElementos.length )
+            conElementos = Arrays.copyOf( conElementos, nivel * 2 );
+        conElementos[ nivel ] = false;
+    }
+
+    /**
+     * Cierra el último nivel abierto
+     * @param fin El caracter con el que termina el objeto o arreglo
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    private void cerrar( char fin ) throws IOException
+    {
+        boolean tieneElementos = conElementos[ nivel ];
+        nivel--;
+        if( tieneElementos )
+            nuevaLinea( );
+        writer.write( fin );
+    }
+
+    /**
+     * Escribe lo necesario antes de un nuevo elemento: nada si el elemento es el valor de una llave, o la coma y el salto de línea si es un nuevo elemento del nivel actual
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    private void separar( ) throws IOException
+    {
+        if( despuesDeLlave )
+        {
+            despuesDeLlave = false;
+            return;
+        }
+        if( nivel > 0 )
+        {
+            if( conElementos[ nivel ] )
+                writer.write( ',' );
+            conElementos[ nivel ] = true;
+            nuevaLinea( );
+        }
+    }
+
+    /**
+     * Escribe un salto de línea y la indentación correspondiente al nivel actual, a menos que el documento se esté escribiendo en forma compacta
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo
+     */
+    private void nuevaLinea( ) throws IOException
+    {
+        if( indentacion == 0 )
+            return;
+        writer.write( '\n' );
+        for( int i = nivel * indentacion; i > 0; i-- )
+            writer.write( ' ' );
+    }
+}
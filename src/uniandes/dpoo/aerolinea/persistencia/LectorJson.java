@@ -0,0 +1,150 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.Reader;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Esta clase permite recorrer un documento JSON de forma incremental, sin construir en memoria la estructura completa del documento.
+ *
+ * El lector avanza token por token sobre los objetos y arreglos externos del documento, y sólo materializa como JSONObject los elementos individuales de los arreglos. De
+ * esta forma, la memoria que se necesita para recorrer un arreglo depende del tamaño de sus elementos y no del tamaño del arreglo.
+ *
+ * Por ejemplo, para recorrer los elementos del arreglo 'datos' del objeto raíz se puede usar:
+ *
+ * <pre>
+ * lector.iniciarObjeto( );
+ * for( String llave = lector.siguienteLlave( ); llave != null; llave = lector.siguienteLlave( ) )
+ * {
+ *     if( "datos".equals( llave ) )
+ *     {
+ *         lector.iniciarArreglo( );
+ *         while( lector.haySiguienteElemento( ) )
+ *             procesar( lector.leerObjeto( ) );
+ *     }
+ *     else
+ *         lector.saltarValor( );
+ * }
+ * </pre>
+ */
+class LectorJson
+{
+    /**
+     * El tokenizador de org.json sobre el que se apoya el lector
+     */
+    private JSONTokener tokenizador;
+
+    /**
+     * Construye un nuevo lector sobre un flujo de caracteres
+     * @param reader El flujo de donde se lee el documento
+     */
+    public LectorJson( Reader reader )
+    {
+        this.tokenizador = new JSONTokener( reader );
+    }
+
+    /**
+     * Consume el inicio de un objeto
+     * @throws JSONException Se lanza esta excepción si el siguiente token no es el inicio de un objeto
+     */
+    public void iniciarObjeto( ) throws JSONException
+    {
+        esperar( '{' );
+    }
+
+    /**
+     * Consume el inicio de un arreglo
+     * @throws JSONException Se lanza esta excepción si el siguiente token no es el inicio de un arreglo
+     */
+    public void iniciarArreglo( ) throws JSONException
+    {
+        esperar( '[' );
+    }
+
+    /**
+     * Consume la siguiente llave del objeto que se está recorriendo, junto con el ':' que la separa de su valor.
+     *
+     * Después de llamar este método se debe consumir el valor asociado a la llave, bien sea leyéndolo o saltándolo.
+     * @return La llave, o null si se llegó al final del objeto
+     * @throws JSONException Se lanza esta excepción si el documento no tiene la estructura esperada
+     */
+    public String siguienteLlave( ) throws JSONException
+    {
+        char c = tokenizador.nextClean( );
+        if( c == ',' )
+            c = tokenizador.nextClean( );
+        if( c == '}' )
+            return null;
+        if( c != '"' )
+            throw tokenizador.syntaxError( "Se esperaba una llave" );
+
+        String llave = tokenizador.nextString( '"' );
+        esperar( ':' );
+        return llave;
+    }
+
+    /**
+     * Avanza hasta el siguiente elemento del arreglo que se está recorriendo.
+     *
+     * Si el método retorna true, se debe consumir el elemento antes de volver a llamarlo.
+     * @return Retorna true si hay otro elemento en el arreglo, o false si se llegó al final del arreglo
+     * @throws JSONException Se lanza esta excepción si el documento termina antes de cerrar el arreglo
+     */
+    public boolean haySiguienteElemento( ) throws JSONException
+    {
+        char c = tokenizador.nextClean( );
+        if( c == ']' )
+            return false;
+        if( c == 0 )
+            throw tokenizador.syntaxError( "Se esperaba el final del arreglo" );
+        if( c != ',' )
+            tokenizador.back( );
+        return true;
+    }
+
+    /**
+     * Lee completo el siguiente valor del documento, que debe ser un objeto
+     * @return El objeto leído
+     * @throws JSONException Se lanza esta excepción si el siguiente valor no es un objeto
+     */
+    public JSONObject leerObjeto( ) throws JSONException
+    {
+        Object valor = tokenizador.nextValue( );
+        if( !( valor instanceof JSONObject ) )
+            throw tokenizador.syntaxError( "Se esperaba un objeto" );
+        return ( JSONObject )valor;
+    }
+
+    /**
+     * Lee completo el siguiente valor del documento, sin importar su tipo
+     * @return El valor leído: una cadena, un número, un booleano, JSONObject.NULL, un JSONObject o un JSONArray
+     * @throws JSONException Se lanza esta excepción si el documento no tiene la estructura esperada
+     */
+    public Object leerValor( ) throws JSONException
+    {
+        return tokenizador.nextValue( );
+    }
+
+    /**
+     * Consume el siguiente valor del documento sin procesarlo
+     * @throws JSONException Se lanza esta excepción si el documento no tiene la estructura esperada
+     */
+    public void saltarValor( ) throws JSONException
+    {
+        tokenizador.nextValue( );
+    }
+
+    /**
+     * Consume el siguiente token, que debe ser el caracter dado
+     * @param esperado El caracter que se espera encontrar
+     * @throws JSONException Se lanza esta excepción si se encuentra un caracter diferente
+     */
+    private void esperar( char esperado ) throws JSONException
+    {
+        char c = tokenizador.nextClean( );
+        if( c != esperado )
+            throw tokenizador.syntaxError( "Se esperaba '" + esperado + "'" );
+    }
+}
@@ -0,0 +1,169 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import uniandes.dpoo.aerolinea.exceptions.AeropuertoDuplicadoException;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Aeropuerto;
+import uniandes.dpoo.aerolinea.modelo.Avion;
+import uniandes.dpoo.aerolinea.modelo.Ruta;
+import uniandes.dpoo.aerolinea.modelo.Vuelo;
+
+/**
+ * Esta clase carga y salva el catálogo de una aerolínea (aeropuertos, rutas, aviones y vuelos programados) en el formato binario descrito en la clase SalidaBinaria.
+ *
+ * El contenido del archivo está organizado en cuatro secciones, cada una precedida por la cantidad de elementos que tiene:
+ * <ul>
+ * <li>Aeropuertos: código, nombre, ciudad, latitud y longitud.</li>
+ * <li>Rutas: código, código del origen, código del destino, hora de salida y hora de llegada.</li>
+ * <li>Aviones: nombre y capacidad.</li>
+ * <li>Vuelos: código de la ruta, fecha y nombre del avión.</li>
+ * </ul>
+ */
+public class PersistenciaAerolineaBinaria implements IPersistenciaAerolinea
+{
+    @Override
+    public void cargarAerolinea( String archivo, Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
+    {
+        try( EntradaBinaria entrada = new EntradaBinaria( archivo, SalidaBinaria.TIPO_AEROLINEA ) )
+        {
+            // Aeropuertos
+            int numAeropuertos = entrada.leerCantidad( );
+            Map<String, Aeropuerto> aeropuertos = new HashMap<String, Aeropuerto>( numAeropuertos * 2 );
+            for( int i = 0; i < numAeropuertos; i++ )
+            {
+                String codigo = entrada.leerCadena( );
+                String nombre = entrada.leerCadena( );
+                String ciudad = entrada.leerCadena( );
+                double latitud = entrada.leerDouble( );
+                double longitud = entrada.leerDouble( );
+                try
+                {
+                    aeropuertos.put( codigo, Aeropuerto.obtenerAeropuerto( nombre, codigo, ciudad, latitud, longitud ) );
+                }
+                catch( AeropuertoDuplicadoException e )
+                {
+                    throw new InformacionInconsistenteException( e.getMessage( ) );
+                }
+            }
+
+            // Rutas
+            int numRutas = entrada.leerCantidad( );
+            for( int i = 0; i < numRutas; i++ )
+            {
+                String codigoRuta = entrada.leerCadena( );
+                Aeropuerto origen = buscarAeropuerto( aeropuertos, entrada.leerCadena( ) );
+                Aeropuerto destino = buscarAeropuerto( aeropuertos, entrada.leerCadena( ) );
+                String horaSalida = entrada.leerCadena( );
+                String horaLlegada = entrada.leerCadena( );
+                aerolinea.agregarRuta( new Ruta( origen, destino, horaSalida, horaLlegada, codigoRuta ) );
+            }
+
+            // Aviones
+            int numAviones = entrada.leerCantidad( );
+            for( int i = 0; i < numAviones; i++ )
+            {
+                String nombre = entrada.leerCadena( );
+                int capacidad = ( int )entrada.leerEntero( );
+                aerolinea.agregarAvion( new Avion( nombre, capacidad ) );
+            }
+
+            // Vuelos
+            int numVuelos = entrada.leerCantidad( );
+            for( int i = 0; i < numVuelos; i++ )
+            {
+                String codigoRuta = entrada.leerCadena( );
+                String fecha = entrada.leerCadena( );
+                String nombreAvion = entrada.leerCadena( );
+                try
+                {
+                    aerolinea.programarVuelo( fecha, codigoRuta, nombreAvion );
+                }
+                catch( InformacionInconsistenteException e )
+                {
+                    throw e;
+                }
+                catch( Exception e )
+                {
+                    throw new InformacionInconsistenteException( e.getMessage( ) );
+                }
+            }
+        }
+    }
+
+    @Override
+    public void salvarAerolinea( String archivo, Aerolinea aerolinea ) throws IOException
+    {
+        // Los aeropuertos se obtienen a partir de las rutas, sin repetirlos
+        Map<String, Aeropuerto> aeropuertos = new LinkedHashMap<String, Aeropuerto>( );
+        for( Ruta ruta : aerolinea.getRutas( ) )
+        {
+            aeropuertos.put( ruta.getOrigen( ).getCodigo( ), ruta.getOrigen( ) );
+            aeropuertos.put( ruta.getDestino( ).getCodigo( ), ruta.getDestino( ) );
+        }
+
+        try( SalidaBinaria salida = new SalidaBinaria( archivo, SalidaBinaria.TIPO_AEROLINEA ) )
+        {
+            salida.escribirVarint( aeropuertos.size( ) );
+            for( Aeropuerto aeropuerto : aeropuertos.values( ) )
+            {
+                salida.escribirCadena( aeropuerto.getCodigo( ) );
+                salida.escribirCadena( aeropuerto.getNombre( ) );
+                salida.escribirCadena( aeropuerto.getNombreCiudad( ) );
+                salida.escribirDouble( aeropuerto.getLatitud( ) );
+                salida.escribirDouble( aeropuerto.getLongitud( ) );
+            }
+
+            salida.escribirVarint( aerolinea.getRutas( ).size( ) );
+            for( Ruta ruta : aerolinea.getRutas( ) )
+            {
+                salida.escribirCadena( ruta.getCodigoRuta( ) );
+                salida.escribirCadena( ruta.getOrigen( ).getCodigo( ) );
+                salida.escribirCadena( ruta.getDestino( ).getCodigo( ) );
+                salida.escribirCadena( ruta.getHoraSalida( ) );
+                salida.escribirCadena( ruta.getHoraLlegada( ) );
+            }
+
+            salida.escribirVarint( aerolinea.getAviones( ).size( ) );
+            for( Avion avion : aerolinea.getAviones( ) )
+            {
+                salida.escribirCadena( avion.getNombre( ) );
+                salida.escribirEntero( avion.getCapacidad( ) );
+            }
+
+            // Los vuelos se toman una sola vez del índice, que se puede recorrer mientras se programan o se realizan vuelos, para que la cantidad escrita coincida con los
+            // vuelos escritos
+            List<Vuelo> vuelos = new ArrayList<Vuelo>( );
+            aerolinea.streamVuelos( ).forEachOrdered( vuelos::add );
+            salida.escribirVarint( vuelos.size( ) );
+            for( Vuelo vuelo : vuelos )
+            {
+                salida.escribirCadena( vuelo.getRuta( ).getCodigoRuta( ) );
+                salida.escribirCadena( vuelo.getFecha( ) );
+                salida.escribirCadena( vuelo.getAvion( ).getNombre( ) );
+            }
+            salida.terminar( );
+        }
+    }
+
+    /**
+     * Busca un aeropuerto entre los que se han cargado del archivo
+     * @param aeropuertos Los aeropuertos cargados, indexados por su código
+     * @param codigo El código del aeropuerto buscado
+     * @return El aeropuerto
+     * @throws InformacionInconsistenteException Se lanza esta excepción si el archivo no tenía un aeropuerto con el código dado
+     */
+    private static Aeropuerto buscarAeropuerto( Map<String, Aeropuerto> aeropuertos, String codigo ) throws InformacionInconsistenteException
+    {
+        Aeropuerto aeropuerto = aeropuertos.get( codigo );
+        if( aeropuerto == null )
+            throw new InformacionInconsistenteException( "No existe un aeropuerto con el código " + codigo );
+        return aeropuerto;
+    }
+}
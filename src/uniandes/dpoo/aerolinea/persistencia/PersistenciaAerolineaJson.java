@@ -1,23 +1,267 @@
 package uniandes.dpoo.aerolinea.persistencia;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import org.json.JSONObject;
+
+import uniandes.dpoo.aerolinea.exceptions.AeropuertoDuplicadoException;
 import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
 import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Aeropuerto;
+import uniandes.dpoo.aerolinea.modelo.Avion;
+import uniandes.dpoo.aerolinea.modelo.Ruta;
+import uniandes.dpoo.aerolinea.modelo.Vuelo;
+
+/**
+ * Esta clase carga y salva el catálogo de una aerolínea (aeropuertos, rutas, aviones y vuelos programados) en un archivo JSON.
+ *
+ * El archivo es un objeto con cuatro arreglos: 'aeropuertos', 'rutas', 'aviones' y 'vuelos'. Las rutas hacen referencia a los aeropuertos por su código, y los vuelos
+ * hacen referencia a las rutas por su código y a los aviones por su nombre.
+ */
+public class PersistenciaAerolineaJson implements IPersistenciaAerolinea
+{
+    private static final String AEROPUERTOS = "aeropuertos";
+    private static final String RUTAS = "rutas";
+    private static final String AVIONES = "aviones";
+    private static final String VUELOS = "vuelos";
+
+    private static final String CODIGO = "codigo";
+    private static final String NOMBRE = "nombre";
+    private static final String CIUDAD = "ciudad";
+    private static final String LATITUD = "latitud";
+    private static final String LONGITUD = "longitud";
+    private static final String CODIGO_RUTA = "codigoRuta";
+    private static final String ORIGEN = "origen";
+    private static final String DESTINO = "destino";
+    private static final String HORA_SALIDA = "horaSalida";
+    private static final String HORA_LLEGADA = "horaLlegada";
+    private static final String CAPACIDAD = "capacidad";
+    private static final String FECHA = "fecha";
+    private static final String AVION = "avion";
+
+    /**
+     * La cantidad de espacios por nivel con la que se escriben los archivos
+     */
+    private static final int INDENTACION = 2;
+
+    /**
+     * Carga el catálogo de la aerolínea a partir de un archivo JSON.
+     *
+     * El archivo se recorre de forma incremental y en una sola pasada: cada elemento se crea tan pronto como se lee, y sus referencias se resuelven con búsquedas en tablas
+     * de hash (los aeropuertos leídos hasta el momento, y las rutas y los aviones de la aerolínea). Por esto, en el archivo los aeropuertos deben aparecer antes que las
+     * rutas, y las rutas y los aviones antes que los vuelos.
+     *
+     * Si un aeropuerto del archivo ya se había creado antes con los mismos datos (por ejemplo, porque el archivo ya se había cargado), se reutiliza.
+     * @param archivo La ruta al archivo que contiene la información que se va a cargar
+     * @param aerolinea La aerolínea dentro de la cual debe almacenarse la información
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     * @throws InformacionInconsistenteException Se lanza esta excepción si hay información inconsistente dentro del archivo, o entre el archivo y el estado de la aerolínea
+     */
+    @Override
+    public void cargarAerolinea( String archivo, Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
+    {
+        Map<String, Aeropuerto> aeropuertos = new HashMap<String, Aeropuerto>( );
+        try( Reader reader = Files.newBufferedReader( Paths.get( archivo ) ) )
+        {
+            LectorJson lector = new LectorJson( reader );
+            lector.iniciarObjeto( );
+            for( String llave = lector.siguienteLlave( ); llave != null; llave = lector.siguienteLlave( ) )
+            {
+                if( AEROPUERTOS.equals( llave ) )
+                {
+                    lector.iniciarArreglo( );
+                    while( lector.haySiguienteElemento( ) )
+                        cargarAeropuerto( aeropuertos, lector.leerObjeto( ) );
+                }
+                else if( RUTAS.equals( llave ) )
+                {
+                    lector.iniciarArreglo( );
+                    while( lector.haySiguienteElemento( ) )
+                        cargarRuta( aerolinea, aeropuertos, lector.leerObjeto( ) );
+                }
+                else if( AVIONES.equals( llave ) )
+                {
+                    lector.iniciarArreglo( );
+                    while( lector.haySiguienteElemento( ) )
+                    {
+                        JSONObject avion = lector.leerObjeto( );
+                        aerolinea.agregarAvion( new Avion( avion.getString( NOMBRE ), avion.getInt( CAPACIDAD ) ) );
+                    }
+                }
+                else if( VUELOS.equals( llave ) )
+                {
+                    lector.iniciarArreglo( );
+                    while( lector.haySiguienteElemento( ) )
+                        cargarVuelo( aerolinea, lector.leerObjeto( ) );
+                }
+                else
+                    lector.saltarValor( );
+            }
+        }
+    }
+
+    /**
+     * Carga un aeropuerto a partir de un objeto JSON
+     * @param aeropuertos Los aeropuertos cargados hasta el momento, indexados por su código. Aquí queda el nuevo aeropuerto.
+     * @param aeropuerto El objeto JSON con la información del aeropuerto
+     * @throws InformacionInconsistenteException Se lanza esta excepción si ya existía un aeropuerto con el mismo código pero con otros datos
+     */
+    private void cargarAeropuerto( Map<String, Aeropuerto> aeropuertos, JSONObject aeropuerto ) throws InformacionInconsistenteException
+    {
+        String codigo = aeropuerto.getString( CODIGO );
+        try
+        {
+            Aeropuerto nuevo = Aeropuerto.obtenerAeropuerto( aeropuerto.getString( NOMBRE ), codigo, aeropuerto.getString( CIUDAD ), aeropuerto.getDouble( LATITUD ),
+                    aeropuerto.getDouble( LONGITUD ) );
+            if( aeropuertos.put( codigo, nuevo ) != null )
+                throw new AeropuertoDuplicadoException( codigo );
+        }
+        catch( AeropuertoDuplicadoException e )
+        {
+            throw new InformacionInconsistenteException( e.getMessage( ) );
+        }
+    }
+
+    /**
+     * Carga una ruta a partir de un objeto JSON y la agrega a la aerolínea
+     * @param aerolinea La aerolínea
+     * @param aeropuertos Los aeropuertos cargados, indexados por su código
+     * @param ruta El objeto JSON con la información de la ruta
+     * @throws InformacionInconsistenteException Se lanza esta excepción si el origen o el destino de la ruta no están entre los aeropuertos cargados
+     */
+    private void cargarRuta( Aerolinea aerolinea, Map<String, Aeropuerto> aeropuertos, JSONObject ruta ) throws InformacionInconsistenteException
+    {
+        Aeropuerto origen = buscarAeropuerto( aeropuertos, ruta.getString( ORIGEN ) );
+        Aeropuerto destino = buscarAeropuerto( aeropuertos, ruta.getString( DESTINO ) );
+        aerolinea.agregarRuta( new Ruta( origen, destino, ruta.getString( HORA_SALIDA ), ruta.getString( HORA_LLEGADA ), ruta.getString( CODIGO_RUTA ) ) );
+    }
+
+    /**
+     * Programa en la aerolínea un vuelo a partir de un objeto JSON
+     * @param aerolinea La aerolínea
+     * @param vuelo El objeto JSON con la información del vuelo
+     * @throws InformacionInconsistenteException Se lanza esta excepción si no se pudo programar el vuelo (por ejemplo, porque la ruta o el avión no existen, o porque el
+     *         avión ya está ocupado)
+     */
+    private void cargarVuelo( Aerolinea aerolinea, JSONObject vuelo ) throws InformacionInconsistenteException
+    {
+        try
+        {
+            aerolinea.programarVuelo( vuelo.getString( FECHA ), vuelo.getString( CODIGO_RUTA ), vuelo.getString( AVION ) );
+        }
+        catch( InformacionInconsistenteException e )
+        {
+            throw e;
+        }
+        catch( Exception e )
+        {
+            throw new InformacionInconsistenteException( e.getMessage( ) );
+        }
+    }
+
+    /**
+     * Salva el catálogo de la aerolínea en un archivo JSON.
+     *
+     * La información se escribe en el archivo a medida que se recorren los elementos, sin construir antes la estructura JSON completa. Los aeropuertos que se escriben son
+     * los que son origen o destino de alguna ruta.
+     * @param archivo La ruta al archivo donde debe quedar almacenada la información
+     * @param aerolinea La aerolínea que tiene la información que se quiere almacenar
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    @Override
+    public void salvarAerolinea( String archivo, Aerolinea aerolinea ) throws IOException
+    {
+        // Los aeropuertos se obtienen a partir de las rutas, sin repetirlos
+        Map<String, Aeropuerto> aeropuertos = new LinkedHashMap<String, Aeropuerto>( );
+        for( Ruta ruta : aerolinea.getRutas( ) )
+        {
+            aeropuertos.put( ruta.getOrigen( ).getCodigo( ), ruta.getOrigen( ) );
+            aeropuertos.put( ruta.getDestino( ).getCodigo( ), ruta.getDestino( ) );
+        }
+
+        try( Writer writer = Files.newBufferedWriter( Paths.get( archivo ) ) )
+        {
+            EscritorJson escritor = new EscritorJson( writer, INDENTACION );
+            escritor.iniciarObjeto( );
+
+            escritor.llave( AEROPUERTOS );
+            escritor.iniciarArreglo( );
+            for( Aeropuerto aeropuerto : aeropuertos.values( ) )
+            {
+                escritor.iniciarObjeto( );
+                escritor.propiedad( CODIGO, aeropuerto.getCodigo( ) );
+                escritor.propiedad( NOMBRE, aeropuerto.getNombre( ) );
+                escritor.propiedad( CIUDAD, aeropuerto.getNombreCiudad( ) );
+                escritor.propiedad( LATITUD, aeropuerto.getLatitud( ) );
+                escritor.propiedad( LONGITUD, aeropuerto.getLongitud( ) );
+                escritor.terminarObjeto( );
+            }
+            escritor.terminarArreglo( );
+
+            escritor.llave( RUTAS );
+            escritor.iniciarArreglo( );
+            for( Ruta ruta : aerolinea.getRutas( ) )
+            {
+                escritor.iniciarObjeto( );
+                escritor.propiedad( CODIGO_RUTA, ruta.getCodigoRuta( ) );
+                escritor.propiedad( ORIGEN, ruta.getOrigen( ).getCodigo( ) );
+                escritor.propiedad( DESTINO, ruta.getDestino( ).getCodigo( ) );
+                escritor.propiedad( HORA_SALIDA, ruta.getHoraSalida( ) );
+                escritor.propiedad( HORA_LLEGADA, ruta.getHoraLlegada( ) );
+                escritor.terminarObjeto( );
+            }
+            escritor.terminarArreglo( );
 
-public class PersistenciaAerolineaJson implements IPersistenciaAerolinea {
+            escritor.llave( AVIONES );
+            escritor.iniciarArreglo( );
+            for( Avion avion : aerolinea.getAviones( ) )
+            {
+                escritor.iniciarObjeto( );
+                escritor.propiedad( NOMBRE, avion.getNombre( ) );
+                escritor.propiedad( CAPACIDAD, avion.getCapacidad( ) );
+                escritor.terminarObjeto( );
+            }
+            escritor.terminarArreglo( );
 
-	@Override
-	public void cargarAerolinea(String archivo, Aerolinea aerolinea)
-			throws IOException, InformacionInconsistenteException {
-		
-	}
+            escritor.llave( VUELOS );
+            escritor.iniciarArreglo( );
+            // Los vuelos se recorren con el índice, que se puede recorrer mientras se programan o se realizan vuelos
+            Iterator<Vuelo> vuelos = aerolinea.streamVuelos( ).iterator( );
+            while( vuelos.hasNext( ) )
+            {
+                Vuelo vuelo = vuelos.next( );
+                escritor.iniciarObjeto( );
+                escritor.propiedad( CODIGO_RUTA, vuelo.getRuta( ).getCodigoRuta( ) );
+                escritor.propiedad( FECHA, vuelo.getFecha( ) );
+                escritor.propiedad( AVION, vuelo.getAvion( ).getNombre( ) );
+                escritor.terminarObjeto( );
+            }
+            escritor.terminarArreglo( );
 
-	@Override
-	public void salvarAerolinea(String archivo, Aerolinea aerolinea) throws IOException {
-		
-	}
+            escritor.terminarObjeto( );
+        }
+    }
 
-	
-	
+    /**
+     * Busca un aeropuerto entre los que se han cargado del archivo
+     * @param aeropuertos Los aeropuertos cargados, indexados por su código
+     * @param codigo El código del aeropuerto buscado
+     * @return El aeropuerto
+     * @throws InformacionInconsistenteException Se lanza esta excepción si el archivo no tenía un aeropuerto con el código dado
+     */
+    private static Aeropuerto buscarAeropuerto( Map<String, Aeropuerto> aeropuertos, String codigo ) throws InformacionInconsistenteException
+    {
+        Aeropuerto aeropuerto = aeropuertos.get( codigo );
+        if( aeropuerto == null )
+            throw new InformacionInconsistenteException( "No existe un aeropuerto con el código " + codigo );
+        return aeropuerto;
+    }
 }
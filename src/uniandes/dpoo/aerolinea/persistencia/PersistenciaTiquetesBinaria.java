@@ -0,0 +1,199 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import uniandes.dpoo.aerolinea.exceptions.ClienteRepetidoException;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteTiqueteException;
+import uniandes.dpoo.aerolinea.exceptions.VueloSobrevendidoException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Ruta;
+import uniandes.dpoo.aerolinea.modelo.Vuelo;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase carga y salva los clientes y tiquetes de una aerolínea en el formato binario descrito en la clase SalidaBinaria.
+ *
+ * El contenido del archivo está organizado en dos secciones:
+ * <ul>
+ * <li>Clientes: la cantidad de clientes y, para cada uno, tipo (0 para naturales y 1 para corporativos), identificador y, para los corporativos, tamaño de la
+ * empresa.</li>
+ * <li>Tiquetes: un bloque por cada vuelo con tiquetes, con la cantidad de tiquetes del bloque, el código de la ruta y la fecha del vuelo, seguidos de código,
+ * tarifa, si está usado e identificador del cliente de cada tiquete. La sección termina con un bloque de cantidad 0. En los archivos de la versión 1 la sección
+ * tiene la cantidad total de tiquetes y cada tiquete incluye el código de la ruta y la fecha del vuelo.</li>
+ * </ul>
+ *
+ * Al cargar se hacen las mismas validaciones que en PersistenciaTiquetesJson.
+ */
+public class PersistenciaTiquetesBinaria implements IPersistenciaTiquetes
+{
+    private static final int NATURAL = 0;
+    private static final int CORPORATIVO = 1;
+
+    @Override
+    public void cargarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
+    {
+        cargarTiquetes( archivo, aerolinea, new CodigosCargados( aerolinea ) );
+    }
+
+    /**
+     * Carga los clientes y tiquetes de un archivo
+     * @param archivo La ruta del archivo
+     * @param aerolinea La aerolínea donde deben quedar los clientes y tiquetes
+     * @param codigos Los códigos que ya se cargaron antes en la misma recuperación. Los códigos del archivo se agregan a este objeto.
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     * @throws InformacionInconsistenteException Se lanza esta excepción si el archivo no es consistente con la aerolínea o repite el código de un tiquete
+     */
+    void cargarTiquetes( String archivo, Aerolinea aerolinea, CodigosCargados codigos ) throws IOException, InformacionInconsistenteException
+    {
+        try( EntradaBinaria entrada = new EntradaBinaria( archivo, SalidaBinaria.TIPO_TIQUETES ) )
+        {
+            int numClientes = entrada.leerCantidad( );
+            for( int i = 0; i < numClientes; i++ )
+            {
+                int tipo = ( int )entrada.leerVarint( );
+                String identificador = entrada.leerCadena( );
+                Cliente nuevoCliente;
+                if( tipo == NATURAL )
+                    nuevoCliente = new ClienteNatural( identificador );
+                else
+                    nuevoCliente = new ClienteCorporativo( identificador, ( int )entrada.leerEntero( ) );
+
+                if( aerolinea.existeCliente( identificador ) )
+                    throw new ClienteRepetidoException( nuevoCliente.getTipoCliente( ), identificador );
+                aerolinea.agregarCliente( nuevoCliente );
+            }
+
+            if( entrada.getVersion( ) == 1 )
+            {
+                long numTiquetes = entrada.leerVarint( );
+                for( long i = 0; i < numTiquetes; i++ )
+                {
+                    String codigoTiquete = entrada.leerCodigo( );
+                    String codigoRuta = entrada.leerCadena( );
+                    String fechaVuelo = entrada.leerCadena( );
+                    cargarTiquete( entrada, aerolinea, codigos, codigoTiquete, codigoRuta, fechaVuelo );
+                }
+            }
+            else
+            {
+                int numTiquetes = entrada.leerCantidad( );
+                while( numTiquetes > 0 )
+                {
+                    String codigoRuta = entrada.leerCadena( );
+                    String fechaVuelo = entrada.leerCadena( );
+                    for( int i = 0; i < numTiquetes; i++ )
+                        cargarTiquete( entrada, aerolinea, codigos, entrada.leerCodigo( ), codigoRuta, fechaVuelo );
+                    numTiquetes = entrada.leerCantidad( );
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee el resto del registro de un tiquete (tarifa, si está usado e identificador del cliente), lo valida y lo agrega a la aerolínea
+     * @param entrada El archivo que se está leyendo
+     * @param aerolinea La aerolínea donde debe quedar el tiquete
+     * @param codigos Los códigos que ya se cargaron
+     * @param codigoTiquete El código del tiquete
+     * @param codigoRuta El código de la ruta del vuelo del tiquete
+     * @param fechaVuelo La fecha del vuelo del tiquete
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     * @throws InformacionInconsistenteException Se lanza esta excepción si el tiquete no es consistente con la aerolínea o repite un código
+     */
+    private void cargarTiquete( EntradaBinaria entrada, Aerolinea aerolinea, CodigosCargados codigos, String codigoTiquete, String codigoRuta, String fechaVuelo ) throws IOException, InformacionInconsistenteException
+    {
+        int tarifa = ( int )entrada.leerEntero( );
+        boolean tiqueteUsado = entrada.leerBooleano( );
+        String identificadorCliente = entrada.leerCadena( );
+
+        Ruta laRuta = aerolinea.getRuta( codigoRuta );
+        if( laRuta == null )
+            throw new InformacionInconsistenteTiqueteException( "ruta", codigoRuta );
+
+        Vuelo elVuelo = aerolinea.getVuelo( codigoRuta, fechaVuelo );
+        if( elVuelo == null )
+            throw new InformacionInconsistenteTiqueteException( "vuelo", codigoRuta + " en " + fechaVuelo );
+
+        // Si el registro de códigos es persistente, los códigos del archivo ya quedaron registrados en una ejecución anterior, así que los repetidos se detectan
+        // con los códigos que ya tenía la aerolínea y los cargados en esta misma carga
+        if( !codigos.agregar( codigoTiquete ) || ( GeneradorTiquetes.validarTiquete( codigoTiquete ) && !GeneradorTiquetes.esRegistroPersistente( ) ) )
+            throw new InformacionInconsistenteTiqueteException( "tiquete", codigoTiquete, false );
+
+        Cliente elCliente = aerolinea.getCliente( identificadorCliente );
+        if( elCliente == null )
+            throw new InformacionInconsistenteTiqueteException( "cliente", identificadorCliente );
+
+        Tiquete nuevoTiquete = new Tiquete( codigoTiquete, elVuelo, elCliente, tarifa );
+        try
+        {
+            // Si el vuelo usa un almacén, el tiquete que queda en el vuelo es otro
+            nuevoTiquete = elVuelo.agregarTiquete( nuevoTiquete );
+        }
+        catch( VueloSobrevendidoException e )
+        {
+            elCliente.retirarTiquete( nuevoTiquete );
+            throw new InformacionInconsistenteException( e.getMessage( ) );
+        }
+        if( tiqueteUsado )
+            elCliente.usarTiquete( nuevoTiquete );
+        GeneradorTiquetes.registrarTiquete( nuevoTiquete );
+    }
+
+    @Override
+    public void salvarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException
+    {
+        try( SalidaBinaria salida = new SalidaBinaria( archivo, SalidaBinaria.TIPO_TIQUETES ) )
+        {
+            // Los clientes se toman una sola vez para que la cantidad escrita coincida con los clientes escritos
+            List<Cliente> clientes = new ArrayList<Cliente>( aerolinea.getClientes( ) );
+            salida.escribirVarint( clientes.size( ) );
+            for( Cliente cliente : clientes )
+            {
+                if( ClienteNatural.NATURAL.equals( cliente.getTipoCliente( ) ) )
+                {
+                    salida.escribirVarint( NATURAL );
+                    salida.escribirCadena( cliente.getIdentificador( ) );
+                }
+                else
+                {
+                    salida.escribirVarint( CORPORATIVO );
+                    salida.escribirCadena( cliente.getIdentificador( ) );
+                    salida.escribirEntero( ( ( ClienteCorporativo )cliente ).getTamanoEmpresa( ) );
+                }
+            }
+
+            // Cada vuelo se escribe con su propio manifiesto, que se toma una sola vez para que la cantidad del bloque coincida con los tiquetes escritos. Así
+            // sólo hace falta tener en memoria el manifiesto de un vuelo a la vez. Los vuelos se recorren con el índice, que se puede recorrer mientras se programan o se
+            // realizan vuelos.
+            Iterator<Vuelo> vuelos = aerolinea.streamVuelos( ).iterator( );
+            while( vuelos.hasNext( ) )
+            {
+                Vuelo vuelo = vuelos.next( );
+                List<Tiquete> manifiesto = vuelo.getManifiesto( );
+                if( manifiesto.isEmpty( ) )
+                    continue;
+
+                salida.escribirVarint( manifiesto.size( ) );
+                salida.escribirCadena( vuelo.getRuta( ).getCodigoRuta( ) );
+                salida.escribirCadena( vuelo.getFecha( ) );
+                for( Tiquete tiquete : manifiesto )
+                {
+                    salida.escribirCodigo( tiquete.getCodigo( ) );
+                    salida.escribirEntero( tiquete.getTarifa( ) );
+                    salida.escribirBooleano( tiquete.esUsado( ) );
+                    salida.escribirCadena( tiquete.getCliente( ).getIdentificador( ) );
+                }
+            }
+            salida.escribirVarint( 0 );
+            salida.terminar( );
+        }
+    }
+}
@@ -1,23 +1,24 @@
 package uniandes.dpoo.aerolinea.persistencia;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import uniandes.dpoo.aerolinea.exceptions.ClienteRepetidoException;
 import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
 import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteTiqueteException;
 import uniandes.dpoo.aerolinea.modelo.Aerolinea;
-import uniandes.dpoo.aerolinea.modelo.Ruta;
 import uniandes.dpoo.aerolinea.modelo.Vuelo;
 import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
 import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
 import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
-import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
 import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
 
 public class PersistenciaTiquetesJson implements IPersistenciaTiquetes
@@ -25,15 +26,52 @@ public class PersistenciaTiquetesJson implements IPersistenciaTiquetes
 
     private static final String NOMBRE_CLIENTE = "nombre";
     private static final String TIPO_CLIENTE = "tipoCliente";
-    private static final String CLIENTE = "cliente";
-    private static final String USADO = "usado";
-    private static final String TARIFA = "tarifa";
-    private static final String CODIGO_TIQUETE = "codigoTiquete";
-    private static final String FECHA = "fecha";
-    private static final String CODIGO_RUTA = "codigoRuta";
+    static final String CLIENTE = "cliente";
+    static final String USADO = "usado";
+    static final String TARIFA = "tarifa";
+    static final String CODIGO_TIQUETE = "codigoTiquete";
+    static final String FECHA = "fecha";
+    static final String CODIGO_RUTA = "codigoRuta";
+    private static final String CLIENTES = "clientes";
+    private static final String TIQUETES = "tiquetes";
+
+    /**
+     * La cantidad de espacios por nivel que se usa cuando el archivo no se escribe en forma compacta
+     */
+    private static final int INDENTACION = 2;
+
+    /**
+     * La cantidad de tiquetes que se leen del archivo antes de buscar sus referencias en paralelo
+     */
+    private static final int TAMANO_BLOQUE = 4096;
+
+    /**
+     * Indica si los archivos se deben escribir en forma compacta, sin espacios ni saltos de línea
+     */
+    private boolean compacto;
+
+    /**
+     * Construye un nuevo objeto de persistencia que escribe los archivos con indentación
+     */
+    public PersistenciaTiquetesJson( )
+    {
+        this( false );
+    }
+
+    /**
+     * Construye un nuevo objeto de persistencia
+     * @param compacto Indica si los archivos se deben escribir en forma compacta (sin espacios ni saltos de línea) o con indentación
+     */
+    public PersistenciaTiquetesJson( boolean compacto )
+    {
+        this.compacto = compacto;
+    }
 
     /**
      * Carga la información de los clientes y tiquetes vendidos por la aerolínea, y actualiza la estructura de objetos que se encuentra dentro de la aerolínea
+     * 
+     * El archivo se recorre de forma incremental: cada cliente y cada tiquete se crea tan pronto como se lee, sin construir en memoria la estructura completa del documento.
+     * Por esto, el arreglo 'clientes' debe aparecer en el archivo antes que el arreglo 'tiquetes'.
      * @param archivo La ruta al archivo que contiene la información que se va a cargar
      * @param aerolinea La aerolínea dentro de la cual debe almacenarse la información
      * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
@@ -42,15 +80,26 @@ public class PersistenciaTiquetesJson implements IPersistenciaTiquetes
     @Override
     public void cargarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
     {
-        String jsonCompleto = new String( Files.readAllBytes( new File( archivo ).toPath( ) ) );
-        JSONObject raiz = new JSONObject( jsonCompleto );
-
-        cargarClientes( aerolinea, raiz.getJSONArray( "clientes" ) );
-        cargarTiquetes( aerolinea, raiz.getJSONArray( "tiquetes" ) );
+        try( Reader reader = Files.newBufferedReader( Paths.get( archivo ) ) )
+        {
+            LectorJson lector = new LectorJson( reader );
+            lector.iniciarObjeto( );
+            for( String llave = lector.siguienteLlave( ); llave != null; llave = lector.siguienteLlave( ) )
+            {
+                if( CLIENTES.equals( llave ) )
+                    cargarClientes( aerolinea, lector );
+                else if( TIQUETES.equals( llave ) )
+                    cargarTiquetes( aerolinea, lector );
+                else
+                    lector.saltarValor( );
+            }
+        }
     }
 
     /**
      * Salva en un archivo toda la información sobre los clientes y los tiquetes vendidos por la aerolínea
+     * 
+     * La información se escribe en el archivo a medida que se recorren los clientes y los tiquetes, sin construir antes la estructura JSON completa.
      * @param archivo La ruta al archivo donde debe quedar almacenada la información
      * @param aerolinea La aerolínea que tiene la información que se quiere almacenar
      * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
@@ -58,162 +107,206 @@ public class PersistenciaTiquetesJson implements IPersistenciaTiquetes
     @Override
     public void salvarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException
     {
-        JSONObject jobject = new JSONObject( );
+        try( Writer writer = Files.newBufferedWriter( Paths.get( archivo ) ) )
+        {
+            EscritorJson escritor = new EscritorJson( writer, compacto ? 0 : INDENTACION );
+            escritor.iniciarObjeto( );
 
-        // Salvar clientes
-        salvarClientes( aerolinea, jobject );
+            // Salvar clientes
+            salvarClientes( aerolinea, escritor );
 
-        // Salvar tiquetes
-        salvarTiquetes( aerolinea, jobject );
+            // Salvar tiquetes
+            salvarTiquetes( aerolinea, escritor );
 
-        // Escribir la estructura JSON en un archivo
-        PrintWriter pw = new PrintWriter( archivo );
-        jobject.write( pw, 2, 0 );
-        pw.close( );
+            escritor.terminarObjeto( );
+        }
     }
 
     /**
      * Carga los clientes de la aerolínea a partir de un archivo JSON
      * @param aerolinea La aerolínea donde deben quedar los clientes
-     * @param jClientes El elemento JSON donde está la información de los clientes
+     * @param lector El lector, ubicado justo antes del arreglo con la información de los clientes
      * @throws ClienteRepetidoException Lanza esta excepción si alguno de los clientes que se van a cargar tiene el mismo identificador que otro cliente
      */
-    private void cargarClientes( Aerolinea aerolinea, JSONArray jClientes ) throws ClienteRepetidoException
+    private void cargarClientes( Aerolinea aerolinea, LectorJson lector ) throws ClienteRepetidoException
     {
-        int numClientes = jClientes.length( );
-        for( int i = 0; i < numClientes; i++ )
+        lector.iniciarArreglo( );
+        while( lector.haySiguienteElemento( ) )
+            cargarCliente( aerolinea, lector.leerObjeto( ) );
+    }
+
+    /**
+     * Carga un cliente de la aerolínea a partir de un objeto JSON
+     * @param aerolinea La aerolínea donde debe quedar el cliente
+     * @param cliente El objeto JSON donde está la información del cliente
+     * @throws ClienteRepetidoException Lanza esta excepción si el cliente tiene el mismo identificador que otro cliente
+     */
+    private void cargarCliente( Aerolinea aerolinea, JSONObject cliente ) throws ClienteRepetidoException
+    {
+        String tipoCliente = cliente.getString( TIPO_CLIENTE );
+        Cliente nuevoCliente = null;
+        // En las siguientes líneas se utilizan dos estrategias para implementar la carga de objetos: en la primera estrategia, la carga de los objetos
+        // lo hace alguien externo al objeto que se carga; en la segunda estrategia, los objetos saben cargarse.
+        // En general es una mala idea mezclar las dos estrategias: acá lo hacemos para ilustrar las dos posibilidades y mostrar las ventajas y desventajas de cada una.
+        // Lo que sí es recomendable es seleccionar una estrategia y usarla consistentemente para cargar y salvar.
+        if( ClienteNatural.NATURAL.equals( tipoCliente ) )
         {
-            JSONObject cliente = jClientes.getJSONObject( i );
-            String tipoCliente = cliente.getString( TIPO_CLIENTE );
-            Cliente nuevoCliente = null;
-            // En las siguientes líneas se utilizan dos estrategias para implementar la carga de objetos: en la primera estrategia, la carga de los objetos
-            // lo hace alguien externo al objeto que se carga; en la segunda estrategia, los objetos saben cargarse.
-            // En general es una mala idea mezclar las dos estrategias: acá lo hacemos para ilustrar las dos posibilidades y mostrar las ventajas y desventajas de cada una.
-            // Lo que sí es recomendable es seleccionar una estrategia y usarla consistentemente para cargar y salvar.
-            if( ClienteNatural.NATURAL.equals( tipoCliente ) )
-            {
-                // 1. En esta estrategia, en ESTA clase se realiza todo lo que tiene que ver con cargar objetos de la clase ClienteNatural
-                // Al revisar el código de la clase ClienteNatural, no hay nada que tenga que ver con cargar o salvar.
-                // En este caso, la persistencia es una preocupación transversal de la que no se ocupa la clase ClienteNatural
-                String nombre = cliente.getString( NOMBRE_CLIENTE );
-                nuevoCliente = new ClienteNatural( nombre );
-            }
-            else
-            {
-                // 2. En esta estrategia, en la clase ClienteCorporativo se realiza una parte de lo que tiene que ver con cargar objetos de la clase ClienteCorporativo.
-                // La clase ClienteCorporativo tiene un método para cargar y otro para salvar.
-                // En este caso, la persistencia es una preocupación de la cual se ocupa la clase ClienteCorporativo
-                nuevoCliente = ClienteCorporativo.cargarDesdeJSON( cliente );
-            }
-            if( !aerolinea.existeCliente( nuevoCliente.getIdentificador( ) ) )
-                aerolinea.agregarCliente( nuevoCliente );
-            else
-                throw new ClienteRepetidoException( nuevoCliente.getTipoCliente( ), nuevoCliente.getIdentificador( ) );
+            // 1. En esta estrategia, en ESTA clase se realiza todo lo que tiene que ver con cargar objetos de la clase ClienteNatural
+            // Al revisar el código de la clase ClienteNatural, no hay nada que tenga que ver con cargar o salvar.
+            // En este caso, la persistencia es una preocupación transversal de la que no se ocupa la clase ClienteNatural
+            String nombre = cliente.getString( NOMBRE_CLIENTE );
+            nuevoCliente = new ClienteNatural( nombre );
+        }
+        else
+        {
+            // 2. En esta estrategia, en la clase ClienteCorporativo se realiza una parte de lo que tiene que ver con cargar objetos de la clase ClienteCorporativo.
+            // La clase ClienteCorporativo tiene un método para cargar y otro para salvar.
+            // En este caso, la persistencia es una preocupación de la cual se ocupa la clase ClienteCorporativo
+            nuevoCliente = ClienteCorporativo.cargarDesdeJSON( cliente );
         }
+        if( !aerolinea.existeCliente( nuevoCliente.getIdentificador( ) ) )
+            aerolinea.agregarCliente( nuevoCliente );
+        else
+            throw new ClienteRepetidoException( nuevoCliente.getTipoCliente( ), nuevoCliente.getIdentificador( ) );
     }
 
     /**
-     * Salva la información de los clientes de la aerolínea dentro del objeto json que se recibe por parámetro.
+     * Escribe la información de los clientes de la aerolínea.
      * 
      * La información de los clientes queda dentro de la llave 'clientes'
      * @param aerolinea La aerolínea que tiene la información
-     * @param jobject El objeto JSON donde debe quedar la información de los clientes
+     * @param escritor El escritor donde debe quedar la información de los clientes
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
      */
-    private void salvarClientes( Aerolinea aerolinea, JSONObject jobject )
+    private void salvarClientes( Aerolinea aerolinea, EscritorJson escritor ) throws IOException
     {
-        JSONArray jClientes = new JSONArray( );
+        escritor.llave( CLIENTES );
+        escritor.iniciarArreglo( );
         for( Cliente cliente : aerolinea.getClientes( ) )
         {
             // Acá también se utilizaron dos estrategias para salvar los clientes.
-            // Para los clientes naturales, esta clase extrae la información de los objetos y la organiza para que luego sea salvada.
+            // Para los clientes naturales, esta clase extrae la información de los objetos y la escribe directamente.
             // Para los clientes corporativos, la clase ClienteCorporativo hace todo lo que está en sus manos para persistir un cliente
             if( ClienteNatural.NATURAL.equals( cliente.getTipoCliente( ) ) )
             {
-                JSONObject jCliente = new JSONObject( );
-                jCliente.put( NOMBRE_CLIENTE, cliente.getIdentificador( ) );
-                jClientes.put( jCliente );
+                escritor.iniciarObjeto( );
+                escritor.propiedad( TIPO_CLIENTE, ClienteNatural.NATURAL );
+                escritor.propiedad( NOMBRE_CLIENTE, cliente.getIdentificador( ) );
+                escritor.terminarObjeto( );
             }
             else
             {
                 ClienteCorporativo cc = ( ClienteCorporativo )cliente;
                 JSONObject jCliente = cc.salvarEnJSON( );
-                jClientes.put( jCliente );
+                escritor.valor( jCliente );
             }
         }
-
-        jobject.put( "clientes", jClientes );
+        escritor.terminarArreglo( );
     }
 
     /**
-     * Carga los tiquetes de la aerolínea a partir de un archivo JSON
+     * Carga los tiquetes de la aerolínea a partir de un archivo JSON.
+     * 
+     * Los tiquetes se procesan por bloques, en una secuencia de tres etapas: mientras se leen del archivo los tiquetes de un bloque, se buscan en paralelo (con un
+     * ForkJoinPool) la ruta, el vuelo y el cliente de los tiquetes del bloque anterior, y luego se confirman esos tiquetes uno por uno, en el orden del archivo. Como la
+     * confirmación es secuencial, si hay algún problema se reporta el primero que aparezca en el archivo, y los tiquetes anteriores a él quedan cargados, igual que si se
+     * cargaran uno por uno.
      * @param aerolinea La aerolínea donde deben quedar los tiquetes
-     * @param jTiquetes El elemento JSON donde está la información de los tiquetes
+     * @param lector El lector, ubicado justo antes del arreglo con la información de los tiquetes
      * @throws InformacionInconsistenteTiqueteException Lanza esta excepción si la información de alguno de los tiquetes no es consistente con el resto de elementos de la
      *         aerolínea (ej. es un tiquete para un vuelo que no existe, o fue comprado por un cliente que no existe, etc.)
+     * @throws InformacionInconsistenteException Lanza esta excepción si algún vuelo tiene más tiquetes que sillas
      */
-    private void cargarTiquetes( Aerolinea aerolinea, JSONArray jTiquetes ) throws InformacionInconsistenteTiqueteException
+    private void cargarTiquetes( Aerolinea aerolinea, LectorJson lector ) throws InformacionInconsistenteException
     {
-        int numTiquetes = jTiquetes.length( );
-        for( int i = 0; i < numTiquetes; i++ )
+        lector.iniciarArreglo( );
+        CodigosCargados codigos = new CodigosCargados( aerolinea );
+        ResolucionTiquetes anterior = null;
+        boolean terminado = false;
+        while( !terminado )
         {
-            JSONObject tiquete = jTiquetes.getJSONObject( i );
-
-            // Extraer y validar la información del tiquete
-            String codigoRuta = tiquete.getString( CODIGO_RUTA );
-            Ruta laRuta = aerolinea.getRuta( codigoRuta );
-            if( laRuta == null )
-                throw new InformacionInconsistenteTiqueteException( "ruta", codigoRuta );
-
-            String fechaVuelo = tiquete.getString( FECHA );
-            Vuelo elVuelo = aerolinea.getVuelo( codigoRuta, fechaVuelo );
-            if( elVuelo == null )
-                throw new InformacionInconsistenteTiqueteException( "vuelo", codigoRuta + " en " + fechaVuelo );
-
-            String codigoTiquete = tiquete.getString( CODIGO_TIQUETE );
-            boolean existe = GeneradorTiquetes.validarTiquete( codigoTiquete );
-
-            if( existe )
-                throw new InformacionInconsistenteTiqueteException( "tiquete", codigoTiquete, false );
-
-            int tarifa = tiquete.getInt( TARIFA );
-            boolean tiqueteUsado = tiquete.getBoolean( USADO );
-
-            String identificadorCliente = tiquete.getString( CLIENTE );
-            Cliente elCliente = aerolinea.getCliente( identificadorCliente );
-            if( elCliente == null )
-                throw new InformacionInconsistenteTiqueteException( "cliente", identificadorCliente );
-
-            // Construir y registrar el tiquete
-            Tiquete nuevoTiquete = new Tiquete( codigoTiquete, elVuelo, elCliente, tarifa );
-            if( tiqueteUsado )
-                nuevoTiquete.marcarComoUsado( );
-            GeneradorTiquetes.registrarTiquete( nuevoTiquete );
+            // Leer el siguiente bloque mientras se resuelve el anterior
+            List<JSONObject> bloque = new ArrayList<JSONObject>( TAMANO_BLOQUE );
+            RuntimeException errorLectura = null;
+            try
+            {
+                while( bloque.size( ) < TAMANO_BLOQUE && lector.haySiguienteElemento( ) )
+                    bloque.add( lector.leerObjeto( ) );
+            }
+            catch( RuntimeException e )
+            {
+                errorLectura = e;
+            }
+            terminado = bloque.size( ) < TAMANO_BLOQUE;
+
+            ResolucionTiquetes actual = null;
+            if( !bloque.isEmpty( ) )
+            {
+                actual = new ResolucionTiquetes( aerolinea, bloque );
+                actual.fork( );
+            }
+
+            if( anterior != null )
+                confirmarTiquetes( anterior, codigos );
+            anterior = actual;
+
+            if( errorLectura != null )
+            {
+                // Los tiquetes que se alcanzaron a leer se cargan antes de reportar el error, igual que si se cargaran uno por uno
+                if( anterior != null )
+                    confirmarTiquetes( anterior, codigos );
+                throw errorLectura;
+            }
         }
+        if( anterior != null )
+            confirmarTiquetes( anterior, codigos );
     }
 
     /**
-     * Salva la información de los tiquetes de la aerolínea dentro del objeto json que se recibe por parámetro.
+     * Espera a que termine la resolución de un bloque de tiquetes y confirma sus tiquetes, en orden
+     * @param resolucion La tarea que resuelve el bloque
+     * @param codigos Los códigos de los tiquetes que ya se confirmaron en esta carga
+     * @throws InformacionInconsistenteException Lanza esta excepción si alguno de los tiquetes no se puede cargar
+     */
+    private void confirmarTiquetes( ResolucionTiquetes resolucion, CodigosCargados codigos ) throws InformacionInconsistenteException
+    {
+        resolucion.join( );
+        for( TiqueteLeido tiquete : resolucion.getResultados( ) )
+            tiquete.confirmar( codigos );
+    }
+
+    /**
+     * Escribe la información de los tiquetes de la aerolínea, recorriéndolos vuelo por vuelo.
      * 
      * La información de los tiquetes queda dentro de la llave 'tiquetes'
      * @param aerolinea La aerolínea que tiene la información
-     * @param jobject El objeto JSON donde debe quedar la información de los tiquetes
+     * @param escritor El escritor donde debe quedar la información de los tiquetes
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
      */
-    private void salvarTiquetes( Aerolinea aerolinea, JSONObject jobject )
+    private void salvarTiquetes( Aerolinea aerolinea, EscritorJson escritor ) throws IOException
     {
-        JSONArray jTiquetes = new JSONArray( );
-        for( Tiquete tiquete : aerolinea.getTiquetes( ) )
+        escritor.llave( TIQUETES );
+        escritor.iniciarArreglo( );
+        // Los vuelos se recorren con el índice, que se puede recorrer mientras se programan o se realizan vuelos
+        Iterator<Vuelo> vuelos = aerolinea.streamVuelos( ).iterator( );
+        while( vuelos.hasNext( ) )
         {
-            JSONObject jTiquete = new JSONObject( );
-            jTiquete.put( CODIGO_TIQUETE, tiquete.getCodigo( ) );
-            jTiquete.put( CODIGO_RUTA, tiquete.getVuelo( ).getRuta( ).getCodigoRuta( ) );
-            jTiquete.put( FECHA, tiquete.getVuelo( ).getFecha( ) );
-            jTiquete.put( TARIFA, tiquete.getTarifa( ) );
-            jTiquete.put( USADO, tiquete.esUsado( ) );
-            jTiquete.put( CLIENTE, tiquete.getCliente( ).getIdentificador( ) );
-
-            jTiquetes.put( jTiquete );
+            Vuelo vuelo = vuelos.next( );
+            String codigoRuta = vuelo.getRuta( ).getCodigoRuta( );
+            String fecha = vuelo.getFecha( );
+            for( Tiquete tiquete : vuelo.getManifiesto( ) )
+            {
+                escritor.iniciarObjeto( );
+                escritor.propiedad( CODIGO_TIQUETE, tiquete.getCodigo( ) );
+                escritor.propiedad( CODIGO_RUTA, codigoRuta );
+                escritor.propiedad( FECHA, fecha );
+                escritor.propiedad( TARIFA, tiquete.getTarifa( ) );
+                escritor.propiedad( USADO, tiquete.esUsado( ) );
+                escritor.propiedad( CLIENTE, tiquete.getCliente( ).getIdentificador( ) );
+                escritor.terminarObjeto( );
+            }
         }
-        jobject.put( "tiquetes", jTiquetes );
+        escritor.terminarArreglo( );
     }
 
 }
@@ -0,0 +1,72 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import org.json.JSONObject;
+
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+
+/**
+ * Esta tarea busca en paralelo las referencias de un bloque de tiquetes leídos de un archivo, dividiendo el bloque en partes hasta que cada parte sea suficientemente
+ * pequeña.
+ *
+ * El resultado de la tarea es un arreglo de TiqueteLeido en el mismo orden del bloque. La tarea no modifica la aerolínea.
+ */
+@SuppressWarnings("serial")
+class ResolucionTiquetes extends RecursiveAction
+{
+    /**
+     * La cantidad de tiquetes a partir de la cual una parte del bloque se vuelve a dividir
+     */
+    private static final int UMBRAL = 256;
+
+    private Aerolinea aerolinea;
+    private List<JSONObject> tiquetes;
+    private TiqueteLeido[] resultados;
+    private int inicio;
+    private int fin;
+
+    /**
+     * Construye una tarea para resolver todos los tiquetes de un bloque
+     * @param aerolinea La aerolínea donde se buscan las referencias
+     * @param tiquetes Los objetos JSON con la información de los tiquetes del bloque
+     */
+    public ResolucionTiquetes( Aerolinea aerolinea, List<JSONObject> tiquetes )
+    {
+        this( aerolinea, tiquetes, new TiqueteLeido[tiquetes.size( )], 0, tiquetes.size( ) );
+    }
+
+    private ResolucionTiquetes( Aerolinea aerolinea, List<JSONObject> tiquetes, TiqueteLeido[] resultados, int inicio, int fin )
+    {
+        this.aerolinea = aerolinea;
+        this.tiquetes = tiquetes;
+        this.resultados = resultados;
+        this.inicio = inicio;
+        this.fin = fin;
+    }
+
+    @Override
+    protected void compute( )
+    {
+        if( fin - inicio <= UMBRAL )
+        {
+            for( int i = inicio; i < fin; i++ )
+                resultados[ i ] = new TiqueteLeido( aerolinea, tiquetes.get( i ) );
+        }
+        else
+        {
+            int mitad = ( inicio + fin ) >>> 1;
+            invokeAll( new ResolucionTiquetes( aerolinea, tiquetes, resultados, inicio, mitad ), new ResolucionTiquetes( aerolinea, tiquetes, resultados, mitad, fin ) );
+        }
+    }
+
+    /**
+     * Retorna los tiquetes resueltos. Sólo se debe llamar después de que la tarea termine.
+     * @return Los tiquetes, en el mismo orden del bloque
+     */
+    public TiqueteLeido[] getResultados( )
+    {
+        return resultados;
+    }
+}
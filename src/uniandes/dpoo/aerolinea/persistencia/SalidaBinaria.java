@@ -0,0 +1,241 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Esta clase escribe archivos en el formato binario de la aerolínea.
+ *
+ * Un archivo binario tiene la siguiente estructura:
+ * <ul>
+ * <li>El número mágico 'DPOA' (4 bytes), la versión del formato (1 byte) y el tipo de contenido (1 byte).</li>
+ * <li>El contenido, donde los enteros se escriben como varints (7 bits por byte) y las cadenas se internan: la primera vez que aparece una cadena se escribe completa y
+ * recibe un índice en la tabla de cadenas; las siguientes veces sólo se escribe su índice.</li>
+ * <li>El CRC32 de todo lo anterior (4 bytes).</li>
+ * </ul>
+ *
+ * El contenido se escribe primero en un archivo temporal (la ruta del archivo con la extensión '.tmp'), que sólo reemplaza al archivo cuando se llama terminar. Si la
+ * escritura falla antes, el archivo temporal se borra al cerrar y el archivo anterior queda intacto: nunca queda en su lugar un archivo incompleto con un CRC32 válido.
+ *
+ * El archivo correspondiente se lee con la clase EntradaBinaria.
+ */
+class SalidaBinaria implements AutoCloseable
+{
+    /**
+     * El número mágico con el que empiezan todos los archivos binarios de la aerolínea
+     */
+    static final int MAGICO = 0x44504F41;
+
+    /**
+     * La versión actual del formato. En la versión 2 los tiquetes se escriben agrupados por vuelo; el resto del formato es igual al de la versión 1.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * La versión más antigua del formato que todavía se puede leer
+     */
+    static final int VERSION_MINIMA = 1;
+
+    /**
+     * El tipo de contenido de los archivos que tienen el catálogo de la aerolínea (aeropuertos, rutas, aviones y vuelos)
+     */
+    static final int TIPO_AEROLINEA = 'A';
+
+    /**
+     * El tipo de contenido de los archivos que tienen los clientes y los tiquetes de la aerolínea
+     */
+    static final int TIPO_TIQUETES = 'T';
+
+    /**
+     * El flujo sobre el que se escribe
+     */
+    private DataOutputStream salida;
+
+    /**
+     * El flujo del archivo temporal, que se usa para sincronizarlo con el disco antes de reemplazar el archivo
+     */
+    private FileOutputStream salidaArchivo;
+
+    /**
+     * El archivo que se está escribiendo
+     */
+    private File archivo;
+
+    /**
+     * El archivo temporal donde se escribe el contenido hasta que se termine
+     */
+    private File temporal;
+
+    /**
+     * Indica si ya se terminó el archivo
+     */
+    private boolean terminado;
+
+    /**
+     * El cálculo del CRC32 de lo que se ha escrito
+     */
+    private CRC32 crc;
+
+    /**
+     * La tabla de cadenas: las llaves son las cadenas ya escritas, mientras que los valores son sus índices
+     */
+    private Map<String, Integer> cadenas;
+
+    /**
+     * Abre el archivo temporal de un archivo para escribir y escribe el encabezado
+     * @param archivo La ruta al archivo
+     * @param tipo El tipo de contenido del archivo
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public SalidaBinaria( String archivo, int tipo ) throws IOException
+    {
+        this.archivo = new File( archivo );
+        temporal = new File( archivo + ".tmp" );
+        crc = new CRC32( );
+        salidaArchivo = new FileOutputStream( temporal );
+        salida = new DataOutputStream( new CheckedOutputStream( new BufferedOutputStream( salidaArchivo, 1 << 16 ), crc ) );
+        cadenas = new HashMap<String, Integer>( );
+
+        salida.writeInt( MAGICO );
+        salida.writeByte( VERSION );
+        salida.writeByte( tipo );
+    }
+
+    /**
+     * Escribe un entero no negativo como varint
+     * @param valor El valor
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public void escribirVarint( long valor ) throws IOException
+    {
+        while( ( valor & ~0x7FL ) != 0 )
+        {
+            salida.writeByte( ( int )( ( valor & 0x7F ) | 0x80 ) );
+            valor >>>= 7;
+        }
+        salida.writeByte( ( int )valor );
+    }
+
+    /**
+     * Escribe un entero que puede ser negativo, usando la codificación zigzag para que los valores pequeños ocupen pocos bytes
+     * @param valor El valor
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public void escribirEntero( long valor ) throws IOException
+    {
+        escribirVarint( ( valor << 1 ) ^ ( valor >> 63 ) );
+    }
+
+    /**
+     * Escribe un valor booleano
+     * @param valor El valor
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public void escribirBooleano( boolean valor ) throws IOException
+    {
+        salida.writeByte( valor ? 1 : 0 );
+    }
+
+    /**
+     * Escribe un número con decimales
+     * @param valor El valor
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public void escribirDouble( double valor ) throws IOException
+    {
+        salida.writeDouble( valor );
+    }
+
+    /**
+     * Escribe una cadena usando la tabla de cadenas.
+     *
+     * Si la cadena ya había sido escrita, se escribe su índice más uno. Si no, se escribe un 0 seguido de la cadena en UTF-8 (precedida por su longitud).
+     * @param valor La cadena
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public void escribirCadena( String valor ) throws IOException
+    {
+        Integer indice = cadenas.get( valor );
+        if( indice != null )
+        {
+            escribirVarint( indice + 1 );
+            return;
+        }
+        cadenas.put( valor, cadenas.size( ) );
+        byte[] bytes = valor.getBytes( StandardCharsets.UTF_8 );
+        escribirVarint( 0 );
+        escribirVarint( bytes.length );
+        salida.write( bytes );
+    }
+
+    /**
+     * Escribe el código de un tiquete.
+     *
+     * Los códigos formados sólo por dígitos (por ejemplo '0012345') se escriben como su longitud seguida de su valor numérico. Cualquier otro código se escribe como un 0
+     * seguido de la cadena.
+     * @param codigo El código
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public void escribirCodigo( String codigo ) throws IOException
+    {
+        int longitud = codigo.length( );
+        boolean numerico = longitud > 0 && longitud <= 18;
+        for( int i = 0; i < longitud && numerico; i++ )
+            numerico = Character.isDigit( codigo.charAt( i ) ) && codigo.charAt( i ) < 128;
+
+        if( numerico )
+        {
+            escribirVarint( longitud );
+            escribirVarint( Long.parseLong( codigo ) );
+        }
+        else
+        {
+            escribirVarint( 0 );
+            escribirCadena( codigo );
+        }
+    }
+
+    /**
+     * Escribe el CRC32 de todo el contenido, lo sincroniza con el disco y reemplaza el archivo por el temporal. Se debe llamar después de escribir todo el contenido.
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo. En ese caso el archivo anterior queda intacto.
+     */
+    public void terminar( ) throws IOException
+    {
+        salida.flush( );
+        salida.writeInt( ( int )crc.getValue( ) );
+        salida.flush( );
+        salidaArchivo.getChannel( ).force( true );
+        salida.close( );
+        Files.move( temporal.toPath( ), archivo.toPath( ), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+        terminado = true;
+    }
+
+    /**
+     * Cierra el archivo. Si no se terminó, el archivo temporal se borra y el archivo anterior queda intacto.
+     * @throws IOException Se lanza esta excepción si hay problemas cerrando el archivo
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        if( terminado )
+            return;
+        try
+        {
+            salida.close( );
+        }
+        finally
+        {
+            temporal.delete( );
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import org.json.JSONObject;
+
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteTiqueteException;
+import uniandes.dpoo.aerolinea.exceptions.VueloSobrevendidoException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Vuelo;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase representa un tiquete que se leyó de un archivo JSON y cuyas referencias (la ruta, el vuelo y el cliente) ya se buscaron en la aerolínea, pero que todavía no
+ * se ha agregado al vuelo ni al cliente.
+ *
+ * La carga de un tiquete se divide en dos pasos. Al construir el objeto se buscan las referencias: este paso sólo consulta la aerolínea, así que se puede hacer al mismo
+ * tiempo para muchos tiquetes. El método confirmar crea el tiquete y lo registra: este paso modifica la aerolínea y se debe hacer en el orden del archivo.
+ *
+ * Si algo falla al buscar las referencias, el error se guarda y se lanza al confirmar, de modo que los errores se reportan en el mismo orden y con las mismas excepciones
+ * que si los tiquetes se cargaran uno por uno.
+ */
+class TiqueteLeido
+{
+    private String codigoTiquete;
+    private int tarifa;
+    private boolean usado;
+    private Vuelo vuelo;
+    private Cliente cliente;
+
+    /**
+     * El error que se encontró antes de revisar si el código del tiquete está repetido (al buscar la ruta o el vuelo, o al leer el código), o null si no hubo ninguno
+     */
+    private Exception errorAntesDelCodigo;
+
+    /**
+     * El error que se encontró después de revisar el código del tiquete (al leer la tarifa, si está usado o el cliente, o al buscar el cliente), o null si no hubo ninguno
+     */
+    private Exception errorDespuesDelCodigo;
+
+    /**
+     * Lee la información de un tiquete y busca sus referencias en la aerolínea
+     * @param aerolinea La aerolínea
+     * @param tiquete El objeto JSON con la información del tiquete
+     */
+    public TiqueteLeido( Aerolinea aerolinea, JSONObject tiquete )
+    {
+        try
+        {
+            String codigoRuta = tiquete.getString( PersistenciaTiquetesJson.CODIGO_RUTA );
+            if( aerolinea.getRuta( codigoRuta ) == null )
+                throw new InformacionInconsistenteTiqueteException( "ruta", codigoRuta );
+
+            String fechaVuelo = tiquete.getString( PersistenciaTiquetesJson.FECHA );
+            vuelo = aerolinea.getVuelo( codigoRuta, fechaVuelo );
+            if( vuelo == null )
+                throw new InformacionInconsistenteTiqueteException( "vuelo", codigoRuta + " en " + fechaVuelo );
+
+            codigoTiquete = tiquete.getString( PersistenciaTiquetesJson.CODIGO_TIQUETE );
+        }
+        catch( InformacionInconsistenteException | RuntimeException e )
+        {
+            errorAntesDelCodigo = e;
+            return;
+        }
+
+        try
+        {
+            tarifa = tiquete.getInt( PersistenciaTiquetesJson.TARIFA );
+            usado = tiquete.getBoolean( PersistenciaTiquetesJson.USADO );
+
+            String identificadorCliente = tiquete.getString( PersistenciaTiquetesJson.CLIENTE );
+            cliente = aerolinea.getCliente( identificadorCliente );
+            if( cliente == null )
+                throw new InformacionInconsistenteTiqueteException( "cliente", identificadorCliente );
+        }
+        catch( InformacionInconsistenteException | RuntimeException e )
+        {
+            errorDespuesDelCodigo = e;
+        }
+    }
+
+    /**
+     * Crea el tiquete, lo agrega a su vuelo y a su cliente, y registra su código en el generador de tiquetes
+     * @param codigos Los códigos de los tiquetes que ya se confirmaron en la misma carga. El código de este tiquete se agrega a este objeto.
+     * @throws InformacionInconsistenteTiqueteException Se lanza esta excepción si el tiquete hace referencia a una ruta, un vuelo o un cliente que no existe, o si su
+     *         código ya estaba registrado o se repite en la misma carga
+     * @throws InformacionInconsistenteException Se lanza esta excepción si el vuelo del tiquete ya no tiene sillas libres
+     */
+    public void confirmar( CodigosCargados codigos ) throws InformacionInconsistenteException
+    {
+        lanzar( errorAntesDelCodigo );
+
+        // Si el registro de códigos es persistente, los códigos del archivo ya quedaron registrados en una ejecución anterior, así que los repetidos se detectan con los
+        // códigos que ya tenía la aerolínea y los cargados en esta misma carga
+        if( !codigos.agregar( codigoTiquete ) || ( GeneradorTiquetes.validarTiquete( codigoTiquete ) && !GeneradorTiquetes.esRegistroPersistente( ) ) )
+            throw new InformacionInconsistenteTiqueteException( "tiquete", codigoTiquete, false );
+
+        lanzar( errorDespuesDelCodigo );
+
+        Tiquete nuevoTiquete = new Tiquete( codigoTiquete, vuelo, cliente, tarifa );
+        try
+        {
+            // Si el vuelo usa un almacén, el tiquete que queda en el vuelo es otro
+            nuevoTiquete = vuelo.agregarTiquete( nuevoTiquete );
+        }
+        catch( VueloSobrevendidoException e )
+        {
+            cliente.retirarTiquete( nuevoTiquete );
+            throw new InformacionInconsistenteException( e.getMessage( ) );
+        }
+        if( usado )
+            cliente.usarTiquete( nuevoTiquete );
+        GeneradorTiquetes.registrarTiquete( nuevoTiquete );
+    }
+
+    /**
+     * Lanza un error que se guardó al buscar las referencias, si lo hay
+     * @param error El error, o null
+     * @throws InformacionInconsistenteException Se lanza el error si es de este tipo
+     */
+    private static void lanzar( Exception error ) throws InformacionInconsistenteException
+    {
+        if( error instanceof RuntimeException )
+            throw ( RuntimeException )error;
+        if( error != null )
+            throw ( InformacionInconsistenteException )error;
+    }
+}
@@ -0,0 +1,325 @@
+package uniandes.dpoo.aerolinea.tiquetes;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import uniandes.dpoo.aerolinea.modelo.Vuelo;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+
+/**
+ * Esta clase representa un almacén columnar de tiquetes: en lugar de mantener un objeto por cada tiquete, guarda los datos de todos los tiquetes en arreglos paralelos de
+ * enteros (el código, el vuelo, el cliente, la tarifa y la silla) y un mapa de bits con los tiquetes usados. Cada tiquete ocupa unos 20 bytes, frente a los más de 150 que
+ * ocupan un objeto Tiquete, su código y las referencias desde el vuelo y el cliente.
+ *
+ * Los vuelos y los clientes se identifican dentro del almacén con números consecutivos, asignados la primera vez que aparecen. Los códigos de 7 dígitos se guardan como su
+ * valor numérico; los demás códigos se guardan aparte.
+ *
+ * Los tiquetes del almacén se consultan a través de vistas (TiqueteAlmacenado) que se crean cuando se necesitan y no guardan ningún dato propio. Los arreglos crecen por
+ * segmentos de tamaño fijo, así que agregar un tiquete nunca copia los tiquetes anteriores. El almacén sólo crece: los tiquetes de los vuelos realizados siguen ocupando
+ * espacio aunque se hayan movido a un archivo histórico.
+ *
+ * Se pueden agregar tiquetes desde varios hilos al mismo tiempo. Los datos de un tiquete se escriben antes de que su posición se publique en el vuelo, así que quien la
+ * obtiene del vuelo siempre ve el tiquete completo.
+ */
+public class AlmacenTiquetes
+{
+    /**
+     * La cantidad de bits de la posición de un tiquete que corresponden a su posición dentro del segmento
+     */
+    private static final int BITS_SEGMENTO = 16;
+
+    /**
+     * La cantidad de tiquetes de cada segmento
+     */
+    private static final int TAMANO_SEGMENTO = 1 << BITS_SEGMENTO;
+
+    /**
+     * La cantidad máxima de segmentos del almacén
+     */
+    private static final int MAXIMO_SEGMENTOS = 1 << ( 31 - BITS_SEGMENTO );
+
+    /**
+     * El valor que se guarda en la columna de códigos para los códigos que no tienen 7 dígitos
+     */
+    private static final int CODIGO_ESPECIAL = -1;
+
+    /**
+     * Esta clase representa un segmento de las columnas del almacén
+     */
+    private static class Segmento
+    {
+        private final int[] codigos = new int[TAMANO_SEGMENTO];
+        private final int[] vuelos = new int[TAMANO_SEGMENTO];
+        private final int[] clientes = new int[TAMANO_SEGMENTO];
+        private final int[] tarifas = new int[TAMANO_SEGMENTO];
+        private final int[] sillas = new int[TAMANO_SEGMENTO];
+        private final AtomicLongArray usados = new AtomicLongArray( TAMANO_SEGMENTO / 64 );
+    }
+
+    /**
+     * Los segmentos del almacén. El tiquete en la posición p está en el segmento p / TAMANO_SEGMENTO.
+     */
+    private final Segmento[] segmentos;
+
+    /**
+     * La cantidad de tiquetes del almacén
+     */
+    private final AtomicInteger cantidad;
+
+    /**
+     * Los vuelos del almacén, en la posición de su identificador
+     */
+    private volatile Vuelo[] vuelos;
+
+    /**
+     * La cantidad de vuelos del almacén
+     */
+    private int cantidadVuelos;
+
+    /**
+     * Los clientes del almacén, en la posición de su identificador
+     */
+    private volatile Cliente[] clientes;
+
+    /**
+     * La cantidad de clientes del almacén
+     */
+    private int cantidadClientes;
+
+    /**
+     * Los identificadores de los clientes del almacén
+     */
+    private final Map<Cliente, Integer> identificadoresClientes;
+
+    /**
+     * Los códigos que no tienen 7 dígitos. Las llaves son las posiciones de los tiquetes, mientras que los valores son sus códigos.
+     */
+    private final Map<Integer, String> codigosEspeciales;
+
+    /**
+     * Construye un almacén vacío
+     */
+    public AlmacenTiquetes( )
+    {
+        segmentos = new Segmento[MAXIMO_SEGMENTOS];
+        cantidad = new AtomicInteger( );
+        vuelos = new Vuelo[64];
+        clientes = new Cliente[64];
+        identificadoresClientes = new ConcurrentHashMap<Cliente, Integer>( );
+        codigosEspeciales = new ConcurrentHashMap<Integer, String>( );
+    }
+
+    /**
+     * Registra un vuelo en el almacén. Lo hace el vuelo cuando la aerolínea lo programa, antes de que pueda recibir tiquetes.
+     * @param vuelo El vuelo
+     * @return El identificador del vuelo dentro del almacén
+     */
+    public synchronized int registrarVuelo( Vuelo vuelo )
+    {
+        if( cantidadVuelos == vuelos.length )
+            vuelos = Arrays.copyOf( vuelos, vuelos.length * 2 );
+        vuelos[ cantidadVuelos ] = vuelo;
+        return cantidadVuelos++;
+    }
+
+    /**
+     * Agrega al almacén un tiquete nuevo, con un código que ya se asignó con GeneradorTiquetes.asignarCodigos
+     * @param codigo El código del tiquete, de 7 dígitos
+     * @param idVuelo El identificador del vuelo dentro del almacén
+     * @param cliente El cliente que compró el tiquete
+     * @param tarifa El valor que se le cobró al cliente por el tiquete
+     * @param silla El número de la silla asignada al tiquete
+     * @return La posición del tiquete en el almacén
+     * @throws IllegalStateException Se lanza esta excepción si el almacén está lleno
+     */
+    public int emitir( String codigo, int idVuelo, Cliente cliente, int tarifa, int silla )
+    {
+        return agregar( GeneradorTiquetes.convertirCodigo( codigo ), idVuelo, cliente, tarifa, silla, false );
+    }
+
+    /**
+     * Agrega al almacén un tiquete que ya existía, por ejemplo porque se cargó de un archivo
+     * @param tiquete El tiquete
+     * @param idVuelo El identificador del vuelo del tiquete dentro del almacén
+     * @param silla El número de la silla asignada al tiquete
+     * @return La posición del tiquete en el almacén
+     * @throws IllegalStateException Se lanza esta excepción si el almacén está lleno
+     */
+    public int agregar( Tiquete tiquete, int idVuelo, int silla )
+    {
+        int codigo = GeneradorTiquetes.convertirCodigo( tiquete.getCodigo( ) );
+        int posicion = agregar( codigo < 0 ? CODIGO_ESPECIAL : codigo, idVuelo, tiquete.getCliente( ), tiquete.getTarifa( ), silla, tiquete.esUsado( ) );
+        if( codigo < 0 )
+            codigosEspeciales.put( posicion, tiquete.getCodigo( ) );
+        return posicion;
+    }
+
+    /**
+     * Retorna la vista de un tiquete del almacén
+     * @param posicion La posición del tiquete
+     * @return Una vista del tiquete, que lee sus datos directamente del almacén
+     */
+    public Tiquete getTiquete( int posicion )
+    {
+        return new TiqueteAlmacenado( this, posicion );
+    }
+
+    /**
+     * Retorna la cantidad de tiquetes del almacén
+     * @return
+     */
+    public int getCantidad( )
+    {
+        return cantidad.get( );
+    }
+
+    /**
+     * Revisa si el tiquete en una posición tiene un código dado
+     * @param posicion La posición del tiquete
+     * @param codigo El código
+     * @return Retorna true si el tiquete tiene el código
+     */
+    public boolean tieneCodigo( int posicion, String codigo )
+    {
+        int numero = segmento( posicion ).codigos[ posicion & ( TAMANO_SEGMENTO - 1 ) ];
+        if( numero == CODIGO_ESPECIAL )
+            return codigo.equals( codigosEspeciales.get( posicion ) );
+        return numero == GeneradorTiquetes.convertirCodigo( codigo );
+    }
+
+    /**
+     * Marca como usado el tiquete en una posición
+     * @param posicion La posición del tiquete
+     * @return Retorna true si el tiquete no estaba usado
+     */
+    public boolean marcarComoUsado( int posicion )
+    {
+        AtomicLongArray usados = segmento( posicion ).usados;
+        int indice = posicion & ( TAMANO_SEGMENTO - 1 );
+        long mascara = 1L << indice;
+        long actual;
+        do
+        {
+            actual = usados.get( indice >>> 6 );
+            if( ( actual & mascara ) != 0 )
+                return false;
+        } while( !usados.compareAndSet( indice >>> 6, actual, actual | mascara ) );
+        return true;
+    }
+
+    // Los siguientes métodos leen las columnas de un tiquete para su vista
+
+    String getCodigo( int posicion )
+    {
+        int numero = segmento( posicion ).codigos[ posicion & ( TAMANO_SEGMENTO - 1 ) ];
+        if( numero == CODIGO_ESPECIAL )
+            return codigosEspeciales.get( posicion );
+        return GeneradorTiquetes.formatearCodigo( numero );
+    }
+
+    Vuelo getVuelo( int posicion )
+    {
+        return vuelos[ segmento( posicion ).vuelos[ posicion & ( TAMANO_SEGMENTO - 1 ) ] ];
+    }
+
+    Cliente getCliente( int posicion )
+    {
+        return clientes[ segmento( posicion ).clientes[ posicion & ( TAMANO_SEGMENTO - 1 ) ] ];
+    }
+
+    int getTarifa( int posicion )
+    {
+        return segmento( posicion ).tarifas[ posicion & ( TAMANO_SEGMENTO - 1 ) ];
+    }
+
+    int getSilla( int posicion )
+    {
+        return segmento( posicion ).sillas[ posicion & ( TAMANO_SEGMENTO - 1 ) ];
+    }
+
+    boolean esUsado( int posicion )
+    {
+        int indice = posicion & ( TAMANO_SEGMENTO - 1 );
+        return ( segmento( posicion ).usados.get( indice >>> 6 ) & ( 1L << indice ) ) != 0;
+    }
+
+    /**
+     * Escribe un tiquete en la siguiente posición libre del almacén
+     * @return La posición del tiquete
+     * @throws IllegalStateException Se lanza esta excepción si el almacén está lleno
+     */
+    private int agregar( int codigo, int idVuelo, Cliente cliente, int tarifa, int silla, boolean usado )
+    {
+        int posicion = cantidad.getAndIncrement( );
+        if( posicion < 0 )
+            throw new IllegalStateException( "El almacén de tiquetes está lleno" );
+
+        Segmento segmento = segmentos[ posicion >>> BITS_SEGMENTO ];
+        if( segmento == null )
+            segmento = crearSegmento( posicion >>> BITS_SEGMENTO );
+        int indice = posicion & ( TAMANO_SEGMENTO - 1 );
+        segmento.codigos[ indice ] = codigo;
+        segmento.vuelos[ indice ] = idVuelo;
+        segmento.clientes[ indice ] = getIdentificadorCliente( cliente );
+        segmento.tarifas[ indice ] = tarifa;
+        segmento.sillas[ indice ] = silla;
+        if( usado )
+            marcarComoUsado( posicion );
+        return posicion;
+    }
+
+    /**
+     * Crea un segmento, si ningún otro hilo lo ha creado todavía
+     * @param numero El número del segmento
+     * @return El segmento
+     */
+    private synchronized Segmento crearSegmento( int numero )
+    {
+        if( segmentos[ numero ] == null )
+            segmentos[ numero ] = new Segmento( );
+        return segmentos[ numero ];
+    }
+
+    /**
+     * Retorna el segmento donde está una posición
+     * @param posicion La posición de un tiquete
+     * @return
+     */
+    private Segmento segmento( int posicion )
+    {
+        return segmentos[ posicion >>> BITS_SEGMENTO ];
+    }
+
+    /**
+     * Retorna el identificador de un cliente dentro del almacén, asignándole uno si todavía no lo tenía
+     * @param cliente El cliente
+     * @return
+     */
+    private int getIdentificadorCliente( Cliente cliente )
+    {
+        Integer identificador = identificadoresClientes.get( cliente );
+        if( identificador != null )
+            return identificador;
+        return registrarCliente( cliente );
+    }
+
+    /**
+     * Le asigna un identificador a un cliente, si ningún otro hilo se lo ha asignado todavía
+     * @param cliente El cliente
+     * @return El identificador del cliente
+     */
+    private synchronized int registrarCliente( Cliente cliente )
+    {
+        Integer identificador = identificadoresClientes.get( cliente );
+        if( identificador != null )
+            return identificador;
+        if( cantidadClientes == clientes.length )
+            clientes = Arrays.copyOf( clientes, clientes.length * 2 );
+        clientes[ cantidadClientes ] = cliente;
+        identificadoresClientes.put( cliente, cantidadClientes );
+        return cantidadClientes++;
+    }
+}
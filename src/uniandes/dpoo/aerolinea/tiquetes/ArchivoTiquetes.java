@@ -0,0 +1,487 @@
+package uniandes.dpoo.aerolinea.tiquetes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase representa un archivo histórico de tiquetes: un archivo en disco, al que sólo se le pueden agregar tiquetes, donde quedan los tiquetes de los vuelos que ya
+ * se realizaron para que no tengan que mantenerse en memoria.
+ *
+ * El archivo histórico está compuesto por dos archivos que se acceden mapeados en memoria:
+ * <ul>
+ * <li>Un archivo de registros ('.dat') con un registro de tamaño fijo por cada tiquete. El primer registro es un encabezado con el número mágico, la versión y la cantidad
+ * de tiquetes archivados.</li>
+ * <li>Un archivo de índice ('.idx') con una posición por cada posible código de 7 dígitos, donde se guarda el número del registro del tiquete con ese código (o 0 si no hay
+ * ningún tiquete archivado con ese código). Como el espacio de códigos es pequeño, el índice es un hash perfecto: buscar un tiquete cuesta leer una posición del índice y
+ * un registro.</li>
+ * </ul>
+ *
+ * Cada registro tiene el código, la tarifa, la fecha del vuelo (como la cantidad de días desde el 1 de enero de 1970), si el tiquete fue usado, el código de la ruta (hasta
+ * 16 bytes en UTF-8) y el identificador del cliente (hasta 96 bytes en UTF-8).
+ *
+ * Los tiquetes que no caben en un registro de tamaño fijo (porque su código no tiene 7 dígitos, como los códigos especiales de la serie, o porque el código de la ruta o
+ * el identificador del cliente son más largos) se guardan en un tercer archivo de desbordamiento ('.ext'), con registros de tamaño variable. Ese archivo se lee completo
+ * al abrir el archivo histórico y sus tiquetes se mantienen en memoria, así que se espera que sean pocos.
+ */
+public class ArchivoTiquetes implements Closeable
+{
+    /**
+     * El número mágico con el que empieza el archivo de registros
+     */
+    private static final int MAGICO = 0x44504F48;
+
+    /**
+     * El número mágico con el que empieza el archivo de desbordamiento
+     */
+    private static final int MAGICO_DESBORDAMIENTO = 0x44504F45;
+
+    /**
+     * La versión actual del formato de los registros
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * La cantidad de códigos de tiquete posibles (todos los números de 7 dígitos)
+     */
+    private static final int CANTIDAD_CODIGOS = 10000000;
+
+    /**
+     * El tamaño en bytes de cada registro
+     */
+    private static final int TAMANO_REGISTRO = 128;
+
+    /**
+     * La cantidad de registros de cada segmento mapeado del archivo de registros
+     */
+    private static final int REGISTROS_POR_SEGMENTO = 1 << 19;
+
+    private static final int POS_CODIGO = 0;
+    private static final int POS_TARIFA = 4;
+    private static final int POS_FECHA = 8;
+    private static final int POS_USADO = 12;
+    private static final int POS_LONGITUD_RUTA = 13;
+    private static final int POS_LONGITUD_CLIENTE = 14;
+    private static final int POS_RUTA = 16;
+    private static final int POS_CLIENTE = 32;
+    private static final int MAXIMO_RUTA = POS_CLIENTE - POS_RUTA;
+    private static final int MAXIMO_CLIENTE = TAMANO_REGISTRO - POS_CLIENTE;
+
+    /**
+     * El canal del archivo de registros
+     */
+    private FileChannel canalRegistros;
+
+    /**
+     * Los segmentos del archivo de registros que ya están mapeados en memoria
+     */
+    private List<MappedByteBuffer> segmentos;
+
+    /**
+     * El archivo de índice mapeado en memoria
+     */
+    private MappedByteBuffer indice;
+
+    /**
+     * La cantidad de tiquetes archivados en el archivo de registros
+     */
+    private int cantidad;
+
+    /**
+     * El canal del archivo de desbordamiento
+     */
+    private FileChannel canalDesbordamiento;
+
+    /**
+     * Los tiquetes archivados en el archivo de desbordamiento, indexados por su código
+     */
+    private Map<String, TiqueteArchivado> desbordados;
+
+    /**
+     * Abre un archivo histórico de tiquetes, o lo crea si no existe
+     * @param rutaBase La ruta de los archivos, sin extensión. Los archivos de registros, índice y desbordamiento se llaman como la ruta base, con las extensiones '.dat',
+     *        '.idx' y '.ext'.
+     * @throws IOException Se lanza esta excepción si hay problemas abriendo los archivos o si el archivo de registros o el de desbordamiento no tienen el formato esperado
+     */
+    public ArchivoTiquetes( String rutaBase ) throws IOException
+    {
+        canalRegistros = FileChannel.open( Paths.get( rutaBase + ".dat" ), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+        segmentos = new ArrayList<MappedByteBuffer>( );
+        boolean nuevo = canalRegistros.size( ) == 0;
+        MappedByteBuffer encabezado = segmento( 0 );
+        if( nuevo )
+        {
+            encabezado.putInt( 0, MAGICO );
+            encabezado.putInt( 4, VERSION );
+            encabezado.putInt( 8, 0 );
+        }
+        else if( encabezado.getInt( 0 ) != MAGICO || encabezado.getInt( 4 ) != VERSION )
+        {
+            canalRegistros.close( );
+            throw new IOException( "El archivo " + rutaBase + ".dat no es un archivo histórico de tiquetes válido" );
+        }
+        cantidad = encabezado.getInt( 8 );
+
+        try( FileChannel canalIndice = FileChannel.open( Paths.get( rutaBase + ".idx" ), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE ) )
+        {
+            // El mapeo se mantiene válido después de cerrar el canal
+            indice = canalIndice.map( MapMode.READ_WRITE, 0, 4L * CANTIDAD_CODIGOS );
+        }
+
+        try
+        {
+            abrirDesbordamiento( rutaBase + ".ext" );
+        }
+        catch( IOException e )
+        {
+            canalRegistros.close( );
+            throw e;
+        }
+    }
+
+    /**
+     * Agrega un tiquete al archivo histórico. Si el tiquete ya estaba archivado con los mismos datos, no se archiva otra vez, así que se puede volver a archivar un vuelo
+     * cuyo archivo se interrumpió.
+     * @param tiquete El tiquete que se quiere archivar
+     * @return Retorna true si el tiquete se agregó, o false si ya estaba archivado con los mismos datos
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     * @throws IllegalArgumentException Se lanza esta excepción si ya había un tiquete archivado con el mismo código pero con otros datos. En ese caso no se escribe nada.
+     */
+    public synchronized boolean archivar( Tiquete tiquete ) throws IOException
+    {
+        if( verificar( tiquete ) )
+            return false;
+
+        int codigo = convertirCodigo( tiquete.getCodigo( ) );
+        byte[] ruta = tiquete.getVuelo( ).getRuta( ).getCodigoRuta( ).getBytes( StandardCharsets.UTF_8 );
+        byte[] cliente = tiquete.getCliente( ).getIdentificador( ).getBytes( StandardCharsets.UTF_8 );
+        if( codigo < 0 || ruta.length > MAXIMO_RUTA || cliente.length > MAXIMO_CLIENTE )
+        {
+            desbordar( tiquete );
+            return true;
+        }
+
+        int registro = cantidad + 1;
+        MappedByteBuffer buffer = segmento( registro / REGISTROS_POR_SEGMENTO );
+        int posicion = ( registro % REGISTROS_POR_SEGMENTO ) * TAMANO_REGISTRO;
+        buffer.putInt( posicion + POS_CODIGO, codigo );
+        buffer.putInt( posicion + POS_TARIFA, tiquete.getTarifa( ) );
+        buffer.putInt( posicion + POS_FECHA, tiquete.getVuelo( ).getDiaEpoca( ) );
+        buffer.put( posicion + POS_USADO, ( byte )( tiquete.esUsado( ) ? 1 : 0 ) );
+        buffer.put( posicion + POS_LONGITUD_RUTA, ( byte )ruta.length );
+        buffer.put( posicion + POS_LONGITUD_CLIENTE, ( byte )cliente.length );
+        for( int i = 0; i < ruta.length; i++ )
+            buffer.put( posicion + POS_RUTA + i, ruta[ i ] );
+        for( int i = 0; i < cliente.length; i++ )
+            buffer.put( posicion + POS_CLIENTE + i, cliente[ i ] );
+
+        // El registro sólo se vuelve visible después de haberse escrito completo
+        cantidad = registro;
+        segmento( 0 ).putInt( 8, cantidad );
+        indice.putInt( codigo * 4, registro );
+        return true;
+    }
+
+    /**
+     * Revisa si un tiquete se puede archivar, sin modificar el archivo histórico. Sirve para revisar todos los tiquetes de un vuelo antes de empezar a archivarlos.
+     * @param tiquete El tiquete
+     * @return Retorna true si el tiquete ya estaba archivado con los mismos datos, o false si todavía no estaba archivado
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     * @throws IllegalArgumentException Se lanza esta excepción si ya había un tiquete archivado con el mismo código pero con otros datos
+     */
+    public synchronized boolean verificar( Tiquete tiquete ) throws IOException
+    {
+        TiqueteArchivado archivado = buscar( tiquete.getCodigo( ) );
+        if( archivado == null )
+            return false;
+        if( !archivado.getCodigoRuta( ).equals( tiquete.getVuelo( ).getRuta( ).getCodigoRuta( ) ) || !archivado.getFecha( ).equals( LocalDate.ofEpochDay( tiquete.getVuelo( ).getDiaEpoca( ) ).toString( ) )
+                || archivado.getTarifa( ) != tiquete.getTarifa( ) || !archivado.getIdentificadorCliente( ).equals( tiquete.getCliente( ).getIdentificador( ) ) )
+            throw new IllegalArgumentException( "Ya hay otro tiquete archivado con el código " + tiquete.getCodigo( ) );
+        return true;
+    }
+
+    /**
+     * Busca un tiquete archivado a partir de su código
+     * @param codigoTiquete El código del tiquete
+     * @return El tiquete archivado, o null si no hay ningún tiquete archivado con ese código
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    public synchronized TiqueteArchivado buscar( String codigoTiquete ) throws IOException
+    {
+        int codigo = convertirCodigo( codigoTiquete );
+        if( codigo < 0 )
+            return desbordados.get( codigoTiquete );
+        int registro = indice.getInt( codigo * 4 );
+        if( registro == 0 || registro > cantidad )
+            return desbordados.get( codigoTiquete );
+
+        MappedByteBuffer buffer = segmento( registro / REGISTROS_POR_SEGMENTO );
+        int posicion = ( registro % REGISTROS_POR_SEGMENTO ) * TAMANO_REGISTRO;
+        int tarifa = buffer.getInt( posicion + POS_TARIFA );
+        String fecha = LocalDate.ofEpochDay( buffer.getInt( posicion + POS_FECHA ) ).toString( );
+        boolean usado = buffer.get( posicion + POS_USADO ) != 0;
+        String ruta = leerCadena( buffer, posicion + POS_RUTA, buffer.get( posicion + POS_LONGITUD_RUTA ) );
+        String cliente = leerCadena( buffer, posicion + POS_CLIENTE, buffer.get( posicion + POS_LONGITUD_CLIENTE ) );
+        return new TiqueteArchivado( codigoTiquete, ruta, fecha, tarifa, usado, cliente );
+    }
+
+    /**
+     * Revisa si hay un tiquete archivado con el código dado
+     * @param codigoTiquete El código del tiquete
+     * @return Retorna true si el tiquete está archivado
+     */
+    public synchronized boolean contiene( String codigoTiquete )
+    {
+        int codigo = convertirCodigo( codigoTiquete );
+        return ( codigo >= 0 && indice.getInt( codigo * 4 ) != 0 ) || desbordados.containsKey( codigoTiquete );
+    }
+
+    /**
+     * Retorna la cantidad de tiquetes archivados
+     * @return
+     */
+    public synchronized int getCantidad( )
+    {
+        return cantidad + desbordados.size( );
+    }
+
+    /**
+     * Obliga a que todos los cambios hechos hasta ahora queden escritos en el disco
+     * @throws UncheckedIOException Se lanza esta excepción si hay problemas escribiendo el archivo de desbordamiento
+     */
+    public synchronized void sincronizar( )
+    {
+        for( MappedByteBuffer segmento : segmentos )
+            segmento.force( );
+        indice.force( );
+        try
+        {
+            canalDesbordamiento.force( false );
+        }
+        catch( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Escribe todos los cambios en el disco y cierra el archivo histórico
+     * @throws IOException Se lanza esta excepción si hay problemas cerrando los archivos
+     */
+    @Override
+    public synchronized void close( ) throws IOException
+    {
+        try
+        {
+            sincronizar( );
+        }
+        catch( UncheckedIOException e )
+        {
+            throw e.getCause( );
+        }
+        finally
+        {
+            canalRegistros.close( );
+            canalDesbordamiento.close( );
+        }
+    }
+
+    /**
+     * Abre el archivo de desbordamiento, o lo crea si no existe, y carga sus tiquetes. Si el último registro quedó incompleto porque el programa falló mientras se escribía,
+     * se quita del archivo.
+     * @param ruta La ruta del archivo de desbordamiento
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo o si no tiene el formato esperado
+     */
+    private void abrirDesbordamiento( String ruta ) throws IOException
+    {
+        canalDesbordamiento = FileChannel.open( Paths.get( ruta ), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+        desbordados = new HashMap<String, TiqueteArchivado>( );
+        try
+        {
+            if( canalDesbordamiento.size( ) == 0 )
+            {
+                ByteBuffer encabezado = ByteBuffer.allocate( 8 ).putInt( MAGICO_DESBORDAMIENTO ).putInt( VERSION );
+                encabezado.flip( );
+                escribirCompleto( encabezado, 0 );
+                return;
+            }
+
+            ByteBuffer contenido = ByteBuffer.allocate( ( int )canalDesbordamiento.size( ) );
+            while( contenido.hasRemaining( ) && canalDesbordamiento.read( contenido, contenido.position( ) ) >= 0 )
+                ;
+            contenido.flip( );
+            if( contenido.remaining( ) < 8 || contenido.getInt( ) != MAGICO_DESBORDAMIENTO || contenido.getInt( ) != VERSION )
+                throw new IOException( "El archivo " + ruta + " no es un archivo de desbordamiento de tiquetes válido" );
+
+            while( contenido.remaining( ) >= 4 )
+            {
+                int inicio = contenido.position( );
+                int longitud = contenido.getInt( );
+                if( longitud < 0 || longitud > contenido.remaining( ) )
+                {
+                    contenido.position( inicio );
+                    break;
+                }
+                ByteBuffer registro = contenido.slice( contenido.position( ), longitud );
+                contenido.position( contenido.position( ) + longitud );
+                String codigo = leerCadena( registro );
+                String codigoRuta = leerCadena( registro );
+                String fecha = LocalDate.ofEpochDay( registro.getInt( ) ).toString( );
+                int tarifa = registro.getInt( );
+                boolean usado = registro.get( ) != 0;
+                String cliente = leerCadena( registro );
+                desbordados.put( codigo, new TiqueteArchivado( codigo, codigoRuta, fecha, tarifa, usado, cliente ) );
+            }
+            if( contenido.hasRemaining( ) )
+                canalDesbordamiento.truncate( contenido.position( ) );
+        }
+        catch( IOException | RuntimeException e )
+        {
+            canalDesbordamiento.close( );
+            throw e;
+        }
+    }
+
+    /**
+     * Agrega un tiquete al archivo de desbordamiento. El registro se escribe completo al final del archivo y sólo después el tiquete queda visible.
+     * @param tiquete El tiquete
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     */
+    private void desbordar( Tiquete tiquete ) throws IOException
+    {
+        String codigoRuta = tiquete.getVuelo( ).getRuta( ).getCodigoRuta( );
+        String cliente = tiquete.getCliente( ).getIdentificador( );
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( );
+        DataOutputStream salida = new DataOutputStream( bytes );
+        salida.writeInt( 0 );
+        escribirCadena( salida, tiquete.getCodigo( ) );
+        escribirCadena( salida, codigoRuta );
+        salida.writeInt( tiquete.getVuelo( ).getDiaEpoca( ) );
+        salida.writeInt( tiquete.getTarifa( ) );
+        salida.writeByte( tiquete.esUsado( ) ? 1 : 0 );
+        escribirCadena( salida, cliente );
+        salida.flush( );
+
+        ByteBuffer registro = ByteBuffer.wrap( bytes.toByteArray( ) );
+        registro.putInt( 0, registro.remaining( ) - 4 );
+        long fin = canalDesbordamiento.size( );
+        try
+        {
+            escribirCompleto( registro, fin );
+        }
+        catch( IOException e )
+        {
+            // Se quita lo que se alcanzó a escribir para que los registros siguientes no queden después de uno incompleto
+            canalDesbordamiento.truncate( fin );
+            throw e;
+        }
+        String fecha = LocalDate.ofEpochDay( tiquete.getVuelo( ).getDiaEpoca( ) ).toString( );
+        desbordados.put( tiquete.getCodigo( ), new TiqueteArchivado( tiquete.getCodigo( ), codigoRuta, fecha, tiquete.getTarifa( ), tiquete.esUsado( ), cliente ) );
+    }
+
+    /**
+     * Escribe un buffer completo en el archivo de desbordamiento
+     * @param buffer El buffer
+     * @param posicion La posición del archivo donde se escribe
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en el archivo
+     */
+    private void escribirCompleto( ByteBuffer buffer, long posicion ) throws IOException
+    {
+        while( buffer.hasRemaining( ) )
+            posicion += canalDesbordamiento.write( buffer, posicion );
+    }
+
+    /**
+     * Retorna un segmento del archivo de registros, mapeándolo en memoria si todavía no lo estaba
+     * @param numero El número del segmento
+     * @return El segmento mapeado
+     * @throws IOException Se lanza esta excepción si hay problemas mapeando el archivo
+     */
+    private MappedByteBuffer segmento( int numero ) throws IOException
+    {
+        while( segmentos.size( ) <= numero )
+        {
+            long inicio = ( long )segmentos.size( ) * REGISTROS_POR_SEGMENTO * TAMANO_REGISTRO;
+            segmentos.add( canalRegistros.map( MapMode.READ_WRITE, inicio, ( long )REGISTROS_POR_SEGMENTO * TAMANO_REGISTRO ) );
+        }
+        return segmentos.get( numero );
+    }
+
+    /**
+     * Convierte un código de tiquete en su valor numérico
+     * @param codigo El código
+     * @return El valor numérico del código, o -1 si el código no está formado por exactamente 7 dígitos
+     */
+    private static int convertirCodigo( String codigo )
+    {
+        if( codigo.length( ) != 7 )
+            return -1;
+        int valor = 0;
+        for( int i = 0; i < 7; i++ )
+        {
+            char c = codigo.charAt( i );
+            if( c < '0' || c > '9' )
+                return -1;
+            valor = valor * 10 + ( c - '0' );
+        }
+        return valor;
+    }
+
+    /**
+     * Escribe una cadena en UTF-8 en un registro del archivo de desbordamiento, precedida por su cantidad de bytes
+     * @param salida El registro
+     * @param cadena La cadena
+     * @throws IOException Nunca se lanza, porque el registro se escribe en memoria
+     */
+    private static void escribirCadena( DataOutputStream salida, String cadena ) throws IOException
+    {
+        byte[] bytes = cadena.getBytes( StandardCharsets.UTF_8 );
+        salida.writeInt( bytes.length );
+        salida.write( bytes );
+    }
+
+    /**
+     * Lee una cadena en UTF-8 de un registro del archivo de desbordamiento
+     * @param registro El registro, en la posición donde empieza la cadena
+     * @return La cadena
+     * @throws IOException Se lanza esta excepción si el registro no tiene el formato esperado
+     */
+    private static String leerCadena( ByteBuffer registro ) throws IOException
+    {
+        int longitud = registro.getInt( );
+        if( longitud < 0 || longitud > registro.remaining( ) )
+            throw new IOException( "Un registro del archivo de desbordamiento de tiquetes está dañado" );
+        byte[] bytes = new byte[longitud];
+        registro.get( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Lee una cadena en UTF-8 de un registro
+     * @param buffer El segmento donde está el registro
+     * @param posicion La posición donde empieza la cadena
+     * @param longitud La cantidad de bytes de la cadena
+     * @return La cadena
+     */
+    private static String leerCadena( MappedByteBuffer buffer, int posicion, int longitud )
+    {
+        byte[] bytes = new byte[longitud];
+        for( int i = 0; i < longitud; i++ )
+            bytes[ i ] = buffer.get( posicion + i );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+}
@@ -0,0 +1,17 @@
+package uniandes.dpoo.aerolinea.tiquetes;
+
+/**
+ * Esta interfaz define una estrategia para escoger el código de un nuevo tiquete.
+ *
+ * Las implementaciones deben poder usarse desde varios hilos al mismo tiempo.
+ */
+public interface EstrategiaCodigos
+{
+    /**
+     * Escoge un código que no esté en el registro y lo registra
+     * @param registro El registro de los códigos ya asignados
+     * @return El valor numérico del código asignado
+     * @throws IllegalStateException Se lanza esta excepción si ya no quedan códigos disponibles
+     */
+    public int asignarCodigo( RegistroCodigos registro );
+}
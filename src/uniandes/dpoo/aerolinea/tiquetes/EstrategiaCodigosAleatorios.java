@@ -0,0 +1,25 @@
+package uniandes.dpoo.aerolinea.tiquetes;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Esta estrategia asigna códigos al azar, intentando de nuevo mientras el código escogido ya esté registrado.
+ *
+ * Es la estrategia original del generador de tiquetes. Su costo crece a medida que se llena el espacio de códigos, por lo que sólo se recomienda cuando se necesita que los
+ * códigos sean impredecibles.
+ */
+public class EstrategiaCodigosAleatorios implements EstrategiaCodigos
+{
+    @Override
+    public int asignarCodigo( RegistroCodigos registro )
+    {
+        if( registro.getCantidad( ) >= RegistroCodigos.CANTIDAD_CODIGOS )
+            throw new IllegalStateException( "No quedan códigos de tiquete disponibles" );
+
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current( );
+        int codigo = aleatorio.nextInt( RegistroCodigos.CANTIDAD_CODIGOS );
+        while( !registro.registrar( codigo ) )
+            codigo = aleatorio.nextInt( RegistroCodigos.CANTIDAD_CODIGOS );
+        return codigo;
+    }
+}
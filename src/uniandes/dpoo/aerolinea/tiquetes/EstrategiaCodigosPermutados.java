@@ -0,0 +1,65 @@
+package uniandes.dpoo.aerolinea.tiquetes;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Esta estrategia asigna los códigos recorriendo una permutación del espacio de códigos.
+ *
+ * La estrategia tiene un contador que avanza con cada código asignado, y el código que corresponde a la posición i es (multiplicador * i + desplazamiento) módulo
+ * CANTIDAD_CODIGOS. Como el multiplicador no tiene factores comunes con 10^7, esta función es una biyección: recorre todos los códigos sin repetir ninguno, pero en un orden
+ * que no es consecutivo. Cada posición se visita una sola vez, así que la estrategia nunca reintenta un código al azar; sólo salta las posiciones cuyos códigos ya estaban
+ * registrados por otro medio (por ejemplo, al cargar un archivo), y el costo de esos saltos se reparte entre todas las asignaciones.
+ */
+public class EstrategiaCodigosPermutados implements EstrategiaCodigos
+{
+    /**
+     * El multiplicador que se usa por defecto. No es divisible ni por 2 ni por 5.
+     */
+    public static final long MULTIPLICADOR = 7654321;
+
+    private long multiplicador;
+    private long desplazamiento;
+
+    /**
+     * La siguiente posición de la permutación que se va a usar
+     */
+    private AtomicLong contador;
+
+    /**
+     * Construye una estrategia con el multiplicador por defecto y un desplazamiento al azar
+     */
+    public EstrategiaCodigosPermutados( )
+    {
+        this( MULTIPLICADOR, ThreadLocalRandom.current( ).nextInt( RegistroCodigos.CANTIDAD_CODIGOS ) );
+    }
+
+    /**
+     * Construye una estrategia con los parámetros dados
+     * @param multiplicador El multiplicador de la permutación. No puede ser divisible por 2 ni por 5.
+     * @param desplazamiento El desplazamiento de la permutación
+     */
+    public EstrategiaCodigosPermutados( long multiplicador, long desplazamiento )
+    {
+        if( multiplicador % 2 == 0 || multiplicador % 5 == 0 )
+            throw new IllegalArgumentException( "El multiplicador no puede ser divisible por 2 ni por 5" );
+        this.multiplicador = Math.floorMod( multiplicador, RegistroCodigos.CANTIDAD_CODIGOS );
+        this.desplazamiento = Math.floorMod( desplazamiento, RegistroCodigos.CANTIDAD_CODIGOS );
+        this.contador = new AtomicLong( );
+    }
+
+    @Override
+    public int asignarCodigo( RegistroCodigos registro )
+    {
+        while( true )
+        {
+            long posicion = contador.getAndIncrement( );
+            if( posicion >= RegistroCodigos.CANTIDAD_CODIGOS )
+                throw new IllegalStateException( "No quedan códigos de tiquete disponibles" );
+
+            int codigo = ( int )( ( multiplicador * posicion + desplazamiento ) % RegistroCodigos.CANTIDAD_CODIGOS );
+            if( registro.registrar( codigo ) )
+                return codigo;
+        }
+    }
+}
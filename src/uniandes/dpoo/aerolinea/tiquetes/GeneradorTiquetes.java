@@ -1,22 +1,81 @@
 package uniandes.dpoo.aerolinea.tiquetes;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import uniandes.dpoo.aerolinea.metricas.Histograma;
+import uniandes.dpoo.aerolinea.metricas.Metricas;
 import uniandes.dpoo.aerolinea.modelo.Vuelo;
 import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
 
 /**
  * Esta clase representa al módulo del sistema que es capaz de generar nuevos tiquetes, asignándole a cada uno un código único.
+ *
+ * Los códigos son cadenas de 7 dígitos. El generador lleva un registro de los códigos ya asignados (un mapa de bits indexado por el valor numérico del código) y delega en
+ * una estrategia la forma de escoger el código de cada nuevo tiquete. Todas las operaciones se pueden usar desde varios hilos al mismo tiempo.
  */
 public class GeneradorTiquetes
 {
     /**
-     * Un conjunto con los códigos que ya han sido usados anteriormente para otros tiquetes.
-     * 
-     * Este conjunto se utiliza para no correr el riesgo de repetir un código.
+     * La cantidad de dígitos de los códigos de los tiquetes
      */
-    private static Set<String> codigos = new HashSet<String>( );
+    private static final int DIGITOS = 7;
+
+    /**
+     * La latencia de asignar un código nuevo, que incluye reservarlo en el registro de códigos
+     */
+    private static final Histograma LATENCIA_CODIGO = Metricas.getHistograma( "tiquetes.asignarCodigo" );
+
+    /**
+     * El registro de los códigos de 7 dígitos que ya han sido usados anteriormente para otros tiquetes.
+     *
+     * Este registro se utiliza para no correr el riesgo de repetir un código.
+     */
+    private static volatile RegistroCodigos registro = new RegistroCodigosMemoria( );
+
+    /**
+     * Un conjunto con los códigos ya usados que no tienen la forma de 7 dígitos (por ejemplo, códigos que vienen de archivos generados por otros sistemas).
+     *
+     * El generador nunca produce códigos de este tipo, así que este conjunto sólo crece al registrar tiquetes existentes.
+     */
+    private static Set<String> codigosEspeciales = ConcurrentHashMap.newKeySet( );
+
+    /**
+     * La estrategia con la que se escoge el código de cada nuevo tiquete
+     */
+    private static volatile EstrategiaCodigos estrategia = new EstrategiaCodigosPermutados( );
+
+    /**
+     * Cambia la estrategia con la que se escogen los códigos de los nuevos tiquetes
+     * @param nuevaEstrategia La nueva estrategia
+     */
+    public static void setEstrategia( EstrategiaCodigos nuevaEstrategia )
+    {
+        estrategia = nuevaEstrategia;
+    }
+
+    /**
+     * Cambia el registro donde se guardan los códigos ya usados.
+     *
+     * Por ejemplo, se puede usar un RegistroCodigosMapeado para que los códigos queden guardados en un archivo y se conserven entre ejecuciones. Este método debe llamarse
+     * antes de cargar o generar tiquetes.
+     * @param nuevoRegistro El nuevo registro
+     */
+    public static void setRegistro( RegistroCodigos nuevoRegistro )
+    {
+        registro = nuevoRegistro;
+    }
+
+    /**
+     * Indica si los códigos registrados se conservan entre ejecuciones de la aplicación.
+     *
+     * Cuando esto ocurre, al cargar un archivo de tiquetes es normal que sus códigos ya estén registrados.
+     * @return Retorna true si el registro de códigos es persistente
+     */
+    public static boolean esRegistroPersistente( )
+    {
+        return registro.esPersistente( );
+    }
 
     /**
      * Construye un nuevo tiquete con los datos dados y con un identificador que corresponde a una cadena con 7 dígitos
@@ -24,21 +83,39 @@ public class GeneradorTiquetes
      * @param cliente El ciente que compró el tiquete
      * @param tarifa El valor que se le cobró al cliente por el tiquete
      * @return El nuevo tiquete, inicializado con un código único
+     * @throws IllegalStateException Se lanza esta excepción si ya no quedan códigos disponibles
      */
     public static Tiquete generarTiquete( Vuelo vuelo, Cliente cliente, int tarifa )
     {
-        int numero = ( int ) ( Math.random( ) * 10e7 );
-        String codigo = "" + numero;
-        while( codigos.contains( codigo ) )
-        {
-            numero = ( int ) ( Math.random( ) * 10e7 );
-            codigo = "" + numero;
-        }
+        return new Tiquete( formatearCodigo( asignarCodigo( ) ), vuelo, cliente, tarifa );
+    }
 
-        while( codigo.length( ) < 7 )
-            codigo = "0" + codigo;
+    /**
+     * Escoge y registra los códigos de unos tiquetes que todavía no se han construido. Sirve para registrar una venta en la bitácora antes de generar sus tiquetes.
+     * @param cantidad La cantidad de códigos
+     * @return Los códigos, de 7 dígitos cada uno
+     * @throws IllegalStateException Se lanza esta excepción si ya no quedan códigos disponibles
+     */
+    public static String[] asignarCodigos( int cantidad )
+    {
+        String[] codigos = new String[cantidad];
+        for( int i = 0; i < cantidad; i++ )
+            codigos[ i ] = formatearCodigo( asignarCodigo( ) );
+        return codigos;
+    }
 
-        return new Tiquete( codigo, vuelo, cliente, tarifa );
+    /**
+     * Escoge un código nuevo y lo registra, sin construir un tiquete. Lo usa el almacén de tiquetes, que guarda el código como un número.
+     * @return El valor numérico del código
+     * @throws IllegalStateException Se lanza esta excepción si ya no quedan códigos disponibles
+     */
+    static int asignarCodigo( )
+    {
+        // La estrategia reserva atómicamente el código en el registro, para que dos hilos no puedan quedarse con el mismo código
+        long inicio = Metricas.iniciar( );
+        int codigo = estrategia.asignarCodigo( registro );
+        LATENCIA_CODIGO.registrarDesde( inicio );
+        return codigo;
     }
 
     /**
@@ -47,9 +124,12 @@ public class GeneradorTiquetes
      */
     public static void registrarTiquete( Tiquete unTiquete )
     {
-        // TODO implementar
-    	String code = unTiquete.getCodigo();
-    	codigos.add(code);
+        String codigo = unTiquete.getCodigo( );
+        int numero = convertirCodigo( codigo );
+        if( numero >= 0 )
+            registro.registrar( numero );
+        else
+            codigosEspeciales.add( codigo );
     }
 
     /**
@@ -59,8 +139,45 @@ public class GeneradorTiquetes
      */
     public static boolean validarTiquete( String codigoTiquete )
     {
-    	boolean isPresent = false;
-    	if (codigos.contains(codigoTiquete)) isPresent = true;
-        return isPresent;
+        int numero = convertirCodigo( codigoTiquete );
+        if( numero >= 0 )
+            return registro.contiene( numero );
+        return codigosEspeciales.contains( codigoTiquete );
+    }
+
+    /**
+     * Convierte el valor numérico de un código en una cadena de 7 dígitos, completándola con ceros a la izquierda
+     * @param numero El valor numérico del código
+     * @return El código
+     */
+    static String formatearCodigo( int numero )
+    {
+        char[] digitos = new char[DIGITOS];
+        for( int i = DIGITOS - 1; i >= 0; i-- )
+        {
+            digitos[ i ] = ( char )( '0' + numero % 10 );
+            numero /= 10;
+        }
+        return new String( digitos );
+    }
+
+    /**
+     * Convierte un código en su valor numérico
+     * @param codigo El código
+     * @return El valor numérico del código, o -1 si el código no está formado por exactamente 7 dígitos
+     */
+    public static int convertirCodigo( String codigo )
+    {
+        if( codigo.length( ) != DIGITOS )
+            return -1;
+        int numero = 0;
+        for( int i = 0; i < DIGITOS; i++ )
+        {
+            char c = codigo.charAt( i );
+            if( c < '0' || c > '9' )
+                return -1;
+            numero = numero * 10 + ( c - '0' );
+        }
+        return numero;
     }
 }
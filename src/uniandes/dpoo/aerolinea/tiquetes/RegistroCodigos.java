@@ -0,0 +1,41 @@
+package uniandes.dpoo.aerolinea.tiquetes;
+
+/**
+ * Esta interfaz define un registro de los códigos de tiquete que ya fueron asignados.
+ *
+ * Los códigos se representan por su valor numérico, entre 0 y CANTIDAD_CODIGOS - 1. Las implementaciones deben permitir que varios hilos registren y consulten códigos al
+ * mismo tiempo.
+ */
+public interface RegistroCodigos
+{
+    /**
+     * La cantidad de códigos posibles: todos los números de 7 dígitos
+     */
+    public static final int CANTIDAD_CODIGOS = 10000000;
+
+    /**
+     * Registra un código de forma atómica
+     * @param codigo El valor numérico del código
+     * @return Retorna true si el código no estaba registrado y quedó registrado con esta llamada, o false si ya estaba registrado
+     */
+    public boolean registrar( int codigo );
+
+    /**
+     * Revisa si un código ya está registrado
+     * @param codigo El valor numérico del código
+     * @return Retorna true si el código está registrado
+     */
+    public boolean contiene( int codigo );
+
+    /**
+     * Retorna la cantidad de códigos registrados
+     * @return
+     */
+    public int getCantidad( );
+
+    /**
+     * Indica si el registro se conserva entre ejecuciones de la aplicación
+     * @return Retorna true si los códigos registrados siguen registrados después de reiniciar la aplicación
+     */
+    public boolean esPersistente( );
+}
@@ -0,0 +1,125 @@
+package uniandes.dpoo.aerolinea.tiquetes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Esta clase implementa un registro de códigos como un mapa de bits guardado en un archivo mapeado en memoria.
+ *
+ * El mapa de bits vive fuera del heap de Java y persiste entre ejecuciones: al abrir de nuevo el archivo, todos los códigos que se habían registrado siguen registrados, sin
+ * que haya que volver a registrarlos a partir del archivo de tiquetes. Esto también evita que se reutilicen los códigos de tiquetes que ya no están en memoria (por ejemplo,
+ * los que se movieron a un archivo histórico).
+ *
+ * El archivo tiene un encabezado de 8 bytes (el número mágico y la versión) seguido por un bit por cada código posible. Los métodos están sincronizados, porque los
+ * buffers mapeados no ofrecen operaciones atómicas.
+ */
+public class RegistroCodigosMapeado implements RegistroCodigos, Closeable
+{
+    /**
+     * El número mágico con el que empieza el archivo
+     */
+    private static final int MAGICO = 0x44504F43;
+
+    /**
+     * La versión actual del formato del archivo
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * El tamaño en bytes del encabezado del archivo
+     */
+    private static final int ENCABEZADO = 8;
+
+    /**
+     * La cantidad de palabras de 64 bits que se necesitan para tener un bit por código
+     */
+    private static final int PALABRAS = ( CANTIDAD_CODIGOS + 63 ) / 64;
+
+    /**
+     * El archivo mapeado en memoria
+     */
+    private MappedByteBuffer bits;
+
+    /**
+     * La cantidad de códigos registrados
+     */
+    private int cantidad;
+
+    /**
+     * Abre un registro guardado en un archivo, o lo crea vacío si el archivo no existe
+     * @param archivo La ruta al archivo
+     * @throws IOException Se lanza esta excepción si hay problemas abriendo el archivo o si el archivo no tiene el formato esperado
+     */
+    public RegistroCodigosMapeado( String archivo ) throws IOException
+    {
+        try( FileChannel canal = FileChannel.open( Paths.get( archivo ), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE ) )
+        {
+            boolean nuevo = canal.size( ) == 0;
+            // El mapeo se mantiene válido después de cerrar el canal
+            bits = canal.map( MapMode.READ_WRITE, 0, ENCABEZADO + PALABRAS * 8L );
+            if( nuevo )
+            {
+                bits.putInt( 0, MAGICO );
+                bits.putInt( 4, VERSION );
+            }
+            else if( bits.getInt( 0 ) != MAGICO || bits.getInt( 4 ) != VERSION )
+                throw new IOException( "El archivo " + archivo + " no es un registro de códigos válido" );
+        }
+
+        for( int i = 0; i < PALABRAS; i++ )
+            cantidad += Long.bitCount( bits.getLong( ENCABEZADO + i * 8 ) );
+    }
+
+    @Override
+    public synchronized boolean registrar( int codigo )
+    {
+        int posicion = ENCABEZADO + ( codigo >>> 6 ) * 8;
+        long palabra = bits.getLong( posicion );
+        long mascara = 1L << codigo;
+        if( ( palabra & mascara ) != 0 )
+            return false;
+        bits.putLong( posicion, palabra | mascara );
+        cantidad++;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean contiene( int codigo )
+    {
+        return ( bits.getLong( ENCABEZADO + ( codigo >>> 6 ) * 8 ) & ( 1L << codigo ) ) != 0;
+    }
+
+    @Override
+    public synchronized int getCantidad( )
+    {
+        return cantidad;
+    }
+
+    @Override
+    public boolean esPersistente( )
+    {
+        return true;
+    }
+
+    /**
+     * Obliga a que todos los códigos registrados hasta ahora queden escritos en el disco
+     */
+    public synchronized void sincronizar( )
+    {
+        bits.force( );
+    }
+
+    /**
+     * Escribe todos los cambios en el disco
+     */
+    @Override
+    public void close( )
+    {
+        sincronizar( );
+    }
+}
@@ -0,0 +1,66 @@
+package uniandes.dpoo.aerolinea.tiquetes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Esta clase implementa un registro de códigos como un mapa de bits en memoria, con un bit por cada código posible.
+ *
+ * Para los 10^7 códigos de 7 dígitos el mapa ocupa aproximadamente 1.25 MB, sin importar cuántos códigos estén registrados. Los bits se modifican con operaciones atómicas
+ * (compare-and-set), por lo que no se necesitan bloqueos.
+ */
+public class RegistroCodigosMemoria implements RegistroCodigos
+{
+    /**
+     * Los bits del registro: el código c corresponde al bit (c % 64) de la palabra (c / 64)
+     */
+    private AtomicLongArray bits;
+
+    /**
+     * La cantidad de códigos registrados
+     */
+    private AtomicInteger cantidad;
+
+    /**
+     * Construye un nuevo registro vacío
+     */
+    public RegistroCodigosMemoria( )
+    {
+        bits = new AtomicLongArray( ( CANTIDAD_CODIGOS + 63 ) / 64 );
+        cantidad = new AtomicInteger( );
+    }
+
+    @Override
+    public boolean registrar( int codigo )
+    {
+        int palabra = codigo >>> 6;
+        long mascara = 1L << codigo;
+        long actual;
+        do
+        {
+            actual = bits.get( palabra );
+            if( ( actual & mascara ) != 0 )
+                return false;
+        } while( !bits.compareAndSet( palabra, actual, actual | mascara ) );
+        cantidad.incrementAndGet( );
+        return true;
+    }
+
+    @Override
+    public boolean contiene( int codigo )
+    {
+        return ( bits.get( codigo >>> 6 ) & ( 1L << codigo ) ) != 0;
+    }
+
+    @Override
+    public int getCantidad( )
+    {
+        return cantidad.get( );
+    }
+
+    @Override
+    public boolean esPersistente( )
+    {
+        return false;
+    }
+}
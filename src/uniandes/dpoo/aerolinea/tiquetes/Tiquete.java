@@ -11,17 +11,30 @@ public class Tiquete {
 	private boolean usado;
 	private Vuelo vuelo;
 	
+	/**
+	 * El número de la silla asignada al tiquete dentro de su vuelo, o -1 si todavía no tiene silla
+	 */
+	private int silla;
+	
 	public Tiquete( String codigo, Vuelo vuelo, Cliente cliente, int tarifa) {
 		this.codigo = codigo;
 		this.tarifa = tarifa;
 		this.vuelo = vuelo;
 		this.cliente = cliente;
 		this.usado = false;
+		this.silla = -1;
 		
 		this.cliente.agregarTiquete(this);
 		
 	}
 	
+	/**
+	 * Construye un tiquete sin datos propios. Lo usan las subclases que leen los datos de otro lugar, como TiqueteAlmacenado.
+	 */
+	protected Tiquete() {
+		this.silla = -1;
+	}
+	
 	public Cliente getCliente() {
 		return this.cliente;
 	}
@@ -38,6 +51,9 @@ public class Tiquete {
 		return this.tarifa;
 	}
 	
+	/**
+	 * Marca el tiquete como usado. Para que el saldo del cliente se mantenga al día, los tiquetes se deben usar a través de Cliente.usarTiquete.
+	 */
 	public void marcarComoUsado() {
 		this.usado = true;
 	}
@@ -45,4 +61,16 @@ public class Tiquete {
 	public boolean esUsado() {
 		return usado;
 	}
+	
+	public int getSilla() {
+		return silla;
+	}
+	
+	/**
+	 * Cambia la silla asignada al tiquete. Este método lo usa el vuelo cuando registra el tiquete.
+	 * @param silla El número de la silla
+	 */
+	public void asignarSilla(int silla) {
+		this.silla = silla;
+	}
 }
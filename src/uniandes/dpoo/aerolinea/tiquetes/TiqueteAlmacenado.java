@@ -0,0 +1,119 @@
+package uniandes.dpoo.aerolinea.tiquetes;
+
+import uniandes.dpoo.aerolinea.modelo.Vuelo;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+
+/**
+ * Esta clase es una vista de un tiquete guardado en un AlmacenTiquetes: no tiene datos propios, sino que lee los datos del tiquete en las columnas del almacén cada vez
+ * que se consultan.
+ *
+ * Las vistas se crean cuando se necesitan y se pueden descartar en cualquier momento. Dos vistas son iguales si corresponden a la misma posición del mismo almacén.
+ */
+public class TiqueteAlmacenado extends Tiquete
+{
+    /**
+     * El almacén donde está el tiquete
+     */
+    private final AlmacenTiquetes almacen;
+
+    /**
+     * La posición del tiquete en el almacén
+     */
+    private final int posicion;
+
+    /**
+     * Construye una vista de un tiquete
+     * @param almacen El almacén donde está el tiquete
+     * @param posicion La posición del tiquete en el almacén
+     */
+    TiqueteAlmacenado( AlmacenTiquetes almacen, int posicion )
+    {
+        this.almacen = almacen;
+        this.posicion = posicion;
+    }
+
+    /**
+     * Retorna el almacén donde está el tiquete
+     * @return
+     */
+    public AlmacenTiquetes getAlmacen( )
+    {
+        return almacen;
+    }
+
+    /**
+     * Retorna la posición del tiquete en el almacén
+     * @return
+     */
+    public int getPosicion( )
+    {
+        return posicion;
+    }
+
+    @Override
+    public Cliente getCliente( )
+    {
+        return almacen.getCliente( posicion );
+    }
+
+    @Override
+    public Vuelo getVuelo( )
+    {
+        return almacen.getVuelo( posicion );
+    }
+
+    @Override
+    public String getCodigo( )
+    {
+        return almacen.getCodigo( posicion );
+    }
+
+    @Override
+    public int getTarifa( )
+    {
+        return almacen.getTarifa( posicion );
+    }
+
+    @Override
+    public void marcarComoUsado( )
+    {
+        almacen.marcarComoUsado( posicion );
+    }
+
+    @Override
+    public boolean esUsado( )
+    {
+        return almacen.esUsado( posicion );
+    }
+
+    @Override
+    public int getSilla( )
+    {
+        return almacen.getSilla( posicion );
+    }
+
+    /**
+     * La silla de un tiquete almacenado se fija cuando se agrega al almacén, así que no se puede cambiar
+     * @throws UnsupportedOperationException Siempre se lanza esta excepción
+     */
+    @Override
+    public void asignarSilla( int silla )
+    {
+        throw new UnsupportedOperationException( "La silla de un tiquete almacenado no se puede cambiar" );
+    }
+
+    @Override
+    public boolean equals( Object otro )
+    {
+        if( !( otro instanceof TiqueteAlmacenado ) )
+            return false;
+        TiqueteAlmacenado vista = ( TiqueteAlmacenado )otro;
+        return vista.almacen == almacen && vista.posicion == posicion;
+    }
+
+    @Override
+    public int hashCode( )
+    {
+        return System.identityHashCode( almacen ) * 31 + posicion;
+    }
+}
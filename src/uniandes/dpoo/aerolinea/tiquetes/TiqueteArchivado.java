@@ -0,0 +1,57 @@
+package uniandes.dpoo.aerolinea.tiquetes;
+
+/**
+ * Esta clase representa un tiquete que ya fue archivado en un ArchivoTiquetes.
+ *
+ * A diferencia de la clase Tiquete, un tiquete archivado no tiene referencias a los objetos del vuelo ni del cliente (que pueden ya no estar en memoria), sino a sus
+ * identificadores. Los objetos de esta clase no se pueden modificar.
+ */
+public class TiqueteArchivado
+{
+    private String codigo;
+    private String codigoRuta;
+    private String fecha;
+    private int tarifa;
+    private boolean usado;
+    private String identificadorCliente;
+
+    public TiqueteArchivado( String codigo, String codigoRuta, String fecha, int tarifa, boolean usado, String identificadorCliente )
+    {
+        this.codigo = codigo;
+        this.codigoRuta = codigoRuta;
+        this.fecha = fecha;
+        this.tarifa = tarifa;
+        this.usado = usado;
+        this.identificadorCliente = identificadorCliente;
+    }
+
+    public String getCodigo( )
+    {
+        return codigo;
+    }
+
+    public String getCodigoRuta( )
+    {
+        return codigoRuta;
+    }
+
+    public String getFecha( )
+    {
+        return fecha;
+    }
+
+    public int getTarifa( )
+    {
+        return tarifa;
+    }
+
+    public boolean esUsado( )
+    {
+        return usado;
+    }
+
+    public String getIdentificadorCliente( )
+    {
+        return identificadorCliente;
+    }
+}